@@ -16,6 +16,7 @@ import android.widget.TextView;
 import android.widget.Toast;
 
 import com.example.qrcode.android.CaptureActivity;
+import com.example.qrcode.android.ScannerSession;
 
 public class MainActivity extends AppCompatActivity implements View.OnClickListener {
 
@@ -31,6 +32,16 @@ public class MainActivity extends AppCompatActivity implements View.OnClickListe
         setContentView(R.layout.activity_main);
 
         initView();
+        //提前创建解码线程池，第一次扫码不必等待
+        ScannerSession.getInstance().prewarm(this);
+    }
+
+    @Override
+    protected void onDestroy() {
+        if (isFinishing()) {
+            ScannerSession.getInstance().release();
+        }
+        super.onDestroy();
     }
 
     private void initView() {
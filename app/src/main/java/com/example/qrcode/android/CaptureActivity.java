@@ -17,12 +17,16 @@ import android.widget.Toast;
 
 import com.example.qrcode.R;
 import com.example.qrcode.camera.CameraManager;
+import com.example.qrcode.decode.DecodeFormatManager;
+import com.example.qrcode.decode.ScanMetrics;
 import com.example.qrcode.view.ViewfinderView;
 import com.google.zxing.BarcodeFormat;
 import com.google.zxing.DecodeHintType;
 import com.google.zxing.Result;
 
 import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Map;
 
@@ -38,6 +42,11 @@ public final class CaptureActivity extends Activity implements SurfaceHolder.Cal
     private Collection<BarcodeFormat> decodeFormats;
     private Map<DecodeHintType, ?> decodeHints;
     private String characterSet;
+    private boolean saveThumbnail;//是否在结果中返回缩略图
+    private boolean multiple;//一帧多码模式
+    private boolean continuous;//连续扫描模式
+    private final ArrayList<String> scannedContents = new ArrayList<String>();//一帧多码和连续扫描模式下已扫到的内容
+    private static WeakReference<ScanResultListener> scanResultListener;//弱引用，避免监听者泄漏
 
     //返回键 图片按钮
     private ImageButton imageButton_back;
@@ -81,6 +90,7 @@ public final class CaptureActivity extends Activity implements SurfaceHolder.Cal
     @Override
     protected void onResume() {
         super.onResume();
+        ScanMetrics.getInstance().startSession(System.nanoTime());
         // CameraManager必须在这里初始化，而不是在onCreate()中。
         cameraManager = new CameraManager(getApplication());
 
@@ -89,6 +99,22 @@ public final class CaptureActivity extends Activity implements SurfaceHolder.Cal
 
         handler = null;
 
+        //调用方可以通过Intent限定格式、字符集和取景框大小，只扫二维码时只会运行二维码阅读器
+        Intent intent = getIntent();
+        decodeFormats = DecodeFormatManager.parseDecodeFormats(intent.getStringExtra(Intents.Scan.FORMATS), intent.getStringExtra(Intents.Scan.MODE));
+        characterSet = intent.getStringExtra(Intents.Scan.CHARACTER_SET);
+        saveThumbnail = intent.getBooleanExtra(Intents.Scan.SAVE_THUMBNAIL, true);
+        multiple = intent.getBooleanExtra(Intents.Scan.MULTIPLE, false);
+        continuous = !multiple && intent.getBooleanExtra(Intents.Scan.CONTINUOUS, false);
+        if (continuous) {
+            saveThumbnail = false;
+        }
+        int width = intent.getIntExtra(Intents.Scan.WIDTH, 0);
+        int height = intent.getIntExtra(Intents.Scan.HEIGHT, 0);
+        if (width > 0 && height > 0) {
+            cameraManager.setManualFramingRect(width, height);
+        }
+
         SurfaceView surfaceView = findViewById(R.id.preview_view);
         SurfaceHolder surfaceHolder = surfaceView.getHolder();
         if (hasSurface) {
@@ -100,9 +126,6 @@ public final class CaptureActivity extends Activity implements SurfaceHolder.Cal
             surfaceHolder.addCallback(this);
         }
 
-
-        decodeFormats = null;
-        characterSet = null;
     }
 
     @Override
@@ -118,6 +141,7 @@ public final class CaptureActivity extends Activity implements SurfaceHolder.Cal
             SurfaceHolder surfaceHolder = surfaceView.getHolder();
             surfaceHolder.removeCallback(this);
         }
+        Log.i(TAG, "Scan pipeline latency:\n" + ScanMetrics.getInstance().dump());
         super.onPause();
     }
 
@@ -145,19 +169,52 @@ public final class CaptureActivity extends Activity implements SurfaceHolder.Cal
     }
 
     //扫描成功，处理反馈信息
-    public void handleDecode(Result rawResult, Bitmap barcode) {
-        boolean fromLiveScan = barcode != null;
+    public void handleDecode(Result rawResult) {
+        if (continuous) {
+            handleDecodeMultiple(new Result[]{rawResult});
+            return;
+        }
         //这里处理解码完成后的结果，此处将参数回传到Activity处理
-        if (fromLiveScan) {
-            Toast.makeText(this, "扫描成功", Toast.LENGTH_SHORT).show();
-            Intent intent = getIntent();
-            intent.putExtra("codedContent", rawResult.getText());
-            intent.putExtra("codedBitmap", barcode);
-            setResult(RESULT_OK, intent);
+        Toast.makeText(this, "扫描成功", Toast.LENGTH_SHORT).show();
+        Intent intent = getIntent();
+        intent.putExtra("codedContent", rawResult.getText());
+        setResult(RESULT_OK, intent);
+        //需要缩略图时等handleThumbnail()再结束
+        if (!saveThumbnail) {
             finish();
         }
     }
 
+    //一帧多码或连续扫描：results是新出现的条码，逐个交给监听者，同时累积起来，按返回键时一起返回
+    public void handleDecodeMultiple(Result[] results) {
+        ScanResultListener listener = scanResultListener != null ? scanResultListener.get() : null;
+        for (Result result : results) {
+            scannedContents.add(result.getText());
+            if (listener != null) {
+                listener.onScanResult(result);
+            }
+        }
+        Toast.makeText(this, "已扫描" + scannedContents.size() + "个", Toast.LENGTH_SHORT).show();
+        Intent intent = getIntent();
+        intent.putStringArrayListExtra("codedContents", scannedContents);
+        setResult(RESULT_OK, intent);
+    }
+
+    //设置连续扫描和一帧多码模式的结果监听，传null取消；只保存弱引用，调用方需要自己持有监听者
+    public static void setScanResultListener(ScanResultListener listener) {
+        scanResultListener = listener == null ? null : new WeakReference<ScanResultListener>(listener);
+    }
+
+    //缩略图在结果之后由解码线程生成，barcode可能为null
+    public void handleThumbnail(Bitmap barcode) {
+        Intent intent = getIntent();
+        if (barcode != null) {
+            intent.putExtra("codedBitmap", barcode);
+        }
+        setResult(RESULT_OK, intent);
+        finish();
+    }
+
     //初始化相机
     private void initCamera(SurfaceHolder surfaceHolder) {
         if (surfaceHolder == null) {
@@ -172,7 +229,7 @@ public final class CaptureActivity extends Activity implements SurfaceHolder.Cal
             cameraManager.openDriver(surfaceHolder);
             // 创建一个handler来打开预览，并抛出一个运行时异常
             if (handler == null) {
-                handler = new CaptureActivityHandler(this, decodeFormats, decodeHints, characterSet, cameraManager);
+                handler = new CaptureActivityHandler(this, decodeFormats, decodeHints, characterSet, saveThumbnail, multiple, continuous, cameraManager);
             }
         } catch (IOException ioe) {
             Log.w(TAG, ioe);
@@ -5,7 +5,6 @@ import android.content.Intent;
 import android.content.pm.PackageManager;
 import android.content.pm.ResolveInfo;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.net.Uri;
 import android.os.Bundle;
 import android.os.Handler;
@@ -14,7 +13,9 @@ import android.util.Log;
 
 import com.example.qrcode.R;
 import com.example.qrcode.camera.CameraManager;
+import com.example.qrcode.camera.PreviewSource;
 import com.example.qrcode.decode.DecodeThread;
+import com.example.qrcode.decode.ScanMetrics;
 import com.example.qrcode.view.ViewfinderResultPointCallback;
 import com.google.zxing.BarcodeFormat;
 import com.google.zxing.DecodeHintType;
@@ -30,21 +31,24 @@ public final class CaptureActivityHandler extends Handler {
     private final CaptureActivity activity;
     private final DecodeThread decodeThread;
     private State state;
-    private final CameraManager cameraManager;
+    private final PreviewSource previewSource;//预览帧来源，旧Camera或Camera2后端
+    private final boolean continuous;//连续扫描：交付结果后马上继续解码
+    private int deliveredSequence;//已交付结果的序号（DecodeHandler在arg1中给出），0表示还没有
 
     private enum State {
         PREVIEW, SUCCESS, DONE
     }
 
-    public CaptureActivityHandler(CaptureActivity activity, Collection<BarcodeFormat> decodeFormats, Map<DecodeHintType, ?> baseHints, String characterSet, CameraManager cameraManager) {
+    public CaptureActivityHandler(CaptureActivity activity, Collection<BarcodeFormat> decodeFormats, Map<DecodeHintType, ?> baseHints, String characterSet, boolean thumbnail, boolean multiple, boolean continuous, CameraManager cameraManager) {
         this.activity = activity;
-        decodeThread = new DecodeThread(activity, decodeFormats, baseHints, characterSet, new ViewfinderResultPointCallback(activity.getViewfinderView()));
+        this.continuous = continuous;
+        decodeThread = new DecodeThread(activity, decodeFormats, baseHints, characterSet, thumbnail, multiple, continuous, new ViewfinderResultPointCallback(activity.getViewfinderView()));
         decodeThread.start();
         state = State.SUCCESS;
 
         // 开始拍摄预览和解码
-        this.cameraManager = cameraManager;
-        cameraManager.startPreview();
+        previewSource = cameraManager.getPreviewSource();
+        previewSource.startPreview();
         restartPreviewAndDecode();//预览解码
     }
 
@@ -56,23 +60,47 @@ public final class CaptureActivityHandler extends Handler {
                 restartPreviewAndDecode();
                 break;
             case R.id.decode_succeeded:
-                // 解码成功
+                // 解码成功；多个解码线程时只处理预览状态下的第一个结果
+                if (state != State.PREVIEW) {
+                    break;
+                }
                 state = State.SUCCESS;
+                deliveredSequence = message.arg1;
                 Bundle bundle = message.getData();
-                Bitmap barcode = null;
-                if (bundle != null) {
-                    byte[] compressedBitmap = bundle.getByteArray(DecodeThread.BARCODE_BITMAP);
-                    if (compressedBitmap != null) {
-                        barcode = BitmapFactory.decodeByteArray(compressedBitmap, 0, compressedBitmap.length, null);
-                        barcode = barcode.copy(Bitmap.Config.ARGB_8888, true);
-                    }
+                long found = bundle != null ? bundle.getLong(DecodeThread.BARCODE_FOUND_NANOS, 0) : 0;
+                ScanMetrics.getInstance().onResultDelivered(found, System.nanoTime());
+                activity.handleDecode((Result) message.obj);
+                // 相机、解码线程和阅读器都保持运行，直接开始下一次解码
+                if (continuous) {
+                    restartPreviewAndDecode();
+                }
+                break;
+            case R.id.decode_multiple_succeeded:
+                // 一帧多码：交付新出现的条码，保持预览状态继续取帧
+                if (state != State.PREVIEW) {
+                    break;
                 }
-                activity.handleDecode((Result) message.obj, barcode);
+                Result[] results = (Result[]) message.obj;
+                Bundle multipleBundle = message.getData();
+                long multipleFound = multipleBundle != null ? multipleBundle.getLong(DecodeThread.BARCODE_FOUND_NANOS, 0) : 0;
+                ScanMetrics.getInstance().onResultDelivered(multipleFound, System.nanoTime(), results.length);
+                activity.handleDecodeMultiple(results);
+                previewSource.requestPreviewFrame(decodeThread.getHandler(), R.id.decode);
                 break;
+            case R.id.decode_thumbnail:
+                // 缩略图在结果之后到达，按序号只接收已交付的那个结果的缩略图，不看状态：
+                // 连续扫描时状态已经回到PREVIEW，多个解码线程时没被交付的结果也会送来缩略图
+                if (state != State.DONE && deliveredSequence != 0 && message.arg1 == deliveredSequence) {
+                    activity.handleThumbnail((Bitmap) message.obj);
+                }
+                break;
+            case R.id.decode_dispatched:
+                // 帧已交给解码线程池，还有空闲线程时继续取帧
             case R.id.decode_failed:
                 // 尽可能快的解码，以便可以在解码失败时，开始另一次解码
-                state = State.PREVIEW;
-                cameraManager.requestPreviewFrame(decodeThread.getHandler(), R.id.decode);
+                if (state == State.PREVIEW) {
+                    previewSource.requestPreviewFrame(decodeThread.getHandler(), R.id.decode);
+                }
                 break;
             case R.id.return_scan_result:
                 //扫描结果，返回CaptureActivity处理
@@ -99,7 +127,7 @@ public final class CaptureActivityHandler extends Handler {
     //完全退出
     public void quitSynchronously() {
         state = State.DONE;
-        cameraManager.stopPreview();
+        previewSource.stopPreview();
         Message quit = Message.obtain(decodeThread.getHandler(), R.id.quit);
         quit.sendToTarget();
         try {
@@ -108,13 +136,16 @@ public final class CaptureActivityHandler extends Handler {
         }
         //确保不会发送任何队列消息
         removeMessages(R.id.decode_succeeded);
+        removeMessages(R.id.decode_multiple_succeeded);
+        removeMessages(R.id.decode_thumbnail);
+        removeMessages(R.id.decode_dispatched);
         removeMessages(R.id.decode_failed);
     }
 
     public void restartPreviewAndDecode() {
         if (state == State.SUCCESS) {
             state = State.PREVIEW;
-            cameraManager.requestPreviewFrame(decodeThread.getHandler(), R.id.decode);
+            previewSource.requestPreviewFrame(decodeThread.getHandler(), R.id.decode);
             activity.drawViewfinder();
         }
     }
@@ -1,16 +1,37 @@
 package com.example.qrcode.android;
 
+import com.example.qrcode.decode.DecodeFormatManager;
+
 public final class Intents {
     private Intents() {
     }
 
     public static final class Scan {
-        public static final String PRODUCT_MODE = "PRODUCT_MODE";
-        public static final String ONE_D_MODE = "ONE_D_MODE";
-        public static final String QR_CODE_MODE = "QR_CODE_MODE";
-        public static final String DATA_MATRIX_MODE = "DATA_MATRIX_MODE";
-        public static final String AZTEC_MODE = "AZTEC_MODE";
-        public static final String PDF417_MODE = "PDF417_MODE";
+        //扫描模式，取值为下面的*_MODE之一，用来限定解码格式；取值定义在与Android无关的DecodeFormatManager中
+        public static final String MODE = "SCAN_MODE";
+        public static final String PRODUCT_MODE = DecodeFormatManager.PRODUCT_MODE;
+        public static final String ONE_D_MODE = DecodeFormatManager.ONE_D_MODE;
+        public static final String QR_CODE_MODE = DecodeFormatManager.QR_CODE_MODE;
+        public static final String DATA_MATRIX_MODE = DecodeFormatManager.DATA_MATRIX_MODE;
+        public static final String AZTEC_MODE = DecodeFormatManager.AZTEC_MODE;
+        public static final String PDF417_MODE = DecodeFormatManager.PDF417_MODE;
+
+        //逗号分隔的BarcodeFormat名称，优先于MODE
+        public static final String FORMATS = "SCAN_FORMATS";
+        //解码使用的字符集
+        public static final String CHARACTER_SET = "CHARACTER_SET";
+        //取景框的宽高（像素），两个都大于0时才生效
+        public static final String WIDTH = "SCAN_WIDTH";
+        public static final String HEIGHT = "SCAN_HEIGHT";
+
+        //是否在结果中返回条码缩略图（codedBitmap），默认返回
+        public static final String SAVE_THUMBNAIL = "SAVE_THUMBNAIL";
+
+        //一帧多码：持续扫描，每帧返回所有新出现的条码，按返回键结束；结果在codedContents中
+        public static final String MULTIPLE = "SCAN_MULTIPLE";
+
+        //连续扫描：成功后不关闭界面，结果交给ScanResultListener，短时间内重复读到的同一条码会被过滤；结果在codedContents中
+        public static final String CONTINUOUS = "SCAN_CONTINUOUS";
 
         private Scan() {
         }
@@ -12,4 +12,12 @@ public final class PreferencesActivity extends Activity {
     public static final String KEY_DECODE_PDF417 = "preferences_decode_PDF417";
     public static final String KEY_AUTO_FOCUS = "preferences_auto_focus";
     public static final String KEY_DISABLE_CONTINUOUS_FOCUS = "preferences_disable_continuous_focus";
+    public static final String KEY_CAMERA2 = "preferences_camera2";//使用Camera2和ImageReader取帧，需要Android 5.0以上
+    public static final String KEY_PREVIEW_BUFFERS = "preferences_preview_buffers";//预览回调缓冲区数量，0表示使用一次性回调
+    public static final String KEY_RECORD_PREVIEW = "preferences_record_preview";//把预览帧录制到应用的外部文件目录，用于离线回放
+    public static final String KEY_DECODE_THREADS = "preferences_decode_threads";//解码线程数，0表示按CPU核数自动选择
+    public static final String KEY_DECODE_TRY_HARDER = "preferences_decode_try_harder";//快速解码失败后用TRY_HARDER重试
+    public static final String KEY_DECODE_INVERTED = "preferences_decode_inverted";//快速解码失败后反色重试
+    public static final String KEY_DECODE_RETRY_INTERVAL = "preferences_decode_retry_interval";//每几帧必做一次重试，0表示默认值
+    public static final String KEY_DECODE_RETRY_BUDGET = "preferences_decode_retry_budget";//每帧的耗时预算（毫秒），0表示默认值
 }
@@ -0,0 +1,10 @@
+package com.example.qrcode.android;
+
+import com.google.zxing.Result;
+
+//连续扫描和一帧多码模式的结果监听，在主线程回调，每个新条码回调一次
+public interface ScanResultListener {
+
+    void onScanResult(Result result);
+
+}
@@ -0,0 +1,129 @@
+package com.example.qrcode.android;
+
+import android.content.Context;
+import android.util.Log;
+import android.util.SparseArray;
+
+import com.example.qrcode.camera.CameraSetup;
+import com.example.qrcode.camera.OpenCameraInterface;
+import com.example.qrcode.decode.DecodeThread;
+import com.example.qrcode.decode.DecodeWorkerPool;
+import com.example.qrcode.decode.ScanMetrics;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.ResultPoint;
+import com.google.zxing.ResultPointCallback;
+
+import java.util.Map;
+
+//进程内的扫码会话：跨CaptureActivity的多次启动保留摄像头编号、各摄像头协商好的配置和停放的解码线程池
+//可以在进入扫码界面之前预热（如MainActivity显示时），第一次扫码也不必等线程和阅读器创建；线程安全
+public final class ScannerSession {
+
+    private static final String TAG = ScannerSession.class.getSimpleName();
+    private static final ScannerSession INSTANCE = new ScannerSession();
+
+    private final SparseArray<CameraSetup> cameraSetups = new SparseArray<CameraSetup>();
+    private final PointRelay pointRelay = new PointRelay();
+    private int defaultCameraId = -2;//-2表示还没有查询过
+    private DecodeWorkerPool parkedWorkers;
+
+    private ScannerSession() {
+    }
+
+    public static ScannerSession getInstance() {
+        return INSTANCE;
+    }
+
+    //在后台线程中查询摄像头编号并创建停放的解码线程池，不打开摄像头
+    public void prewarm(Context context) {
+        final Context appContext = context.getApplicationContext();
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                long start = System.nanoTime();
+                getDefaultCameraId();
+                Map<DecodeHintType, Object> hints = DecodeThread.createHints(appContext, null, null, null);
+                int poolSize = DecodeThread.poolSize(appContext);
+                synchronized (ScannerSession.this) {
+                    if (parkedWorkers == null) {
+                        parkedWorkers = new DecodeWorkerPool(poolSize, hints, ScanMetrics.getInstance());
+                    }
+                }
+                Log.d(TAG, "Prewarmed in " + (System.nanoTime() - start) / 1000000L + " ms");
+            }
+        }, "ScannerPrewarm").start();
+    }
+
+    //没有指定摄像头时打开的摄像头编号，只查询一次
+    public synchronized int getDefaultCameraId() {
+        if (defaultCameraId == -2) {
+            defaultCameraId = OpenCameraInterface.resolveCameraId(-1);
+        }
+        return defaultCameraId;
+    }
+
+    public synchronized CameraSetup getCameraSetup(int cameraId) {
+        return cameraSetups.get(cameraId);
+    }
+
+    public synchronized void putCameraSetup(int cameraId, CameraSetup setup) {
+        cameraSetups.put(cameraId, setup);
+    }
+
+    //取出停放的解码线程池，解码提示或线程数不同时换成新的
+    public synchronized DecodeWorkerPool acquireWorkers(Map<DecodeHintType, Object> hints, int size) {
+        DecodeWorkerPool pool = parkedWorkers;
+        parkedWorkers = null;
+        if (pool != null && (pool.size() != size || !pool.getHints().equals(hints))) {
+            Log.d(TAG, "Parked decode workers do not match, recreating");
+            pool.shutdown(0);
+            pool = null;
+        }
+        if (pool == null) {
+            pool = new DecodeWorkerPool(size, hints, ScanMetrics.getInstance());
+        }
+        return pool;
+    }
+
+    //扫码结束，解除绑定后停放，留给下一次扫码
+    public synchronized void releaseWorkers(DecodeWorkerPool pool) {
+        pool.park();
+        pointRelay.setTarget(null);
+        if (parkedWorkers != null && parkedWorkers != pool) {
+            parkedWorkers.shutdown(0);
+        }
+        parkedWorkers = pool;
+    }
+
+    //解码提示中的候选点回调，停放的线程池里的阅读器一直持有它，每次扫码换成当次的目标
+    public PointRelay getPointRelay() {
+        return pointRelay;
+    }
+
+    //不再扫码时停止停放的线程
+    public synchronized void release() {
+        if (parkedWorkers != null) {
+            parkedWorkers.shutdown(0);
+            parkedWorkers = null;
+        }
+    }
+
+    //转发候选点的回调
+    public static final class PointRelay implements ResultPointCallback {
+
+        private volatile ResultPointCallback target;
+
+        public void setTarget(ResultPointCallback target) {
+            this.target = target;
+        }
+
+        @Override
+        public void foundPossibleResultPoint(ResultPoint point) {
+            ResultPointCallback current = target;
+            if (current != null) {
+                current.foundPossibleResultPoint(point);
+            }
+        }
+    }
+
+}
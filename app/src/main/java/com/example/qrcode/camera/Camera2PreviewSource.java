@@ -0,0 +1,325 @@
+package com.example.qrcode.camera;
+
+import android.annotation.SuppressLint;
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.graphics.ImageFormat;
+import android.graphics.Point;
+import android.hardware.camera2.CameraAccessException;
+import android.hardware.camera2.CameraCaptureSession;
+import android.hardware.camera2.CameraCharacteristics;
+import android.hardware.camera2.CameraDevice;
+import android.hardware.camera2.CaptureRequest;
+import android.hardware.camera2.params.StreamConfigurationMap;
+import android.media.Image;
+import android.media.ImageReader;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Message;
+import android.util.Log;
+import android.util.Size;
+import android.view.Surface;
+import android.view.SurfaceHolder;
+
+import com.example.qrcode.decode.LumaBuffer;
+import com.example.qrcode.decode.ScanMetrics;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+//Camera2预览后端：预览画到SurfaceView上，同时输出YUV_420_888到ImageReader，帧的处理交给LatestImagePump
+//相机回调都在自己的后台线程中执行，不经过主线程；解码直接读取图像的亮度平面，不需要色度，图像在解码归还后才关闭
+@TargetApi(Build.VERSION_CODES.LOLLIPOP)
+final class Camera2PreviewSource implements PreviewSource, ImageReader.OnImageAvailableListener {
+
+    private static final String TAG = Camera2PreviewSource.class.getSimpleName();
+    private static final long OPEN_TIMEOUT_MS = 2500L;
+    private static final int SPARE_IMAGES = 2;//解码占着的图像之外，acquireLatestImage还需要两个槽位
+
+    private final HandlerThread cameraThread;
+    private final Handler cameraHandler;
+    private final Surface previewSurface;
+    private final Point previewSize;
+    private final ImageReader imageReader;
+    private final LatestImagePump pump;
+    private CameraDevice device;
+    private CameraCaptureSession session;
+    private boolean previewing;
+
+    //inFlightImages为同时交给解码的图像数量上限
+    private Camera2PreviewSource(HandlerThread cameraThread, CameraDevice device, Surface previewSurface, Point previewSize, int inFlightImages) {
+        this.cameraThread = cameraThread;
+        cameraHandler = new Handler(cameraThread.getLooper());
+        this.device = device;
+        this.previewSurface = previewSurface;
+        this.previewSize = previewSize;
+        imageReader = ImageReader.newInstance(previewSize.x, previewSize.y, ImageFormat.YUV_420_888, inFlightImages + SPARE_IMAGES);
+        imageReader.setOnImageAvailableListener(this, cameraHandler);
+        pump = new LatestImagePump(new LatestImagePump.ImageSource() {
+            @Override
+            public LatestImagePump.LumaImage acquireLatestImage() {
+                Image image = imageReader.acquireLatestImage();
+                return image == null ? null : new ReaderImage(image);
+            }
+        }, inFlightImages, previewSize.x, previewSize.y, ScanMetrics.getInstance());
+    }
+
+    //打开后置摄像头（cameraIndex小于0时）或指定的摄像头，等待打开完成；screenResolution为横屏方向的屏幕分辨率
+    //decodeWorkers为解码线程数：每个线程一张正在解码的图像，再加一张正在经过调度的，线程再多也不会拿不到帧
+    @SuppressLint("MissingPermission")
+    static Camera2PreviewSource open(Context context, SurfaceHolder holder, Point screenResolution, int cameraIndex, int decodeWorkers) throws IOException {
+        android.hardware.camera2.CameraManager manager = (android.hardware.camera2.CameraManager) context.getSystemService(Context.CAMERA_SERVICE);
+        HandlerThread thread = new HandlerThread("Camera2");
+        thread.start();
+        try {
+            String cameraId = chooseCamera(manager, cameraIndex);
+            if (cameraId == null) {
+                throw new IOException("No camera");
+            }
+            Point size = choosePreviewSize(manager.getCameraCharacteristics(cameraId), screenResolution);
+            //预览输出的尺寸要在创建会话之前设置
+            holder.setFixedSize(size.x, size.y);
+            final CountDownLatch opened = new CountDownLatch(1);
+            final CameraDevice[] result = new CameraDevice[1];
+            manager.openCamera(cameraId, new CameraDevice.StateCallback() {
+                @Override
+                public void onOpened(CameraDevice camera) {
+                    result[0] = camera;
+                    opened.countDown();
+                }
+
+                @Override
+                public void onDisconnected(CameraDevice camera) {
+                    camera.close();
+                    opened.countDown();
+                }
+
+                @Override
+                public void onError(CameraDevice camera, int error) {
+                    Log.w(TAG, "Camera " + camera.getId() + " error " + error);
+                    camera.close();
+                    opened.countDown();
+                }
+            }, new Handler(thread.getLooper()));
+            if (!opened.await(OPEN_TIMEOUT_MS, TimeUnit.MILLISECONDS) || result[0] == null) {
+                throw new IOException("Camera " + cameraId + " did not open");
+            }
+            Log.i(TAG, "Opened camera " + cameraId + " with preview size " + size);
+            return new Camera2PreviewSource(thread, result[0], holder.getSurface(), size, decodeWorkers + 1);
+        } catch (CameraAccessException cae) {
+            thread.quit();
+            throw new IOException(cae);
+        } catch (InterruptedException ie) {
+            thread.quit();
+            Thread.currentThread().interrupt();
+            throw new IOException(ie);
+        } catch (IOException ioe) {
+            thread.quit();
+            throw ioe;
+        }
+    }
+
+    //规则同OpenCameraInterface：没有指定时用第一个后置摄像头，没有后置摄像头时用第一个
+    private static String chooseCamera(android.hardware.camera2.CameraManager manager, int cameraIndex) throws CameraAccessException {
+        String[] ids = manager.getCameraIdList();
+        if (ids.length == 0) {
+            return null;
+        }
+        if (cameraIndex >= 0) {
+            return cameraIndex < ids.length ? ids[cameraIndex] : null;
+        }
+        for (String id : ids) {
+            Integer facing = manager.getCameraCharacteristics(id).get(CameraCharacteristics.LENS_FACING);
+            if (facing != null && facing == CameraCharacteristics.LENS_FACING_BACK) {
+                return id;
+            }
+        }
+        return ids[0];
+    }
+
+    private static Point choosePreviewSize(CameraCharacteristics characteristics, Point screenResolution) throws IOException {
+        StreamConfigurationMap map = characteristics.get(CameraCharacteristics.SCALER_STREAM_CONFIGURATION_MAP);
+        Size[] outputs = map == null ? null : map.getOutputSizes(ImageFormat.YUV_420_888);
+        if (outputs == null || outputs.length == 0) {
+            throw new IOException("Camera has no YUV_420_888 output");
+        }
+        List<int[]> sizes = new ArrayList<int[]>(outputs.length);
+        for (Size output : outputs) {
+            sizes.add(new int[]{output.getWidth(), output.getHeight()});
+        }
+        int[] best = CameraSelection.choosePreviewSize(sizes, screenResolution.x, screenResolution.y);
+        if (best == null) {
+            //没有纵横比合适的尺寸，用最接近1280x720的
+            best = sizes.get(0);
+            for (int[] size : sizes) {
+                if (Math.abs(size[0] * size[1] - 1280 * 720) < Math.abs(best[0] * best[1] - 1280 * 720)) {
+                    best = size;
+                }
+            }
+        }
+        return new Point(best[0], best[1]);
+    }
+
+    Point getPreviewSize() {
+        return previewSize;
+    }
+
+    long getDroppedImages() {
+        return pump.getDroppedImages();
+    }
+
+    @Override
+    public synchronized void startPreview() {
+        if (previewing || device == null) {
+            return;
+        }
+        previewing = true;
+        try {
+            device.createCaptureSession(Arrays.asList(previewSurface, imageReader.getSurface()), new CameraCaptureSession.StateCallback() {
+                @Override
+                public void onConfigured(CameraCaptureSession configured) {
+                    onSessionConfigured(configured);
+                }
+
+                @Override
+                public void onConfigureFailed(CameraCaptureSession failed) {
+                    onSessionConfigureFailed();
+                }
+            }, cameraHandler);
+        } catch (CameraAccessException cae) {
+            Log.w(TAG, "Cannot create capture session", cae);
+            previewing = false;
+        }
+    }
+
+    //会话就绪后开始连续出图；创建期间已经停止预览或关闭时直接关掉会话
+    private synchronized void onSessionConfigured(CameraCaptureSession configured) {
+        if (!previewing || device == null) {
+            configured.close();
+            return;
+        }
+        session = configured;
+        try {
+            CaptureRequest.Builder builder = device.createCaptureRequest(CameraDevice.TEMPLATE_PREVIEW);
+            builder.addTarget(previewSurface);
+            builder.addTarget(imageReader.getSurface());
+            builder.set(CaptureRequest.CONTROL_AF_MODE, CaptureRequest.CONTROL_AF_MODE_CONTINUOUS_VIDEO);
+            session.setRepeatingRequest(builder.build(), null, cameraHandler);
+        } catch (CameraAccessException cae) {
+            Log.w(TAG, "Cannot start repeating request", cae);
+        }
+    }
+
+    //会话无法创建时相机不会再出图，关闭相机，之后startPreview不再尝试
+    private synchronized void onSessionConfigureFailed() {
+        Log.w(TAG, "Capture session configuration failed");
+        previewing = false;
+        pump.reset();
+        if (device != null) {
+            device.close();
+            device = null;
+        }
+    }
+
+    @Override
+    public synchronized void stopPreview() {
+        if (!previewing) {
+            return;
+        }
+        previewing = false;
+        if (session != null) {
+            session.close();
+            session = null;
+        }
+        pump.reset();
+    }
+
+    @Override
+    public void requestPreviewFrame(final Handler handler, final int message) {
+        pump.request(new LatestImagePump.FrameSink() {
+            @Override
+            public void onFrame(LumaBuffer frame) {
+                Message.obtain(handler, message, frame.getWidth(), frame.getHeight(), frame).sendToTarget();
+            }
+        });
+    }
+
+    //帧都是LumaBuffer
+    @Override
+    public void releasePreviewBuffer(byte[] data) {
+    }
+
+    //解码用完后关闭图像，在解码线程中调用
+    @Override
+    public void releasePreviewBuffer(LumaBuffer frame) {
+        pump.release(frame);
+    }
+
+    @Override
+    public void onImageAvailable(ImageReader reader) {
+        pump.onImageAvailable();
+    }
+
+    //关闭相机和ImageReader，停止相机线程；还有图像在解码时，等它们归还后再关闭ImageReader
+    synchronized void close() {
+        stopPreview();
+        if (device != null) {
+            device.close();
+            device = null;
+        }
+        cameraThread.quitSafely();
+        pump.runWhenAllReleased(new Runnable() {
+            @Override
+            public void run() {
+                imageReader.close();
+            }
+        });
+    }
+
+    //Image的亮度平面，图像交给解码期间一直打开，每张图像一个
+    private static final class ReaderImage implements LatestImagePump.LumaImage {
+
+        private final Image image;
+
+        ReaderImage(Image image) {
+            this.image = image;
+        }
+
+        @Override
+        public int getWidth() {
+            return image.getWidth();
+        }
+
+        @Override
+        public int getHeight() {
+            return image.getHeight();
+        }
+
+        @Override
+        public ByteBuffer getLumaBuffer() {
+            return image.getPlanes()[0].getBuffer();
+        }
+
+        @Override
+        public int getRowStride() {
+            return image.getPlanes()[0].getRowStride();
+        }
+
+        @Override
+        public int getPixelStride() {
+            return image.getPlanes()[0].getPixelStride();
+        }
+
+        @Override
+        public void close() {
+            image.close();
+        }
+    }
+
+}
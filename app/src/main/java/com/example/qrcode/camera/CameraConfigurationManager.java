@@ -2,7 +2,6 @@ package com.example.qrcode.camera;
 
 import android.annotation.SuppressLint;
 import android.content.Context;
-import android.content.SharedPreferences;
 import android.graphics.Point;
 import android.hardware.Camera;
 import android.preference.PreferenceManager;
@@ -17,6 +16,7 @@ import java.lang.reflect.Method;
 // Camera参数配置
 final class CameraConfigurationManager {
     private static final String TAG = "CameraConfiguration";
+    static final int DISPLAY_ORIENTATION = 90;//竖屏显示，预览帧需要顺时针旋转90度
     private final Context context;
     private Point screenResolution;
     private Point cameraResolution;
@@ -27,14 +27,10 @@ final class CameraConfigurationManager {
 
     //一次性读取应用程序需要的摄像头数据
     //摄像头参数初始化
-    @SuppressLint("NewApi")
     void initFromCameraParameters(Camera camera) {
         //得到相机的参数
         Camera.Parameters parameters = camera.getParameters();
-        WindowManager manager = (WindowManager) context.getSystemService(Context.WINDOW_SERVICE);
-        Display display = manager.getDefaultDisplay();
-        Point theScreenResolution = new Point(display.getWidth(), display.getHeight());
-        screenResolution = theScreenResolution;
+        screenResolution = readScreenResolution();
         Log.i(TAG, "Screen resolution: " + screenResolution);
 
         Point screenResolutionForCamera = new Point();
@@ -51,6 +47,80 @@ final class CameraConfigurationManager {
 
     }
 
+    //使用同一进程中之前协商好的预览尺寸，屏幕分辨率变了（如分屏）或对焦设置改过时返回false，需要重新协商
+    boolean initFromSetup(CameraSetup setup) {
+        Point theScreenResolution = readScreenResolution();
+        if (!theScreenResolution.equals(setup.screenResolution) || setup.autoFocus != isAutoFocusEnabled() || setup.disableContinuousFocus != isContinuousFocusDisabled()) {
+            return false;
+        }
+        screenResolution = theScreenResolution;
+        cameraResolution = new Point(setup.cameraResolution);
+        Log.i(TAG, "Reusing camera resolution: " + cameraResolution);
+        return true;
+    }
+
+    //直接设置之前生效过的参数，不再协商对焦模式；相机拒绝时返回false
+    boolean applySetupParameters(Camera camera, CameraSetup setup) {
+        if (setup.parameters == null) {
+            return false;
+        }
+        try {
+            Camera.Parameters parameters = camera.getParameters();
+            parameters.unflatten(setup.parameters);
+            camera.setParameters(parameters);
+        } catch (RuntimeException re) {
+            Log.w(TAG, "Camera rejected cached parameters", re);
+            return false;
+        }
+        setDisplayOrientation(camera, DISPLAY_ORIENTATION);
+        return true;
+    }
+
+    //预览尺寸已经由其他后端（Camera2）选好
+    void initFromPreviewSize(Point theScreenResolution, Point previewSize) {
+        screenResolution = theScreenResolution;
+        cameraResolution = new Point(previewSize);
+        Log.i(TAG, "Camera resolution: " + cameraResolution);
+    }
+
+    //使用持久化的配置，跳过预览尺寸的协商；调用方已经核对过屏幕分辨率
+    void initFromProfile(CameraProfile profile) {
+        screenResolution = new Point(profile.screenWidth, profile.screenHeight);
+        cameraResolution = new Point(profile.previewWidth, profile.previewHeight);
+        Log.i(TAG, "Using saved camera profile: " + profile);
+    }
+
+    //直接设置持久化的预览尺寸和对焦模式，不再遍历支持的尺寸和模式；相机拒绝时返回false
+    boolean applyProfile(Camera camera, CameraProfile profile) {
+        try {
+            Camera.Parameters parameters = camera.getParameters();
+            parameters.setPreviewSize(profile.previewWidth, profile.previewHeight);
+            if (profile.focusMode != null) {
+                parameters.setFocusMode(profile.focusMode);
+            }
+            camera.setParameters(parameters);
+        } catch (RuntimeException re) {
+            Log.w(TAG, "Camera rejected saved profile " + profile, re);
+            return false;
+        }
+        setDisplayOrientation(camera, DISPLAY_ORIENTATION);
+        checkPreviewSize(camera);
+        return true;
+    }
+
+    //当前协商好的配置，留给下一次打开
+    CameraSetup snapshot(Camera camera) {
+        Camera.Parameters parameters = camera.getParameters();
+        return new CameraSetup(screenResolution, isAutoFocusEnabled(), isContinuousFocusDisabled(), cameraResolution, parameters == null ? null : parameters.flatten());
+    }
+
+    @SuppressLint("NewApi")
+    Point readScreenResolution() {
+        WindowManager manager = (WindowManager) context.getSystemService(Context.WINDOW_SERVICE);
+        Display display = manager.getDefaultDisplay();
+        return new Point(display.getWidth(), display.getHeight());
+    }
+
     void setDesiredCameraParameters(Camera camera, boolean safeMode) {
         Camera.Parameters parameters = camera.getParameters();
 
@@ -63,13 +133,18 @@ final class CameraConfigurationManager {
             Log.w(TAG, "In camera config safe mode -- most settings will not be honored");
         }
 
-        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
-        CameraConfigurationUtils.setFocus(parameters, prefs.getBoolean(PreferencesActivity.KEY_AUTO_FOCUS, true), prefs.getBoolean(PreferencesActivity.KEY_DISABLE_CONTINUOUS_FOCUS, true), safeMode);
+        CameraConfigurationUtils.setFocus(parameters, isAutoFocusEnabled(), isContinuousFocusDisabled(), safeMode);
         parameters.setPreviewSize(cameraResolution.x, cameraResolution.y);
-        setDisplayOrientation(camera, 90);//倾斜90度
+        setDisplayOrientation(camera, DISPLAY_ORIENTATION);//倾斜90度
         Log.i(TAG, "Final camera parameters: " + parameters.flatten());
 
         camera.setParameters(parameters);
+        checkPreviewSize(camera);
+
+    }
+
+    //相机可能没有采用设置的预览尺寸，以实际生效的为准
+    private void checkPreviewSize(Camera camera) {
         Camera.Parameters afterParameters = camera.getParameters();
         Camera.Size afterSize = afterParameters.getPreviewSize();
         if (afterSize != null && (cameraResolution.x != afterSize.width || cameraResolution.y != afterSize.height)) {
@@ -77,7 +152,16 @@ final class CameraConfigurationManager {
             cameraResolution.x = afterSize.width;
             cameraResolution.y = afterSize.height;
         }
+    }
+
+    //设置中的自动对焦开关
+    boolean isAutoFocusEnabled() {
+        return PreferenceManager.getDefaultSharedPreferences(context).getBoolean(PreferencesActivity.KEY_AUTO_FOCUS, true);
+    }
 
+    //设置中的禁用连续对焦开关
+    boolean isContinuousFocusDisabled() {
+        return PreferenceManager.getDefaultSharedPreferences(context).getBoolean(PreferencesActivity.KEY_DISABLE_CONTINUOUS_FOCUS, true);
     }
 
     //设置显示方向
@@ -5,17 +5,10 @@ import android.hardware.Camera;
 import android.util.Log;
 
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collection;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.Iterator;
 import java.util.List;
 
 public final class CameraConfigurationUtils {
     private static final String TAG = "CameraConfiguration";
-    private static final int MIN_PREVIEW_PIXELS = 480 * 320; //正常尺寸
-    private static final double MAX_ASPECT_DISTORTION = 0.15;//最大纵横比
 
     private CameraConfigurationUtils() {
     }
@@ -23,28 +16,22 @@ public final class CameraConfigurationUtils {
     //焦点设置
     public static void setFocus(Camera.Parameters parameters, boolean autoFocus, boolean disableContinuous, boolean safeMode) {
         List<String> supportedFocusModes = parameters.getSupportedFocusModes();//支持的焦点模式
-        String focusMode = null;
-        if (autoFocus) {
-            if (safeMode || disableContinuous) {
-                focusMode = findSettableValue("focus mode", supportedFocusModes, Camera.Parameters.FOCUS_MODE_AUTO);
-            } else {
-                focusMode = findSettableValue("focus mode", supportedFocusModes, Camera.Parameters.FOCUS_MODE_CONTINUOUS_VIDEO, Camera.Parameters.FOCUS_MODE_AUTO);
-            }
-        }
-        if (!safeMode && focusMode == null) {
-            focusMode = findSettableValue("focus mode", supportedFocusModes, Camera.Parameters.FOCUS_MODE_MACRO, Camera.Parameters.FOCUS_MODE_EDOF);
-        }
+        Log.i(TAG, "Supported focus mode values: " + supportedFocusModes);
+        String focusMode = CameraSelection.chooseFocusMode(supportedFocusModes, autoFocus, disableContinuous, safeMode);
         if (focusMode != null) {
             if (focusMode.equals(parameters.getFocusMode())) {
                 Log.i(TAG, "Focus mode already set to " + focusMode);
             } else {
+                Log.i(TAG, "Setting focus mode to " + focusMode);
                 parameters.setFocusMode(focusMode);
             }
+        } else {
+            Log.i(TAG, "No supported focus mode matches");
         }
 
     }
 
-    //查找最佳预览大小值
+    //查找最佳预览大小值，选择规则见CameraSelection.choosePreviewSize
     public static Point findBestPreviewSizeValue(Camera.Parameters parameters, Point screenResolution) {
         List<Camera.Size> rawSupportedSizes = parameters.getSupportedPreviewSizes();
         if (rawSupportedSizes == null) {
@@ -56,64 +43,23 @@ public final class CameraConfigurationUtils {
             return new Point(defaultSize.width, defaultSize.height);
         }
 
-        // 按大小排序，降序
-        List<Camera.Size> supportedPreviewSizes = new ArrayList<Camera.Size>(rawSupportedSizes);
-        Collections.sort(supportedPreviewSizes, new Comparator<Camera.Size>() {
-            @Override
-            public int compare(Camera.Size a, Camera.Size b) {
-                int aPixels = a.height * a.width;
-                int bPixels = b.height * b.width;
-                if (bPixels < aPixels) {
-                    return -1;
-                }
-                if (bPixels > aPixels) {
-                    return 1;
-                }
-                return 0;
-            }
-        });
-
+        List<int[]> sizes = new ArrayList<int[]>(rawSupportedSizes.size());
+        for (Camera.Size size : rawSupportedSizes) {
+            sizes.add(new int[]{size.width, size.height});
+        }
         if (Log.isLoggable(TAG, Log.INFO)) {
             StringBuilder previewSizesString = new StringBuilder();
-            for (Camera.Size supportedPreviewSize : supportedPreviewSizes) {
-                previewSizesString.append(supportedPreviewSize.width).append('x').append(supportedPreviewSize.height).append(' ');
+            for (int[] size : sizes) {
+                previewSizesString.append(size[0]).append('x').append(size[1]).append(' ');
             }
             Log.i(TAG, "Supported preview sizes: " + previewSizesString);
         }
 
-        double screenAspectRatio = (double) screenResolution.x / (double) screenResolution.y;
-
-        //去掉不合适的尺寸
-        Iterator<Camera.Size> it = supportedPreviewSizes.iterator();
-        while (it.hasNext()) {
-            Camera.Size supportedPreviewSize = it.next();
-            int realWidth = supportedPreviewSize.width;
-            int realHeight = supportedPreviewSize.height;
-            if (realWidth * realHeight < MIN_PREVIEW_PIXELS) {
-                it.remove();
-                continue;
-            }
-
-            boolean isCandidatePortrait = realWidth < realHeight;
-            int maybeFlippedWidth = isCandidatePortrait ? realHeight : realWidth;
-            int maybeFlippedHeight = isCandidatePortrait ? realWidth : realHeight;
-            double aspectRatio = (double) maybeFlippedWidth / (double) maybeFlippedHeight;
-            double distortion = Math.abs(aspectRatio - screenAspectRatio);
-            if (distortion > MAX_ASPECT_DISTORTION) {
-                it.remove();
-                continue;
-            }
-            if (maybeFlippedWidth == screenResolution.x && maybeFlippedHeight == screenResolution.y) {
-                Point exactPoint = new Point(realWidth, realHeight);
-                Log.i(TAG, "Found preview size exactly matching screen size: " + exactPoint);
-                return exactPoint;
-            }
-        }
-        if (!supportedPreviewSizes.isEmpty()) {
-            Camera.Size largestPreview = supportedPreviewSizes.get(0);
-            Point largestSize = new Point(largestPreview.width, largestPreview.height);
-            Log.i(TAG, "Using largest suitable preview size: " + largestSize);
-            return largestSize;
+        int[] best = CameraSelection.choosePreviewSize(sizes, screenResolution.x, screenResolution.y);
+        if (best != null) {
+            Point bestSize = new Point(best[0], best[1]);
+            Log.i(TAG, "Using preview size: " + bestSize);
+            return bestSize;
         }
 
         //如果没有合适的预览值，就返回到初始状态
@@ -126,20 +72,4 @@ public final class CameraConfigurationUtils {
         return defaultSize;
     }
 
-    //查找可设置的值
-    private static String findSettableValue(String name, Collection<String> supportedValues, String... desiredValues) {
-        Log.i(TAG, "Requesting " + name + " value from among: " + Arrays.toString(desiredValues));
-        Log.i(TAG, "Supported " + name + " values: " + supportedValues);
-        if (supportedValues != null) {
-            for (String desiredValue : desiredValues) {
-                if (supportedValues.contains(desiredValue)) {
-                    Log.i(TAG, "Can set " + name + " to: " + desiredValue);
-                    return desiredValue;
-                }
-            }
-        }
-        Log.i(TAG, "No supported values match");
-        return null;
-    }
-
 }
@@ -1,56 +1,83 @@
 package com.example.qrcode.camera;
 
+import android.annotation.TargetApi;
 import android.content.Context;
+import android.content.SharedPreferences;
 import android.graphics.Point;
 import android.graphics.Rect;
 import android.hardware.Camera;
+import android.os.Build;
 import android.os.Handler;
+import android.preference.PreferenceManager;
 import android.util.Log;
 import android.view.SurfaceHolder;
 
-import com.google.zxing.PlanarYUVLuminanceSource;
+import com.example.qrcode.android.PreferencesActivity;
+import com.example.qrcode.android.ScannerSession;
+import com.example.qrcode.decode.DecodeRegion;
+import com.example.qrcode.decode.DecodeThread;
+import com.example.qrcode.decode.DecodeWorkerPool;
+import com.example.qrcode.decode.LumaBuffer;
 
+import java.io.File;
 import java.io.IOException;
 
-//相机管理
-public final class CameraManager {
+//相机管理：默认使用android.hardware.Camera，自己就是预览帧来源；设置中开启Camera2且系统支持时改用Camera2PreviewSource
+//取景框和解码区域的计算两种后端共用
+public final class CameraManager implements DecodeWorkerPool.RegionProvider, PreviewSource {
 
     private static final String TAG = CameraManager.class.getSimpleName();
     private static final int MIN_FRAME_WIDTH = 240;
     private static final int MIN_FRAME_HEIGHT = 240;
     private static final int MAX_FRAME_WIDTH = 1200; // = 5/8 * 1920
     private static final int MAX_FRAME_HEIGHT = 675; // = 5/8 * 1080
+    private static final int DEFAULT_PREVIEW_BUFFERS = 4;//默认回调缓冲区数量
+    private static final String RECORDINGS_DIRECTORY = "recordings";
 
     private final Context context;
     private final CameraConfigurationManager configManager;//摄像头配置管理
+    private final CameraProfileStore profileStore;//持久化的摄像头配置
     private Camera camera;
+    private Camera2PreviewSource camera2;//Camera2后端，没有使用时为null
     private Rect framingRect;//矩形框架
     private Rect framingRectInPreview;//矩形框架预览
+    private DecodeRegion decodeRegion;//预览帧中的解码区域，随framingRectInPreview一起重算
     private boolean initialized;//已初始化
     private boolean previewing;//预览
     private int requestedCameraId = -1;//请求摄像头ID(-颠倒摄像)
+    private int cameraId = -1;//实际打开的摄像头
     private int requestedFramingRectWidth;//矩形宽度
     private int requestedFramingRectHeight;//矩形高度
 
     //预览回调
     private final PreviewCallback previewCallback;
+    private PreviewBufferRing previewBuffers;//回调缓冲区环，为null时使用一次性回调
+    private PreviewRecorder previewRecorder;//设置中开启录制时在预览期间录下每一帧
 
     public CameraManager(Context context) {
         this.context = context;
         this.configManager = new CameraConfigurationManager(context);
+        profileStore = new CameraProfileStore(context);
         previewCallback = new PreviewCallback(configManager);
     }
 
     //打开相机驱动程序并初始化硬件参数。
+    //配置依次来自：同一进程中之前生效的参数、持久化的配置（系统版本和屏幕不变时）、完整协商
     public synchronized void openDriver(SurfaceHolder holder)
             throws IOException {
         Camera theCamera = camera;
+        ScannerSession session = ScannerSession.getInstance();
+        if (theCamera == null && camera2 == null && useCamera2()) {
+            openCamera2(holder);
+            return;
+        }
+        if (camera2 != null) {
+            return;
+        }
         if (theCamera == null) {
-            if (requestedCameraId >= 0) {
-                theCamera = OpenCameraInterface.open(requestedCameraId);
-            } else {
-                theCamera = OpenCameraInterface.open();
-            }
+            //默认摄像头的编号在会话中只查询一次
+            cameraId = requestedCameraId >= 0 ? OpenCameraInterface.resolveCameraId(requestedCameraId) : session.getDefaultCameraId();
+            theCamera = cameraId >= 0 ? OpenCameraInterface.open(cameraId) : null;
 
             if (theCamera == null) {
                 throw new IOException();
@@ -59,12 +86,48 @@ public final class CameraManager {
         }
         theCamera.setPreviewDisplay(holder);//设置预览显示
 
+        CameraSetup setup = null;
+        CameraProfile profile = null;
         //判断是否初始化
         if (!initialized) {
             initialized = true;
-            configManager.initFromCameraParameters(theCamera);//从相机参数开始初始化
+            //同一进程中之前打开过这个摄像头时，直接使用协商好的预览尺寸和参数
+            setup = session.getCameraSetup(cameraId);
+            if (setup == null || !configManager.initFromSetup(setup)) {
+                setup = null;
+                Point screen = configManager.readScreenResolution();
+                profile = profileStore.load(cameraId, screen.x, screen.y, configManager.isAutoFocusEnabled(), configManager.isContinuousFocusDisabled());
+                if (profile != null) {
+                    configManager.initFromProfile(profile);
+                } else {
+                    configManager.initFromCameraParameters(theCamera);//从相机参数开始初始化
+                }
+            }
+            if (requestedFramingRectWidth > 0 && requestedFramingRectHeight > 0) {
+                setManualFramingRect(requestedFramingRectWidth, requestedFramingRectHeight);
+                requestedFramingRectWidth = 0;
+                requestedFramingRectHeight = 0;
+            }
         }
 
+        if (setup != null && configManager.applySetupParameters(theCamera, setup)) {
+            return;
+        }
+        if (profile != null && !configManager.applyProfile(theCamera, profile)) {
+            //保存的配置不再可用，重新协商
+            profileStore.remove(cameraId);
+            configManager.initFromCameraParameters(theCamera);
+            profile = null;
+        }
+        if (profile == null && !negotiateParameters(theCamera)) {
+            return;
+        }
+        session.putCameraSetup(cameraId, configManager.snapshot(theCamera));
+
+    }
+
+    //完整协商参数，被拒绝时退回安全模式；成功后持久化，下次打开直接使用。连安全模式都失败时返回false
+    private boolean negotiateParameters(Camera theCamera) {
         Camera.Parameters parameters = theCamera.getParameters();
         String parametersFlattened = parameters == null ? null : parameters.flatten();
         try {
@@ -72,66 +135,180 @@ public final class CameraManager {
         } catch (RuntimeException re) {
             Log.w(TAG, "Camera rejected parameters. Setting only minimal safe-mode parameters");//摄像头参数被拒绝。仅设置最小安全模式参数
             Log.i(TAG, "Resetting to saved camera params: " + parametersFlattened);
-            if (parametersFlattened != null) {
-                parameters = theCamera.getParameters();
-                parameters.unflatten(parametersFlattened);
-                try {
-                    theCamera.setParameters(parameters);
-                    configManager.setDesiredCameraParameters(theCamera, true);
-                } catch (RuntimeException re2) {
-                    Log.w(TAG, "Camera rejected even safe-mode parameters! No configuration");
-                }
+            if (parametersFlattened == null) {
+                return false;
+            }
+            parameters = theCamera.getParameters();
+            parameters.unflatten(parametersFlattened);
+            try {
+                theCamera.setParameters(parameters);
+                configManager.setDesiredCameraParameters(theCamera, true);
+            } catch (RuntimeException re2) {
+                Log.w(TAG, "Camera rejected even safe-mode parameters! No configuration");
+                return false;
             }
         }
+        Camera.Parameters negotiated = theCamera.getParameters();
+        Point screen = configManager.getScreenResolution();
+        Point preview = configManager.getCameraResolution();
+        if (negotiated != null) {
+            profileStore.save(cameraId, screen.x, screen.y, configManager.isAutoFocusEnabled(), configManager.isContinuousFocusDisabled(), preview.x, preview.y, negotiated.getFocusMode());
+        }
+        return true;
+    }
+
+    //Camera2需要Android 5.0以上，而且要在设置中开启
+    private boolean useCamera2() {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP && PreferenceManager.getDefaultSharedPreferences(context).getBoolean(PreferencesActivity.KEY_CAMERA2, false);
+    }
 
+    //打开Camera2后端，预览尺寸由它按屏幕选择，取景框按这个尺寸计算
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    private void openCamera2(SurfaceHolder holder) throws IOException {
+        Point screen = configManager.readScreenResolution();
+        Point screenForCamera = screen.x < screen.y ? new Point(screen.y, screen.x) : new Point(screen);
+        camera2 = Camera2PreviewSource.open(context, holder, screenForCamera, requestedCameraId, DecodeThread.poolSize(context));
+        configManager.initFromPreviewSize(screen, camera2.getPreviewSize());
+        initialized = true;
+        if (requestedFramingRectWidth > 0 && requestedFramingRectHeight > 0) {
+            setManualFramingRect(requestedFramingRectWidth, requestedFramingRectHeight);
+            requestedFramingRectWidth = 0;
+            requestedFramingRectHeight = 0;
+        }
+    }
+
+    //CaptureActivityHandler通过它驱动预览，openDriver之后调用
+    public synchronized PreviewSource getPreviewSource() {
+        return camera2 != null ? camera2 : this;
     }
 
     public synchronized boolean isOpen() {
-        return camera != null;
+        return camera != null || camera2 != null;
     }
 
     //关闭相机驱动
     public synchronized void closeDriver() {
+        if (camera2 != null) {
+            Log.d(TAG, "Camera2 dropped " + camera2.getDroppedImages() + " stale images");
+            camera2.close();
+            camera2 = null;
+            framingRect = null;
+            framingRectInPreview = null;
+            decodeRegion = null;
+        }
         if (camera != null) {
             camera.release();
             camera = null;
             framingRect = null;
             framingRectInPreview = null;
+            decodeRegion = null;
         }
     }
 
     //要求相机硬件开始在屏幕上绘制预览帧
+    @Override
     public synchronized void startPreview() {
         Camera theCamera = camera;
         if (theCamera != null && !previewing) {
+            setUpPreviewBuffers(theCamera);
+            startRecording();
             theCamera.startPreview();
             previewing = true;
 
         }
     }
 
+    //缓冲区数量大于0时使用setPreviewCallbackWithBuffer，缓冲区按相机分辨率预先分配并循环使用
+    private void setUpPreviewBuffers(Camera theCamera) {
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
+        int slots = prefs.getInt(PreferencesActivity.KEY_PREVIEW_BUFFERS, DEFAULT_PREVIEW_BUFFERS);
+        Point cameraResolution = configManager.getCameraResolution();
+        if (slots <= 0 || cameraResolution == null) {
+            previewBuffers = null;
+            previewCallback.setBufferRing(null);
+            return;
+        }
+        if (previewBuffers == null || previewBuffers.size() != slots || !previewBuffers.matches(cameraResolution.x, cameraResolution.y)) {
+            previewBuffers = new PreviewBufferRing(slots, cameraResolution.x, cameraResolution.y);
+        }
+        previewCallback.setBufferRing(previewBuffers);
+        theCamera.setPreviewCallbackWithBuffer(previewCallback);
+        queueFreeBuffers(theCamera);
+    }
+
+    //设置中开启录制时，每次预览录到一个新文件；打不开文件时只记日志，不影响扫码
+    private void startRecording() {
+        if (!PreferenceManager.getDefaultSharedPreferences(context).getBoolean(PreferencesActivity.KEY_RECORD_PREVIEW, false)) {
+            return;
+        }
+        File directory = context.getExternalFilesDir(RECORDINGS_DIRECTORY);
+        if (directory == null) {
+            directory = new File(context.getFilesDir(), RECORDINGS_DIRECTORY);
+        }
+        try {
+            previewRecorder = PreviewRecorder.start(directory, this);
+            previewCallback.setRecorder(previewRecorder);
+        } catch (IOException ioe) {
+            Log.w(TAG, "Cannot record preview frames", ioe);
+        }
+    }
+
+    //把空闲的缓冲区交给相机
+    private void queueFreeBuffers(Camera theCamera) {
+        byte[] buffer;
+        while ((buffer = previewBuffers.pollFree()) != null) {
+            theCamera.addCallbackBuffer(buffer);
+        }
+    }
+
     //告诉相机停止绘制预览帧。
+    @Override
     public synchronized void stopPreview() {
         if (camera != null && previewing) {
             camera.stopPreview();
             previewCallback.setHandler(null, 0);
+            if (previewRecorder != null) {
+                previewCallback.setRecorder(null);
+                previewRecorder.stop();
+                previewRecorder = null;
+            }
+            if (previewBuffers != null) {
+                camera.setPreviewCallbackWithBuffer(null);
+                previewBuffers.reset();
+            }
             previewing = false;
         }
     }
 
 
+    @Override
     public synchronized void requestPreviewFrame(Handler handler, int message) {
         Camera theCamera = camera;
         if (theCamera != null && previewing) {
             previewCallback.setHandler(handler, message);
-            theCamera.setOneShotPreviewCallback(previewCallback);
+            if (previewBuffers == null) {
+                theCamera.setOneShotPreviewCallback(previewCallback);
+            }
+        }
+    }
+
+    //解码用完预览帧后归还缓冲区，预览中则马上交还给相机
+    @Override
+    public synchronized void releasePreviewBuffer(byte[] data) {
+        if (previewBuffers != null && previewBuffers.release(data) && camera != null && previewing) {
+            queueFreeBuffers(camera);
         }
     }
 
+    //Camera1的帧都是byte[]
+    @Override
+    public void releasePreviewBuffer(LumaBuffer frame) {
+    }
+
     //以窗口坐标在屏幕上绘制的矩形
     public synchronized Rect getFramingRect() {
         if (framingRect == null) {
-            if (camera == null) {
+            if (camera == null && camera2 == null) {
                 return null;
             }
             Point screenResolution = configManager.getScreenResolution();
@@ -149,6 +326,28 @@ public final class CameraManager {
         return framingRect;
     }
 
+    //指定取景框大小（屏幕像素），居中显示；相机还没初始化时先记下，初始化后再生效
+    public synchronized void setManualFramingRect(int width, int height) {
+        if (initialized) {
+            Point screenResolution = configManager.getScreenResolution();
+            if (width > screenResolution.x) {
+                width = screenResolution.x;
+            }
+            if (height > screenResolution.y) {
+                height = screenResolution.y;
+            }
+            int leftOffset = (screenResolution.x - width) / 2;
+            int topOffset = (screenResolution.y - height) / 2;
+            framingRect = new Rect(leftOffset, topOffset, leftOffset + width, topOffset + height);
+            Log.d(TAG, "Calculated manual framing rect: " + framingRect);
+            framingRectInPreview = null;
+            decodeRegion = null;
+        } else {
+            requestedFramingRectWidth = width;
+            requestedFramingRectHeight = height;
+        }
+    }
+
     //查找所需要的尺寸
     private static int findDesiredDimensionInRange(int resolution, int hardMin, int hardMax) {
         int dim = 5 * resolution / 8; // 每个维度的目标值为5/8
@@ -184,12 +383,17 @@ public final class CameraManager {
         return framingRectInPreview;
     }
 
-    public PlanarYUVLuminanceSource buildLuminanceSource(byte[] data, int width, int height) {//data 预览帧率；width 图像的宽度； height 图像的高度；
-        Rect rect = getFramingRectInPreview();
-        if (rect == null) {
-            return null;
+    //预览帧中取景框对应的解码区域，由解码引擎直接从未旋转的预览帧中读取
+    @Override
+    public synchronized DecodeRegion regionFor(int width, int height) {//width 预览帧的宽度； height 预览帧的高度
+        if (decodeRegion == null) {
+            Rect rect = getFramingRectInPreview();
+            if (rect == null) {
+                return null;
+            }
+            decodeRegion = new DecodeRegion(CameraConfigurationManager.DISPLAY_ORIENTATION, rect.left, rect.top, rect.width(), rect.height());
         }
-        return new PlanarYUVLuminanceSource(data, width, height, rect.left, rect.top, rect.width(), rect.height(), false);
+        return decodeRegion;
     }
 
 }
@@ -0,0 +1,68 @@
+package com.example.qrcode.camera;
+
+//一个摄像头最终协商好的配置：预览尺寸、对焦模式，以及当时的系统版本指纹、屏幕分辨率和对焦设置
+//编码成一行文本持久化；系统升级（指纹改变）、屏幕分辨率不同或对焦设置改过时作废，重新协商。不依赖Android
+final class CameraProfile {
+
+    private static final String VERSION = "2";
+    private static final String SEPARATOR = "|";//系统指纹中不会出现
+
+    final String fingerprint;
+    final int screenWidth;
+    final int screenHeight;
+    final boolean autoFocus;//协商时的自动对焦设置
+    final boolean disableContinuousFocus;//协商时的禁用连续对焦设置
+    final int previewWidth;
+    final int previewHeight;
+    final String focusMode;//可为null
+
+    CameraProfile(String fingerprint, int screenWidth, int screenHeight, boolean autoFocus, boolean disableContinuousFocus, int previewWidth, int previewHeight, String focusMode) {
+        this.fingerprint = fingerprint;
+        this.screenWidth = screenWidth;
+        this.screenHeight = screenHeight;
+        this.autoFocus = autoFocus;
+        this.disableContinuousFocus = disableContinuousFocus;
+        this.previewWidth = previewWidth;
+        this.previewHeight = previewHeight;
+        this.focusMode = focusMode;
+    }
+
+    //是否适用于当前系统、屏幕和对焦设置；保存的对焦模式是按当时的对焦设置选出来的
+    boolean matches(String currentFingerprint, int currentScreenWidth, int currentScreenHeight, boolean currentAutoFocus, boolean currentDisableContinuousFocus) {
+        return fingerprint.equals(currentFingerprint) && screenWidth == currentScreenWidth && screenHeight == currentScreenHeight
+                && autoFocus == currentAutoFocus && disableContinuousFocus == currentDisableContinuousFocus;
+    }
+
+    String encode() {
+        return VERSION + SEPARATOR + fingerprint + SEPARATOR + screenWidth + SEPARATOR + screenHeight + SEPARATOR + (autoFocus ? 1 : 0) + SEPARATOR + (disableContinuousFocus ? 1 : 0)
+                + SEPARATOR + previewWidth + SEPARATOR + previewHeight + SEPARATOR + (focusMode == null ? "" : focusMode);
+    }
+
+    //格式不对或版本不同时返回null
+    static CameraProfile decode(String encoded) {
+        if (encoded == null) {
+            return null;
+        }
+        String[] fields = encoded.split("\\" + SEPARATOR, -1);
+        if (fields.length != 9 || !VERSION.equals(fields[0])) {
+            return null;
+        }
+        try {
+            int previewWidth = Integer.parseInt(fields[6]);
+            int previewHeight = Integer.parseInt(fields[7]);
+            if (previewWidth <= 0 || previewHeight <= 0) {
+                return null;
+            }
+            return new CameraProfile(fields[1], Integer.parseInt(fields[2]), Integer.parseInt(fields[3]), "1".equals(fields[4]), "1".equals(fields[5]),
+                    previewWidth, previewHeight, fields[8].isEmpty() ? null : fields[8]);
+        } catch (NumberFormatException nfe) {
+            return null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return previewWidth + "x" + previewHeight + " focus=" + focusMode;
+    }
+
+}
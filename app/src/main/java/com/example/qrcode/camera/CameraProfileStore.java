@@ -0,0 +1,35 @@
+package com.example.qrcode.camera;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Build;
+
+//持久化各摄像头协商好的配置，按摄像头编号保存，读取时核对系统版本指纹、屏幕分辨率和对焦设置
+final class CameraProfileStore {
+
+    private static final String PREFS_NAME = "camera_profiles";
+    private static final String KEY_PREFIX = "camera_";
+
+    private final SharedPreferences prefs;
+
+    CameraProfileStore(Context context) {
+        prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    //没有保存过、已经过时、不适用于当前屏幕或对焦设置改过时返回null
+    CameraProfile load(int cameraId, int screenWidth, int screenHeight, boolean autoFocus, boolean disableContinuousFocus) {
+        CameraProfile profile = CameraProfile.decode(prefs.getString(KEY_PREFIX + cameraId, null));
+        return profile != null && profile.matches(Build.FINGERPRINT, screenWidth, screenHeight, autoFocus, disableContinuousFocus) ? profile : null;
+    }
+
+    void save(int cameraId, int screenWidth, int screenHeight, boolean autoFocus, boolean disableContinuousFocus, int previewWidth, int previewHeight, String focusMode) {
+        CameraProfile profile = new CameraProfile(Build.FINGERPRINT, screenWidth, screenHeight, autoFocus, disableContinuousFocus, previewWidth, previewHeight, focusMode);
+        prefs.edit().putString(KEY_PREFIX + cameraId, profile.encode()).apply();
+    }
+
+    //保存的配置被相机拒绝，下次重新协商
+    void remove(int cameraId) {
+        prefs.edit().remove(KEY_PREFIX + cameraId).apply();
+    }
+
+}
@@ -0,0 +1,97 @@
+package com.example.qrcode.camera;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+//预览尺寸和对焦模式的选择规则，不依赖Android，可以用假的尺寸列表在JVM上测试
+final class CameraSelection {
+
+    //与Camera.Parameters中的取值相同
+    static final String FOCUS_MODE_AUTO = "auto";
+    static final String FOCUS_MODE_CONTINUOUS_VIDEO = "continuous-video";
+    static final String FOCUS_MODE_MACRO = "macro";
+    static final String FOCUS_MODE_EDOF = "edof";
+
+    static final int MIN_PREVIEW_PIXELS = 480 * 320; //正常尺寸
+    static final double MAX_ASPECT_DISTORTION = 0.15;//最大纵横比
+
+    private CameraSelection() {
+    }
+
+    //sizes中每一项是{宽, 高}，screenWidth不小于screenHeight（横屏方向）；
+    //有和屏幕一样大的尺寸就用它，否则用纵横比接近屏幕的最大尺寸，都没有时返回null，由调用方使用相机的默认尺寸
+    static int[] choosePreviewSize(List<int[]> sizes, int screenWidth, int screenHeight) {
+        // 按大小排序，降序
+        List<int[]> candidates = new ArrayList<int[]>(sizes);
+        Collections.sort(candidates, new Comparator<int[]>() {
+            @Override
+            public int compare(int[] a, int[] b) {
+                int aPixels = a[0] * a[1];
+                int bPixels = b[0] * b[1];
+                if (bPixels < aPixels) {
+                    return -1;
+                }
+                if (bPixels > aPixels) {
+                    return 1;
+                }
+                return 0;
+            }
+        });
+
+        double screenAspectRatio = (double) screenWidth / (double) screenHeight;
+        int[] largest = null;
+        for (int[] size : candidates) {
+            int realWidth = size[0];
+            int realHeight = size[1];
+            if (realWidth * realHeight < MIN_PREVIEW_PIXELS) {
+                continue;
+            }
+            boolean isCandidatePortrait = realWidth < realHeight;
+            int maybeFlippedWidth = isCandidatePortrait ? realHeight : realWidth;
+            int maybeFlippedHeight = isCandidatePortrait ? realWidth : realHeight;
+            double aspectRatio = (double) maybeFlippedWidth / (double) maybeFlippedHeight;
+            if (Math.abs(aspectRatio - screenAspectRatio) > MAX_ASPECT_DISTORTION) {
+                continue;
+            }
+            if (maybeFlippedWidth == screenWidth && maybeFlippedHeight == screenHeight) {
+                return size;
+            }
+            if (largest == null) {
+                largest = size;
+            }
+        }
+        return largest;
+    }
+
+    //按优先顺序选对焦模式：自动对焦时优先连续对焦（禁用连续对焦或安全模式下只用auto），
+    //不自动对焦或没有可用模式时退而求其次用微距或EDOF（安全模式下不用）；都不支持时返回null
+    static String chooseFocusMode(Collection<String> supported, boolean autoFocus, boolean disableContinuous, boolean safeMode) {
+        String focusMode = null;
+        if (autoFocus) {
+            if (safeMode || disableContinuous) {
+                focusMode = firstSupported(supported, FOCUS_MODE_AUTO);
+            } else {
+                focusMode = firstSupported(supported, FOCUS_MODE_CONTINUOUS_VIDEO, FOCUS_MODE_AUTO);
+            }
+        }
+        if (!safeMode && focusMode == null) {
+            focusMode = firstSupported(supported, FOCUS_MODE_MACRO, FOCUS_MODE_EDOF);
+        }
+        return focusMode;
+    }
+
+    private static String firstSupported(Collection<String> supported, String... desired) {
+        if (supported != null) {
+            for (String value : desired) {
+                if (supported.contains(value)) {
+                    return value;
+                }
+            }
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,22 @@
+package com.example.qrcode.camera;
+
+import android.graphics.Point;
+
+//一个摄像头协商好的配置：当时的屏幕分辨率、对焦设置、预览尺寸和最终生效的参数，同一进程中再次打开时直接使用
+public final class CameraSetup {
+
+    final Point screenResolution;
+    final boolean autoFocus;//协商时的自动对焦设置
+    final boolean disableContinuousFocus;//协商时的禁用连续对焦设置
+    final Point cameraResolution;
+    final String parameters;//Camera.Parameters.flatten()的结果，可为null
+
+    CameraSetup(Point screenResolution, boolean autoFocus, boolean disableContinuousFocus, Point cameraResolution, String parameters) {
+        this.screenResolution = new Point(screenResolution);
+        this.autoFocus = autoFocus;
+        this.disableContinuousFocus = disableContinuousFocus;
+        this.cameraResolution = new Point(cameraResolution);
+        this.parameters = parameters;
+    }
+
+}
@@ -0,0 +1,159 @@
+package com.example.qrcode.camera;
+
+import com.example.qrcode.decode.LumaBuffer;
+import com.example.qrcode.decode.ScanMetrics;
+
+import java.nio.ByteBuffer;
+
+//把ImageReader的图像交给解码：每次有新图像都取最新的一张（acquireLatestImage），
+//只有解码方请求了下一帧时才交出去，否则马上关闭，过时的帧不会排队等待解码；
+//交出去的是图像亮度平面本身（LumaBuffer，带行跨度和像素跨度），不复制，图像一直打开到解码方归还为止；
+//同时打开的图像最多maxInFlight张，都在解码时新图像直接丢弃，ImageReader总有空槽位可以出图。不依赖Android
+final class LatestImagePump {
+
+    //一张图像的亮度平面
+    interface LumaImage {
+        int getWidth();
+
+        int getHeight();
+
+        ByteBuffer getLumaBuffer();
+
+        int getRowStride();
+
+        int getPixelStride();
+
+        void close();
+    }
+
+    //图像来源，没有新图像时返回null
+    interface ImageSource {
+        LumaImage acquireLatestImage();
+    }
+
+    //接收亮度帧，用完后调用release归还
+    interface FrameSink {
+        void onFrame(LumaBuffer frame);
+    }
+
+    private final ImageSource source;
+    private final int width;
+    private final int height;
+    private final ScanMetrics metrics;
+    private final LumaImage[] inFlightImages;//交给解码、还没归还的图像，和inFlightFrames一一对应
+    private final LumaBuffer[] inFlightFrames;
+    private FrameSink pendingSink;//请求了下一帧的接收方，一次性
+    private int inFlight;
+    private Runnable onAllReleased;//所有图像归还后执行一次，可为null
+    private long droppedImages;
+
+    LatestImagePump(ImageSource source, int maxInFlight, int width, int height, ScanMetrics metrics) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("Need at least one image in flight: " + maxInFlight);
+        }
+        this.source = source;
+        this.width = width;
+        this.height = height;
+        this.metrics = metrics;
+        inFlightImages = new LumaImage[maxInFlight];
+        inFlightFrames = new LumaBuffer[maxInFlight];
+    }
+
+    //请求下一帧，和Camera.setOneShotPreviewCallback一样只交付一次
+    synchronized void request(FrameSink sink) {
+        pendingSink = sink;
+    }
+
+    //ImageReader有新图像时在相机线程中调用；每次都要取出图像，否则ImageReader的槽位用完后会停止出图
+    void onImageAvailable() {
+        LumaImage image = source.acquireLatestImage();
+        if (image == null) {
+            return;
+        }
+        long arrival = System.nanoTime();
+        metrics.onFrameArrived(arrival);
+        FrameSink sink;
+        LumaBuffer frame;
+        synchronized (this) {
+            sink = pendingSink;
+            int slot = sink == null || image.getWidth() != width || image.getHeight() != height ? -1 : freeSlot();
+            if (slot < 0) {
+                droppedImages++;
+                frame = null;
+            } else {
+                frame = new LumaBuffer(image.getLumaBuffer(), width, height, image.getRowStride(), image.getPixelStride());
+                inFlightImages[slot] = image;
+                inFlightFrames[slot] = frame;
+                inFlight++;
+                pendingSink = null;
+            }
+        }
+        if (frame == null) {
+            image.close();
+            return;
+        }
+        metrics.onFrameDispatched(arrival);
+        sink.onFrame(frame);
+    }
+
+    //解码用完后关闭对应的图像，在解码线程中调用
+    void release(LumaBuffer frame) {
+        LumaImage image = null;
+        Runnable done = null;
+        synchronized (this) {
+            for (int i = 0; i < inFlightFrames.length; i++) {
+                if (inFlightFrames[i] == frame) {
+                    image = inFlightImages[i];
+                    inFlightImages[i] = null;
+                    inFlightFrames[i] = null;
+                    inFlight--;
+                    break;
+                }
+            }
+            if (inFlight == 0) {
+                done = onAllReleased;
+                onAllReleased = null;
+            }
+        }
+        if (image != null) {
+            image.close();
+        }
+        if (done != null) {
+            done.run();
+        }
+    }
+
+    //停止预览时取消未完成的请求；已经交出去的图像仍由解码方归还
+    synchronized void reset() {
+        pendingSink = null;
+    }
+
+    //所有交出去的图像都归还后执行action，没有未归还的图像时立即执行；关闭ImageReader会让它的图像失效，要等解码读完
+    void runWhenAllReleased(Runnable action) {
+        synchronized (this) {
+            if (inFlight > 0) {
+                onAllReleased = action;
+                return;
+            }
+        }
+        action.run();
+    }
+
+    synchronized long getDroppedImages() {
+        return droppedImages;
+    }
+
+    synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    private int freeSlot() {
+        for (int i = 0; i < inFlightFrames.length; i++) {
+            if (inFlightFrames[i] == null) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+}
@@ -11,13 +11,24 @@ public final class OpenCameraInterface {
     private OpenCameraInterface() {
     }
 
-    @SuppressLint("NewApi")
+    //cameraId小于0时打开后置摄像头，没有后置摄像头时打开0号；指定的摄像头不存在时返回null
     public static Camera open(int cameraId) {
+        int resolved = resolveCameraId(cameraId);
+        if (resolved < 0) {
+            return null;
+        }
+        Log.i(TAG, "Opening camera #" + resolved);
+        return Camera.open(resolved);
+    }
+
+    //要打开的摄像头编号，规则同open；没有摄像头或指定的摄像头不存在时返回-1
+    @SuppressLint("NewApi")
+    public static int resolveCameraId(int cameraId) {
 
         int numCameras = Camera.getNumberOfCameras();
         if (numCameras == 0) {
             Log.w(TAG, "No cameras!");
-            return null;
+            return -1;
         }
 
         boolean explicitRequest = cameraId >= 0;
@@ -35,21 +46,15 @@ public final class OpenCameraInterface {
             cameraId = index;
         }
 
-        Camera camera;
         if (cameraId < numCameras) {
-            Log.i(TAG, "Opening camera #" + cameraId);
-            camera = Camera.open(cameraId);
-        } else {
-            if (explicitRequest) {
-                Log.w(TAG, "Requested camera does not exist: " + cameraId);
-                camera = null;
-            } else {
-                Log.i(TAG, "No camera facing back; returning camera #0");
-                camera = Camera.open(0);
-            }
+            return cameraId;
         }
-
-        return camera;
+        if (explicitRequest) {
+            Log.w(TAG, "Requested camera does not exist: " + cameraId);
+            return -1;
+        }
+        Log.i(TAG, "No camera facing back; returning camera #0");
+        return 0;
     }
 
     public static Camera open() {
@@ -0,0 +1,114 @@
+package com.example.qrcode.camera;
+
+//预览回调缓冲区环：预先分配N块NV21缓冲区，记录每块是空闲、在相机队列中还是正被解码使用
+final class PreviewBufferRing {
+
+    private static final int FREE = 0;//空闲，可以交给相机
+    private static final int QUEUED = 1;//已通过addCallbackBuffer交给相机
+    private static final int IN_USE = 2;//帧已交给解码，等待归还
+
+    private final byte[][] buffers;
+    private final int[] states;
+    private final int width;
+    private final int height;
+
+    PreviewBufferRing(int slots, int width, int height) {
+        if (slots < 1) {
+            throw new IllegalArgumentException("Ring needs at least one slot: " + slots);
+        }
+        this.width = width;
+        this.height = height;
+        int frameSize = frameSize(width, height);
+        buffers = new byte[slots][];
+        states = new int[slots];
+        for (int i = 0; i < slots; i++) {
+            buffers[i] = new byte[frameSize];
+        }
+    }
+
+    //NV21每像素12位
+    static int frameSize(int width, int height) {
+        return width * height * 3 / 2;
+    }
+
+    boolean matches(int width, int height) {
+        return this.width == width && this.height == height;
+    }
+
+    int size() {
+        return buffers.length;
+    }
+
+    //取出一块空闲缓冲区并标记为已交给相机，没有空闲的返回null
+    synchronized byte[] pollFree() {
+        for (int i = 0; i < buffers.length; i++) {
+            if (states[i] == FREE) {
+                states[i] = QUEUED;
+                return buffers[i];
+            }
+        }
+        return null;
+    }
+
+    //相机返回的帧交给了解码，返回false表示不是本环中的缓冲区
+    synchronized boolean onFrameDelivered(byte[] data) {
+        int index = indexOf(data);
+        if (index < 0 || states[index] != QUEUED) {
+            return false;
+        }
+        states[index] = IN_USE;
+        return true;
+    }
+
+    //解码用完后归还，返回false表示不是本环中正在使用的缓冲区
+    synchronized boolean release(byte[] data) {
+        int index = indexOf(data);
+        if (index < 0 || states[index] != IN_USE) {
+            return false;
+        }
+        states[index] = FREE;
+        return true;
+    }
+
+    //停止预览后相机会丢掉它手里的缓冲区，正在解码的仍需等待归还
+    synchronized void reset() {
+        for (int i = 0; i < states.length; i++) {
+            if (states[i] == QUEUED) {
+                states[i] = FREE;
+            }
+        }
+    }
+
+    synchronized int freeCount() {
+        return count(FREE);
+    }
+
+    synchronized int queuedCount() {
+        return count(QUEUED);
+    }
+
+    synchronized int inUseCount() {
+        return count(IN_USE);
+    }
+
+    private int count(int state) {
+        int count = 0;
+        for (int s : states) {
+            if (s == state) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    //按引用查找，槽位很少，线性查找即可
+    private int indexOf(byte[] data) {
+        for (int i = 0; i < buffers.length; i++) {
+            if (buffers[i] == data) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+}
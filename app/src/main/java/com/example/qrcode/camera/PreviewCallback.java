@@ -6,6 +6,8 @@ import android.os.Handler;
 import android.os.Message;
 import android.util.Log;
 
+import com.example.qrcode.decode.ScanMetrics;
+
 //预览回调
 final class PreviewCallback implements Camera.PreviewCallback {
 
@@ -13,6 +15,8 @@ final class PreviewCallback implements Camera.PreviewCallback {
     private final CameraConfigurationManager configManager;
     private Handler previewHandler;
     private int previewMessage;
+    private PreviewBufferRing bufferRing;//缓冲模式下的回调缓冲区环，一次性回调模式为null
+    private volatile PreviewRecorder recorder;//录制预览帧，没有开启录制时为null
 
     PreviewCallback(CameraConfigurationManager configManager) {
         this.configManager = configManager;
@@ -23,15 +27,39 @@ final class PreviewCallback implements Camera.PreviewCallback {
         this.previewMessage = previewMessage;
     }
 
+    void setBufferRing(PreviewBufferRing bufferRing) {
+        this.bufferRing = bufferRing;
+    }
+
+    void setRecorder(PreviewRecorder recorder) {
+        this.recorder = recorder;
+    }
+
     //预览帧率
     @Override
     public void onPreviewFrame(byte[] data, Camera camera) {
+        long arrival = System.nanoTime();
+        ScanMetrics metrics = ScanMetrics.getInstance();
+        metrics.onFrameArrived(arrival);
         Point cameraResolution = configManager.getCameraResolution();
+        PreviewRecorder theRecorder = recorder;
+        if (theRecorder != null && cameraResolution != null) {
+            //缓冲区交出去之前先复制，缓冲模式下没人要的帧也会录下
+            theRecorder.onPreviewFrame(data, cameraResolution.x, cameraResolution.y, arrival);
+        }
         Handler thePreviewHandler = previewHandler;
+        PreviewBufferRing theBufferRing = bufferRing;
         if (cameraResolution != null && thePreviewHandler != null) {
+            if (theBufferRing != null) {
+                theBufferRing.onFrameDelivered(data);
+            }
+            metrics.onFrameDispatched(arrival);
             Message message = thePreviewHandler.obtainMessage(previewMessage, cameraResolution.x, cameraResolution.y, data);
             message.sendToTarget();
             previewHandler = null;
+        } else if (theBufferRing != null) {
+            //缓冲模式下每一帧都会回调，没人要的帧直接把缓冲区还给相机
+            camera.addCallbackBuffer(data);
         } else {
             Log.d(TAG, "Got preview callback, but no handler or resolution available");//已获得预览回调，但没有可用的处理程序或解决方案
         }
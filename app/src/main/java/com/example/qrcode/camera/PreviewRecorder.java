@@ -0,0 +1,129 @@
+package com.example.qrcode.camera;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.util.Log;
+
+import com.example.qrcode.decode.DecodeRegion;
+import com.example.qrcode.decode.DecodeWorkerPool;
+import com.example.qrcode.decode.FrameRecorder;
+import com.example.qrcode.decode.FrameRecording;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+
+//调试用的预览帧录制：相机回调中把帧复制到空闲的缓冲区，由后台线程追加到录制文件，格式见FrameRecording
+//写文件跟不上时直接丢帧并计数，不阻塞相机回调；录下的文件可以用batch模块的FrameReplayer在电脑上回放
+final class PreviewRecorder {
+
+    private static final String TAG = PreviewRecorder.class.getSimpleName();
+    private static final int SLOTS = 3;//等待写入的帧最多几帧
+
+    private final FrameRecorder recorder;
+    private final File file;
+    private final DecodeWorkerPool.RegionProvider regionProvider;
+    private final Handler writerHandler;
+    private final ArrayDeque<byte[]> free = new ArrayDeque<byte[]>(SLOTS);//只在同步块中访问
+    private int allocated;
+    private int dropped;
+    private volatile boolean full;//达到文件大小上限后不再复制帧
+
+    private PreviewRecorder(FrameRecorder recorder, File file, DecodeWorkerPool.RegionProvider regionProvider) {
+        this.recorder = recorder;
+        this.file = file;
+        this.regionProvider = regionProvider;
+        HandlerThread thread = new HandlerThread("PreviewRecorder");
+        thread.start();
+        writerHandler = new Handler(thread.getLooper());
+    }
+
+    //在directory中新建一个录制文件
+    static PreviewRecorder start(File directory, DecodeWorkerPool.RegionProvider regionProvider) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+        File file = new File(directory, "preview-" + System.currentTimeMillis() + FrameRecording.FILE_SUFFIX);
+        PreviewRecorder previewRecorder = new PreviewRecorder(new FrameRecorder(file, FrameRecorder.DEFAULT_MAX_BYTES), file, regionProvider);
+        Log.i(TAG, "Recording preview frames to " + file);
+        return previewRecorder;
+    }
+
+    //在相机回调中执行，data返回给相机或交给解码之前调用
+    void onPreviewFrame(byte[] data, int width, int height, long timestampNanos) {
+        if (full) {
+            return;
+        }
+        byte[] copy;
+        synchronized (free) {
+            copy = free.poll();
+            if (copy == null && allocated < SLOTS) {
+                allocated++;
+                copy = new byte[data.length];
+            }
+            if (copy == null) {
+                dropped++;
+                return;
+            }
+        }
+        if (copy.length != data.length) {
+            copy = new byte[data.length];
+        }
+        System.arraycopy(data, 0, copy, 0, data.length);
+        writerHandler.post(new FrameWrite(copy, width, height, regionProvider.regionFor(width, height), timestampNanos));
+    }
+
+    //写完已经排队的帧后关闭文件，结束写入线程
+    void stop() {
+        writerHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    recorder.close();
+                } catch (IOException ioe) {
+                    Log.w(TAG, "Cannot close " + file, ioe);
+                }
+                synchronized (free) {
+                    Log.i(TAG, "Recorded " + recorder.getFrameCount() + " frames (" + recorder.getSize() + " bytes), dropped " + dropped + " to " + file);
+                }
+                Looper.myLooper().quit();
+            }
+        });
+    }
+
+    //在写入线程中追加一帧，写完把缓冲区放回空闲队列
+    private final class FrameWrite implements Runnable {
+
+        private final byte[] data;
+        private final int width;
+        private final int height;
+        private final DecodeRegion region;
+        private final long timestampNanos;
+
+        FrameWrite(byte[] data, int width, int height, DecodeRegion region, long timestampNanos) {
+            this.data = data;
+            this.width = width;
+            this.height = height;
+            this.region = region;
+            this.timestampNanos = timestampNanos;
+        }
+
+        @Override
+        public void run() {
+            try {
+                if (!full && !recorder.append(data, data.length, width, height, region, timestampNanos)) {
+                    full = true;
+                    Log.i(TAG, "Recording reached its size limit: " + file);
+                }
+            } catch (IOException ioe) {
+                full = true;
+                Log.w(TAG, "Cannot write " + file, ioe);
+            }
+            synchronized (free) {
+                free.offer(data);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,23 @@
+package com.example.qrcode.camera;
+
+import android.os.Handler;
+
+import com.example.qrcode.decode.LumaBuffer;
+
+//预览帧来源：CaptureActivityHandler通过它开始、停止预览和请求下一帧，解码用完后归还帧缓冲区
+//帧通过handler的message消息发送，obj为帧数据（byte[]或LumaBuffer，由后端决定），arg1、arg2为帧的宽和高
+public interface PreviewSource {
+
+    void startPreview();
+
+    void stopPreview();
+
+    //只交付一帧，要下一帧时再次请求
+    void requestPreviewFrame(Handler handler, int message);
+
+    void releasePreviewBuffer(byte[] data);
+
+    //归还LumaBuffer帧，之后不能再读取它的buffer
+    void releasePreviewBuffer(LumaBuffer frame);
+
+}
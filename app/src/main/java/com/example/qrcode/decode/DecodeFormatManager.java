@@ -1,42 +0,0 @@
-package com.example.qrcode.decode;
-
-import android.content.Intent;
-import android.net.Uri;
-
-import com.example.qrcode.android.Intents;
-import com.google.zxing.BarcodeFormat;
-
-import java.util.EnumSet;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Set;
-
-public final class DecodeFormatManager {
-
-    public static final Set<BarcodeFormat> PRODUCT_FORMATS;
-    static final Set<BarcodeFormat> INDUSTRIAL_FORMATS;
-    private static final Set<BarcodeFormat> ONE_D_FORMATS;
-    static final Set<BarcodeFormat> QR_CODE_FORMATS = EnumSet.of(BarcodeFormat.QR_CODE);
-    static final Set<BarcodeFormat> DATA_MATRIX_FORMATS = EnumSet.of(BarcodeFormat.DATA_MATRIX);
-    static final Set<BarcodeFormat> AZTEC_FORMATS = EnumSet.of(BarcodeFormat.AZTEC);
-    static final Set<BarcodeFormat> PDF417_FORMATS = EnumSet.of(BarcodeFormat.PDF_417);
-    static {
-        PRODUCT_FORMATS = EnumSet.of(BarcodeFormat.UPC_A, BarcodeFormat.UPC_E, BarcodeFormat.EAN_13, BarcodeFormat.EAN_8, BarcodeFormat.RSS_14, BarcodeFormat.RSS_EXPANDED);
-        INDUSTRIAL_FORMATS = EnumSet.of(BarcodeFormat.CODE_39, BarcodeFormat.CODE_93, BarcodeFormat.CODE_128, BarcodeFormat.ITF, BarcodeFormat.CODABAR);
-        ONE_D_FORMATS = EnumSet.copyOf(PRODUCT_FORMATS);
-        ONE_D_FORMATS.addAll(INDUSTRIAL_FORMATS);
-    }
-
-    private static final Map<String, Set<BarcodeFormat>> FORMATS_FOR_MODE;
-
-    static {
-        FORMATS_FOR_MODE = new HashMap<String, Set<BarcodeFormat>>();
-        FORMATS_FOR_MODE.put(Intents.Scan.ONE_D_MODE, ONE_D_FORMATS);
-        FORMATS_FOR_MODE.put(Intents.Scan.PRODUCT_MODE, PRODUCT_FORMATS);
-        FORMATS_FOR_MODE.put(Intents.Scan.QR_CODE_MODE, QR_CODE_FORMATS);
-        FORMATS_FOR_MODE.put(Intents.Scan.DATA_MATRIX_MODE, DATA_MATRIX_FORMATS);
-        FORMATS_FOR_MODE.put(Intents.Scan.AZTEC_MODE, AZTEC_FORMATS);
-        FORMATS_FOR_MODE.put(Intents.Scan.PDF417_MODE, PDF417_FORMATS);
-    }
-
-}
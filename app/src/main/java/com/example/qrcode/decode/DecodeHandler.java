@@ -1,112 +1,239 @@
 package com.example.qrcode.decode;
 
+import android.annotation.TargetApi;
+import android.content.Context;
 import android.graphics.Bitmap;
+import android.os.Build;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
 import android.os.Message;
+import android.os.PowerManager;
 import android.util.Log;
 
 import com.example.qrcode.R;
 import com.example.qrcode.android.CaptureActivity;
-import com.google.zxing.BinaryBitmap;
+import com.example.qrcode.android.ScannerSession;
+import com.example.qrcode.camera.CameraManager;
+import com.example.qrcode.camera.PreviewSource;
 import com.google.zxing.DecodeHintType;
-import com.google.zxing.MultiFormatReader;
-import com.google.zxing.PlanarYUVLuminanceSource;
-import com.google.zxing.ReaderException;
+import com.google.zxing.LuminanceSource;
 import com.google.zxing.Result;
-import com.google.zxing.common.HybridBinarizer;
 
-import java.io.ByteArrayOutputStream;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
-//解码处理
-public final class DecodeHandler extends Handler {
+//解码处理：在DecodeThread中接收预览帧，交给与Android无关的解码线程池，再把结果转成消息发回CaptureActivityHandler
+public final class DecodeHandler extends Handler implements DecodeWorkerPool.Callback {
 
     private static final String TAG = DecodeHandler.class.getSimpleName();
 
     private final CaptureActivity activity;
-    private final MultiFormatReader multiFormatReader;//多格式阅读
+    private final CameraManager cameraManager;//取景框对应的解码区域
+    private final PreviewSource previewSource;//归还帧缓冲区
+    private final DecodeWorkerPool workerPool;//解码线程池，每个线程有自己的MultiFormatReader
+    private final ScanMetrics metrics = ScanMetrics.getInstance();
+    private final boolean thumbnail;//解码成功后是否生成缩略图，连续扫描和一帧多码不生成
+    private final boolean multiple;//一帧多码模式
+    private final ResultDeduplicator deduplicator;//重复结果在线程池中就被丢弃，不会走到界面和缩略图，可为null
+    private final FrameScheduler scheduler = new FrameScheduler();//按画面变化和解码耗时决定哪些帧送去解码
+    private final RoiTracker roiTracker;//解码窗口跟踪，可为null
+    private final ThermalWatcher thermalWatcher;//Android 10以上监听过热状态，否则为null
+    private final AtomicInteger successes = new AtomicInteger();//单码结果的序号，缩略图带上同一个序号
     private boolean running = true;
 
-    DecodeHandler(CaptureActivity activity, Map<DecodeHintType, Object> hints) {
-        multiFormatReader = new MultiFormatReader();
-        multiFormatReader.setHints(hints);
+    DecodeHandler(CaptureActivity activity, Map<DecodeHintType, Object> hints, int poolSize, boolean thumbnail, boolean multiple, boolean continuous, RoiTracker roiTracker) {
         this.activity = activity;
+        //连续扫描交付结果后马上继续，不会等缩略图
+        this.thumbnail = thumbnail && !continuous && !multiple;
+        this.multiple = multiple;
+        this.roiTracker = roiTracker;
+        cameraManager = activity.getCameraManager();
+        previewSource = cameraManager.getPreviewSource();
+        //一帧多码和连续扫描都会持续取帧，重复读到的条码需要过滤
+        deduplicator = multiple || continuous ? new ResultDeduplicator() : null;
+        //优先使用会话中停放的线程池，阅读器和缓冲区都已就绪
+        workerPool = ScannerSession.getInstance().acquireWorkers(hints, poolSize);
+        workerPool.attach(roiTracker != null ? roiTracker : cameraManager, this, multiple, deduplicator);
+        thermalWatcher = Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q ? new ThermalWatcher(activity, scheduler) : null;
     }
 
     @Override
     public void handleMessage(Message message) {
         if (!running) {
+            if (message.what == R.id.decode) {
+                releaseFrame(message.obj);
+            }
             return;
         }
         switch (message.what) {
             case R.id.decode:
-                decode((byte[]) message.obj, message.arg1, message.arg2);
+                long now = System.nanoTime();
+                long arrival = metrics.takeDispatchedFrameArrival(now);
+                //Camera1的帧是byte[]，Camera2的帧是图像的亮度平面
+                Object frame = message.obj;
+                DecodeRegion region = cameraManager.regionFor(message.arg1, message.arg2);
+                FrameScheduler.Decision decision = frame instanceof LumaBuffer
+                        ? scheduler.admit((LumaBuffer) frame, region, now)
+                        : scheduler.admit((byte[]) frame, message.arg1, message.arg2, region, now);
+                if (decision != FrameScheduler.Decision.DECODE) {
+                    //不解码的帧马上归还，退避时推迟下一帧的请求
+                    releaseFrame(frame);
+                    long delay = decision == FrameScheduler.Decision.BACK_OFF ? scheduler.backOffDelayMillis(now) : 0;
+                    requestNextFrame(delay);
+                    break;
+                }
+                if (frame instanceof LumaBuffer) {
+                    workerPool.submit((LumaBuffer) frame, arrival);
+                } else {
+                    workerPool.submit((byte[]) frame, message.arg1, message.arg2, arrival);
+                }
+                //还有空闲的解码线程，马上要下一帧
+                if (workerPool.hasIdleWorker()) {
+                    Handler handler = activity.getHandler();
+                    if (handler != null) {
+                        Message.obtain(handler, R.id.decode_dispatched).sendToTarget();
+                    }
+                }
                 break;
             case R.id.quit:
                 running = false;
+                //正在解码的帧的结果作废，线程停放到下一次扫码
+                ScannerSession.getInstance().releaseWorkers(workerPool);
+                if (thermalWatcher != null) {
+                    thermalWatcher.stop();
+                }
+                Log.d(TAG, "Skipped " + scheduler.getSkippedFrames() + " unchanged frames, backed off " + scheduler.getBackedOffFrames() + " frames");
+                if (roiTracker != null) {
+                    Log.d(TAG, "Decoded " + roiTracker.getTrackedFrames() + " frames in a tracked window");
+                }
+                if (deduplicator != null) {
+                    Log.d(TAG, "Suppressed " + deduplicator.getSuppressedCount() + " duplicate results");
+                }
                 Looper.myLooper().quit();
                 break;
         }
     }
 
-    //解码主要内容
-    private void decode(byte[] data, int width, int height) { //data YUV预览框；width 预览帧的宽度；height 预览帧的高度
-        long start = System.currentTimeMillis();
-        Result rawResult = null;
-
-        byte[] rotatedData = new byte[data.length];
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) rotatedData[x * height + height - y - 1] = data[x + y * width];
+    //解码成功，在解码线程中执行
+    @Override
+    public void onDecodeSucceeded(DecodeResult result) {
+        long found = System.nanoTime();
+        scheduler.onDecoded(true, result.getTotalNanos());
+        if (roiTracker != null) {
+            roiTracker.onDecoded(true);
         }
-
-        int tmp = width;
-        width = height;
-        height = tmp;
-        data = rotatedData;
-
-        PlanarYUVLuminanceSource source = activity.getCameraManager().buildLuminanceSource(data, width, height);
-        if (source != null) {
-            BinaryBitmap bitmap = new BinaryBitmap(new HybridBinarizer(source));
-            try {
-                rawResult = multiFormatReader.decodeWithState(bitmap);
-            } catch (ReaderException re) {
-            } finally {
-                multiFormatReader.reset();
+        Log.d(TAG, "Found barcode in " + TimeUnit.NANOSECONDS.toMillis(result.getTotalNanos()) + " ms");
+        Handler handler = activity.getHandler();
+        if (handler == null) {
+            return;
+        }
+        //一帧多码只发送新出现的条码，不生成缩略图
+        if (multiple) {
+            Result[] results = result.getResults();
+            Message message = Message.obtain(handler, R.id.decode_multiple_succeeded, results);
+            Bundle bundle = new Bundle();
+            bundle.putLong(DecodeThread.BARCODE_FOUND_NANOS, found);
+            message.setData(bundle);
+            message.sendToTarget();
+            return;
+        }
+        int sequence = successes.incrementAndGet();
+        Message message = Message.obtain(handler, R.id.decode_succeeded, result.getResult());
+        message.arg1 = sequence;
+        Bundle bundle = new Bundle();
+        bundle.putLong(DecodeThread.BARCODE_FOUND_NANOS, found);
+        message.setData(bundle);
+        message.sendToTarget();
+
+        //结果文本先发出，缩略图随后单独发送，不占用交付的关键路径；
+        //预览缓冲区在本方法返回后才归还，所以这里还能读取source
+        if (thumbnail) {
+            long start = System.nanoTime();
+            Message thumbnailMessage = Message.obtain(handler, R.id.decode_thumbnail);
+            thumbnailMessage.arg1 = sequence;
+            LuminanceSource source = result.getSource();
+            if (source instanceof RotatedYUVLuminanceSource) {
+                RotatedYUVLuminanceSource yuv = (RotatedYUVLuminanceSource) source;
+                bundleThumbnail(yuv.renderThumbnail(), yuv.getThumbnailWidth(), yuv.getThumbnailHeight(), yuv.getWidth(), thumbnailMessage);
+            } else if (source instanceof ByteBufferLuminanceSource) {
+                ByteBufferLuminanceSource luma = (ByteBufferLuminanceSource) source;
+                bundleThumbnail(luma.renderThumbnail(), luma.getThumbnailWidth(), luma.getThumbnailHeight(), luma.getWidth(), thumbnailMessage);
             }
+            thumbnailMessage.sendToTarget();
+            metrics.record(ScanMetrics.Stage.THUMBNAIL, System.nanoTime() - start);
         }
+    }
+
+    //解码失败，在解码线程中执行
+    @Override
+    public void onDecodeFailed(long decodeNanos) {
+        scheduler.onDecoded(false, decodeNanos);
+        if (roiTracker != null) {
+            roiTracker.onDecoded(false);
+        }
+        requestNextFrame(0);
+    }
 
+    //通过decode_failed让CaptureActivityHandler请求下一帧
+    private void requestNextFrame(long delayMillis) {
         Handler handler = activity.getHandler();
-        if (rawResult != null) {
-            long end = System.currentTimeMillis();
-            Log.d(TAG, "Found barcode in " + (end - start) + " ms");
-            if (handler != null) {
-                Message message = Message.obtain(handler, R.id.decode_succeeded, rawResult);
-                Bundle bundle = new Bundle();
-                bundleThumbnail(source, bundle);
-                message.setData(bundle);
-                message.sendToTarget();
-            }
+        if (handler != null) {
+            handler.sendMessageDelayed(Message.obtain(handler, R.id.decode_failed), delayMillis);
+        }
+    }
+
+    //归还预览缓冲区
+    @Override
+    public void onFrameReleased(byte[] data) {
+        previewSource.releasePreviewBuffer(data);
+    }
+
+    //归还Camera2的图像
+    @Override
+    public void onFrameReleased(LumaBuffer frame) {
+        previewSource.releasePreviewBuffer(frame);
+    }
+
+    private void releaseFrame(Object frame) {
+        if (frame instanceof LumaBuffer) {
+            onFrameReleased((LumaBuffer) frame);
         } else {
-            if (handler != null) {
-                Message message = Message.obtain(handler, R.id.decode_failed);
-                message.sendToTarget();
-            }
+            onFrameReleased((byte[]) frame);
         }
     }
 
-    //捆绑缩略图
-    private static void bundleThumbnail(PlanarYUVLuminanceSource source, Bundle bundle) {
-        int[] pixels = source.renderThumbnail();
-        int width = source.getThumbnailWidth();
-        int height = source.getThumbnailHeight();
-
-        Bitmap bitmap = Bitmap.createBitmap(pixels, 0, width, width, height, Bitmap.Config.ARGB_8888);
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
-        bitmap.compress(Bitmap.CompressFormat.JPEG, 50, out);
-        bundle.putByteArray(DecodeThread.BARCODE_BITMAP, out.toByteArray());
-        bundle.putFloat(DecodeThread.BARCODE_SCALED_FACTOR, (float) width / source.getWidth());
+    //捆绑缩略图：像素直接生成Bitmap交给UI线程，不再经过JPEG压缩、解压和复制；sourceWidth是取景框的宽度
+    private static void bundleThumbnail(int[] pixels, int width, int height, int sourceWidth, Message message) {
+        message.obj = Bitmap.createBitmap(pixels, 0, width, width, height, Bitmap.Config.ARGB_8888);
+        Bundle bundle = new Bundle();
+        bundle.putFloat(DecodeThread.BARCODE_SCALED_FACTOR, (float) width / sourceWidth);
+        message.setData(bundle);
+    }
+
+    //系统过热状态达到MODERATE时让调度器退避
+    @TargetApi(Build.VERSION_CODES.Q)
+    private static final class ThermalWatcher implements PowerManager.OnThermalStatusChangedListener {
+
+        private final PowerManager powerManager;
+        private final FrameScheduler scheduler;
+
+        ThermalWatcher(Context context, FrameScheduler scheduler) {
+            this.scheduler = scheduler;
+            powerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+            scheduler.setThermalThrottled(powerManager.getCurrentThermalStatus() >= PowerManager.THERMAL_STATUS_MODERATE);
+            powerManager.addThermalStatusListener(this);
+        }
+
+        @Override
+        public void onThermalStatusChanged(int status) {
+            scheduler.setThermalThrottled(status >= PowerManager.THERMAL_STATUS_MODERATE);
+        }
+
+        void stop() {
+            powerManager.removeThermalStatusListener(this);
+        }
     }
 
 }
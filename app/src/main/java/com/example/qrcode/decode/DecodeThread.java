@@ -1,5 +1,6 @@
 package com.example.qrcode.decode;
 
+import android.content.Context;
 import android.content.SharedPreferences;
 import android.os.Handler;
 import android.os.Looper;
@@ -8,39 +9,55 @@ import android.util.Log;
 
 import com.example.qrcode.android.CaptureActivity;
 import com.example.qrcode.android.PreferencesActivity;
+import com.example.qrcode.android.ScannerSession;
 import com.google.zxing.BarcodeFormat;
 import com.google.zxing.DecodeHintType;
 import com.google.zxing.ResultPointCallback;
 
 import java.util.Collection;
-import java.util.EnumMap;
 import java.util.EnumSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 
-//解码线程
+//解码线程：接收预览帧并分发给解码线程池
 public final class DecodeThread extends Thread {
 
-    public static final String BARCODE_BITMAP = "barcode_bitmap";//条形码位图
     public static final String BARCODE_SCALED_FACTOR = "barcode_scaled_factor";//条形码缩放系数
+    public static final String BARCODE_FOUND_NANOS = "barcode_found_nanos";//解码成功的时间，用来统计交付耗时
 
     private final CaptureActivity activity;
     private final Map<DecodeHintType, Object> hints;
+    private final int poolSize;//解码线程池大小
+    private final boolean thumbnail;//解码成功后是否生成缩略图
+    private final boolean multiple;//一帧多码模式
+    private final boolean continuous;//连续扫描模式
+    private final RoiTracker roiTracker;//根据候选点缩小解码窗口，一帧多码模式下为null
     private Handler handler;
     private final CountDownLatch handlerInitLatch;//等其他线程各自结束后再执行
 
-    public DecodeThread(CaptureActivity activity, Collection<BarcodeFormat> decodeFormats, Map<DecodeHintType, ?> baseHints, String characterSet, ResultPointCallback resultPointCallback) {
+    public DecodeThread(CaptureActivity activity, Collection<BarcodeFormat> decodeFormats, Map<DecodeHintType, ?> baseHints, String characterSet, boolean thumbnail, boolean multiple, boolean continuous, ResultPointCallback resultPointCallback) {
         this.activity = activity;
+        this.thumbnail = thumbnail;
+        this.multiple = multiple;
+        this.continuous = continuous;
         handlerInitLatch = new CountDownLatch(1);
 
-        hints = new EnumMap<DecodeHintType, Object>(DecodeHintType.class);
-        if (baseHints != null) {
-            hints.putAll(baseHints);
-        }
-
         //当线程正在运行时，参数不能改变，所以在这里取一次
+        hints = createHints(activity, decodeFormats, baseHints, characterSet);
+        //一帧多码要看整个取景框，而且分块解码时候选点的坐标无法换算，不跟踪
+        roiTracker = multiple ? null : new RoiTracker(activity.getCameraManager(), resultPointCallback);
+        ScannerSession.getInstance().getPointRelay().setTarget(roiTracker != null ? roiTracker : resultPointCallback);
+        Log.i("DecodeThread", "Hints: " + hints);
+
+        poolSize = poolSize(activity);
+        Log.i("DecodeThread", "Decode workers: " + poolSize);
+    }
+
+    //解码提示：decodeFormats为空时按设置选择格式；候选点回调是会话中的转发器，停放的解码线程池可以跨扫码复用
+    public static Map<DecodeHintType, Object> createHints(Context context, Collection<BarcodeFormat> decodeFormats, Map<DecodeHintType, ?> baseHints, String characterSet) {
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
         if (decodeFormats == null || decodeFormats.isEmpty()) {
-            SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(activity);
             decodeFormats = EnumSet.noneOf(BarcodeFormat.class);
             if (prefs.getBoolean(PreferencesActivity.KEY_DECODE_1D_PRODUCT, true)) {
                 decodeFormats.addAll(DecodeFormatManager.PRODUCT_FORMATS);
@@ -61,13 +78,36 @@ public final class DecodeThread extends Thread {
                 decodeFormats.addAll(DecodeFormatManager.PDF417_FORMATS);
             }
         }
-        hints.put(DecodeHintType.POSSIBLE_FORMATS, decodeFormats);
+        Map<DecodeHintType, Object> hints = DecodeHints.create(decodeFormats, baseHints, characterSet);
+        DecodeTiers tiers = createTiers(prefs);
+        if (tiers != null) {
+            DecodeTiers.put(hints, tiers);
+        }
+        hints.put(DecodeHintType.NEED_RESULT_POINT_CALLBACK, ScannerSession.getInstance().getPointRelay());
+        return hints;
+    }
+
+    //解码线程数，设置为0时按CPU核数自动选择
+    public static int poolSize(Context context) {
+        int threads = PreferenceManager.getDefaultSharedPreferences(context).getInt(PreferencesActivity.KEY_DECODE_THREADS, 0);
+        return threads > 0 ? threads : DecodeWorkerPool.defaultPoolSize();
+    }
 
-        if (characterSet != null) {
-            hints.put(DecodeHintType.CHARACTER_SET, characterSet);
+    //分级解码策略，两种重试都关掉时返回null
+    private static DecodeTiers createTiers(SharedPreferences prefs) {
+        Set<DecodeTiers.Tier> enabled = EnumSet.noneOf(DecodeTiers.Tier.class);
+        if (prefs.getBoolean(PreferencesActivity.KEY_DECODE_TRY_HARDER, true)) {
+            enabled.add(DecodeTiers.Tier.TRY_HARDER);
         }
-        hints.put(DecodeHintType.NEED_RESULT_POINT_CALLBACK, resultPointCallback);
-        Log.i("DecodeThread", "Hints: " + hints);
+        if (prefs.getBoolean(PreferencesActivity.KEY_DECODE_INVERTED, true)) {
+            enabled.add(DecodeTiers.Tier.INVERTED);
+        }
+        if (enabled.isEmpty()) {
+            return null;
+        }
+        int interval = prefs.getInt(PreferencesActivity.KEY_DECODE_RETRY_INTERVAL, 0);
+        int budget = prefs.getInt(PreferencesActivity.KEY_DECODE_RETRY_BUDGET, 0);
+        return new DecodeTiers(enabled, interval > 0 ? interval : DecodeTiers.DEFAULT_INTERVAL, budget > 0 ? budget : DecodeTiers.DEFAULT_BUDGET_MILLIS);
     }
 
     public Handler getHandler() {
@@ -81,7 +121,7 @@ public final class DecodeThread extends Thread {
     @Override
     public void run() {
         Looper.prepare();
-        handler = new DecodeHandler(activity, hints);
+        handler = new DecodeHandler(activity, hints, poolSize, thumbnail, multiple, continuous, roiTracker);
         handlerInitLatch.countDown();
         Looper.loop();
     }
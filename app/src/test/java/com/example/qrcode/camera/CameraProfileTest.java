@@ -0,0 +1,61 @@
+package com.example.qrcode.camera;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CameraProfileTest {
+
+    private static final String FINGERPRINT = "brand/product/device:11/RQ3A.210805.001/7474174:user/release-keys";
+
+    @Test
+    public void decode_roundTripsEncodedProfile() {
+        CameraProfile profile = CameraProfile.decode(new CameraProfile(FINGERPRINT, 2340, 1080, true, false, 1920, 1080, "continuous-video").encode());
+
+        assertEquals(FINGERPRINT, profile.fingerprint);
+        assertEquals(2340, profile.screenWidth);
+        assertEquals(1080, profile.screenHeight);
+        assertTrue(profile.autoFocus);
+        assertFalse(profile.disableContinuousFocus);
+        assertEquals(1920, profile.previewWidth);
+        assertEquals(1080, profile.previewHeight);
+        assertEquals("continuous-video", profile.focusMode);
+    }
+
+    @Test
+    public void decode_keepsMissingFocusMode() {
+        CameraProfile profile = CameraProfile.decode(new CameraProfile(FINGERPRINT, 1280, 720, false, true, 1280, 720, null).encode());
+
+        assertNull(profile.focusMode);
+        assertFalse(profile.autoFocus);
+        assertTrue(profile.disableContinuousFocus);
+    }
+
+    @Test
+    public void decode_rejectsMalformedInput() {
+        assertNull(CameraProfile.decode(null));
+        assertNull(CameraProfile.decode(""));
+        assertNull(CameraProfile.decode("1|" + FINGERPRINT + "|1280|720|1280|720|auto|0"));
+        assertNull(CameraProfile.decode("2|" + FINGERPRINT + "|1280|720|1|1|wide|720|auto"));
+        assertNull(CameraProfile.decode("2|" + FINGERPRINT + "|1280|720|1|1|0|720|auto"));
+        assertNull(CameraProfile.decode("2|" + FINGERPRINT + "|1280|720|1|1|1280|720"));
+    }
+
+    @Test
+    public void matches_requiresSameFingerprintAndScreen() {
+        CameraProfile profile = new CameraProfile(FINGERPRINT, 2340, 1080, true, true, 1920, 1080, "auto");
+
+        assertTrue(profile.matches(FINGERPRINT, 2340, 1080, true, true));
+        assertFalse(profile.matches(FINGERPRINT.replace(":11/", ":12/"), 2340, 1080, true, true));
+        assertFalse(profile.matches(FINGERPRINT, 1080, 2340, true, true));
+    }
+
+    @Test
+    public void matches_requiresSameFocusSettings() {
+        CameraProfile profile = new CameraProfile(FINGERPRINT, 2340, 1080, true, true, 1920, 1080, "auto");
+
+        assertFalse(profile.matches(FINGERPRINT, 2340, 1080, false, true));
+        assertFalse(profile.matches(FINGERPRINT, 2340, 1080, true, false));
+    }
+
+}
@@ -0,0 +1,77 @@
+package com.example.qrcode.camera;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CameraSelectionTest {
+
+    @Test
+    public void choosePreviewSize_prefersExactScreenSize() {
+        List<int[]> sizes = sizes(1920, 1080, 1280, 720, 2560, 1440, 640, 480);
+
+        assertArrayEquals(new int[]{1280, 720}, CameraSelection.choosePreviewSize(sizes, 1280, 720));
+    }
+
+    @Test
+    public void choosePreviewSize_picksLargestWithScreenAspect() {
+        List<int[]> sizes = sizes(640, 480, 1920, 1080, 4000, 3000, 1280, 720);
+
+        assertArrayEquals(new int[]{1920, 1080}, CameraSelection.choosePreviewSize(sizes, 2000, 1125));
+    }
+
+    @Test
+    public void choosePreviewSize_acceptsPortraitSizes() {
+        List<int[]> sizes = sizes(720, 1280, 480, 640);
+
+        assertArrayEquals(new int[]{720, 1280}, CameraSelection.choosePreviewSize(sizes, 1280, 720));
+    }
+
+    @Test
+    public void choosePreviewSize_skipsTinySizes() {
+        List<int[]> sizes = sizes(320, 240, 176, 144);
+
+        assertNull(CameraSelection.choosePreviewSize(sizes, 320, 240));
+    }
+
+    @Test
+    public void choosePreviewSize_returnsNullWithoutMatchingAspect() {
+        List<int[]> sizes = sizes(1024, 1024, 800, 800);
+
+        assertNull(CameraSelection.choosePreviewSize(sizes, 1920, 1080));
+        assertNull(CameraSelection.choosePreviewSize(Collections.<int[]>emptyList(), 1920, 1080));
+    }
+
+    @Test
+    public void chooseFocusMode_prefersContinuousVideo() {
+        List<String> modes = Arrays.asList("auto", "continuous-video", "macro");
+
+        assertEquals("continuous-video", CameraSelection.chooseFocusMode(modes, true, false, false));
+        assertEquals("auto", CameraSelection.chooseFocusMode(modes, true, true, false));
+        assertEquals("auto", CameraSelection.chooseFocusMode(modes, true, false, true));
+    }
+
+    @Test
+    public void chooseFocusMode_fallsBackToMacroOutsideSafeMode() {
+        List<String> modes = Arrays.asList("fixed", "macro", "edof");
+
+        assertEquals("macro", CameraSelection.chooseFocusMode(modes, true, false, false));
+        assertEquals("macro", CameraSelection.chooseFocusMode(modes, false, false, false));
+        assertNull(CameraSelection.chooseFocusMode(modes, true, false, true));
+        assertNull(CameraSelection.chooseFocusMode(null, true, false, false));
+    }
+
+    private static List<int[]> sizes(int... dimensions) {
+        List<int[]> sizes = new ArrayList<int[]>();
+        for (int i = 0; i < dimensions.length; i += 2) {
+            sizes.add(new int[]{dimensions[i], dimensions[i + 1]});
+        }
+        return sizes;
+    }
+
+}
@@ -0,0 +1,226 @@
+package com.example.qrcode.camera;
+
+import com.example.qrcode.decode.LumaBuffer;
+import com.example.qrcode.decode.ScanMetrics;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class LatestImagePumpTest {
+
+    private static final int WIDTH = 8;
+    private static final int HEIGHT = 4;
+
+    @Test
+    public void onImageAvailable_dropsImagesNobodyRequested() {
+        FakeSource source = new FakeSource();
+        LatestImagePump pump = new LatestImagePump(source, 2, WIDTH, HEIGHT, new ScanMetrics());
+        FakeImage image = source.add(FakeImage.filled(1, WIDTH, 1));
+
+        pump.onImageAvailable();
+
+        assertTrue(image.closed);
+        assertEquals(1, pump.getDroppedImages());
+    }
+
+    @Test
+    public void onImageAvailable_deliversOneFramePerRequest() {
+        FakeSource source = new FakeSource();
+        LatestImagePump pump = new LatestImagePump(source, 2, WIDTH, HEIGHT, new ScanMetrics());
+        RecordingSink sink = new RecordingSink();
+        pump.request(sink);
+        FakeImage first = source.add(FakeImage.filled(7, WIDTH, 1));
+        pump.onImageAvailable();
+        FakeImage second = source.add(FakeImage.filled(9, WIDTH, 1));
+        pump.onImageAvailable();
+
+        assertEquals(1, sink.frames.size());
+        assertSame(first.buffer, sink.frames.get(0).getBuffer());
+        assertFalse(first.closed);
+        assertTrue(second.closed);
+        assertEquals(1, pump.getDroppedImages());
+    }
+
+    @Test
+    public void onImageAvailable_handsOverPlaneWithStridesWithoutCopying() {
+        FakeSource source = new FakeSource();
+        LatestImagePump pump = new LatestImagePump(source, 1, WIDTH, HEIGHT, new ScanMetrics());
+        RecordingSink sink = new RecordingSink();
+        pump.request(sink);
+        //每行后面有4字节填充，像素之间隔一个字节
+        int pixelStride = 2;
+        int rowStride = WIDTH * pixelStride + 4;
+        FakeImage image = source.add(new FakeImage(ByteBuffer.allocateDirect(rowStride * HEIGHT), rowStride, pixelStride));
+
+        pump.onImageAvailable();
+
+        LumaBuffer frame = sink.frames.get(0);
+        assertSame(image.buffer, frame.getBuffer());
+        assertEquals(rowStride, frame.getRowStride());
+        assertEquals(pixelStride, frame.getPixelStride());
+        assertFalse(image.closed);
+
+        pump.release(frame);
+
+        assertTrue(image.closed);
+        assertEquals(0, pump.getInFlight());
+    }
+
+    @Test
+    public void onImageAvailable_dropsWhenAllImagesAreDecoding() {
+        FakeSource source = new FakeSource();
+        LatestImagePump pump = new LatestImagePump(source, 1, WIDTH, HEIGHT, new ScanMetrics());
+        RecordingSink sink = new RecordingSink();
+        pump.request(sink);
+        FakeImage decoding = source.add(FakeImage.filled(1, WIDTH, 1));
+        pump.onImageAvailable();
+
+        pump.request(sink);
+        FakeImage busy = source.add(FakeImage.filled(2, WIDTH, 1));
+        pump.onImageAvailable();
+        assertTrue(busy.closed);
+        assertEquals(1, sink.frames.size());
+
+        pump.release(sink.frames.get(0));
+        assertTrue(decoding.closed);
+        FakeImage next = source.add(FakeImage.filled(3, WIDTH, 1));
+        pump.onImageAvailable();
+
+        assertEquals(2, sink.frames.size());
+        assertSame(next.buffer, sink.frames.get(1).getBuffer());
+    }
+
+    @Test
+    public void runWhenAllReleased_waitsForDecodingImages() {
+        FakeSource source = new FakeSource();
+        LatestImagePump pump = new LatestImagePump(source, 2, WIDTH, HEIGHT, new ScanMetrics());
+        RecordingSink sink = new RecordingSink();
+        pump.request(sink);
+        source.add(FakeImage.filled(1, WIDTH, 1));
+        pump.onImageAvailable();
+        final int[] runs = new int[1];
+        Runnable action = new Runnable() {
+            @Override
+            public void run() {
+                runs[0]++;
+            }
+        };
+
+        pump.runWhenAllReleased(action);
+        assertEquals(0, runs[0]);
+        pump.release(sink.frames.get(0));
+        assertEquals(1, runs[0]);
+
+        pump.runWhenAllReleased(action);
+        assertEquals(2, runs[0]);
+    }
+
+    @Test
+    public void reset_cancelsPendingRequest() {
+        FakeSource source = new FakeSource();
+        LatestImagePump pump = new LatestImagePump(source, 2, WIDTH, HEIGHT, new ScanMetrics());
+        RecordingSink sink = new RecordingSink();
+        pump.request(sink);
+        pump.reset();
+        FakeImage image = source.add(FakeImage.filled(1, WIDTH, 1));
+
+        pump.onImageAvailable();
+
+        assertEquals(0, sink.frames.size());
+        assertTrue(image.closed);
+    }
+
+    @Test
+    public void onImageAvailable_ignoresEmptyReader() {
+        LatestImagePump pump = new LatestImagePump(new FakeSource(), 2, WIDTH, HEIGHT, new ScanMetrics());
+        pump.request(new RecordingSink());
+
+        pump.onImageAvailable();
+
+        assertEquals(0, pump.getDroppedImages());
+    }
+
+    //按顺序返回放进去的图像，模拟ImageReader
+    private static final class FakeSource implements LatestImagePump.ImageSource {
+        private final ArrayDeque<FakeImage> images = new ArrayDeque<FakeImage>();
+
+        FakeImage add(FakeImage image) {
+            images.add(image);
+            return image;
+        }
+
+        @Override
+        public LatestImagePump.LumaImage acquireLatestImage() {
+            return images.poll();
+        }
+    }
+
+    private static final class FakeImage implements LatestImagePump.LumaImage {
+        final ByteBuffer buffer;
+        private final int rowStride;
+        private final int pixelStride;
+        boolean closed;
+
+        FakeImage(ByteBuffer buffer, int rowStride, int pixelStride) {
+            this.buffer = buffer;
+            this.rowStride = rowStride;
+            this.pixelStride = pixelStride;
+        }
+
+        //亮度全为value的图像
+        static FakeImage filled(int value, int rowStride, int pixelStride) {
+            byte[] data = new byte[rowStride * HEIGHT];
+            Arrays.fill(data, (byte) value);
+            return new FakeImage(ByteBuffer.wrap(data), rowStride, pixelStride);
+        }
+
+        @Override
+        public int getWidth() {
+            return WIDTH;
+        }
+
+        @Override
+        public int getHeight() {
+            return HEIGHT;
+        }
+
+        @Override
+        public ByteBuffer getLumaBuffer() {
+            return buffer;
+        }
+
+        @Override
+        public int getRowStride() {
+            return rowStride;
+        }
+
+        @Override
+        public int getPixelStride() {
+            return pixelStride;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    private static final class RecordingSink implements LatestImagePump.FrameSink {
+        final List<LumaBuffer> frames = new ArrayList<LumaBuffer>();
+
+        @Override
+        public void onFrame(LumaBuffer frame) {
+            assertEquals(WIDTH, frame.getWidth());
+            assertEquals(HEIGHT, frame.getHeight());
+            frames.add(frame);
+        }
+    }
+
+}
@@ -0,0 +1,87 @@
+package com.example.qrcode.camera;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class PreviewBufferRingTest {
+
+    @Test
+    public void constructor_sizesBuffersForNv21() {
+        PreviewBufferRing ring = new PreviewBufferRing(3, 640, 480);
+        assertEquals(3, ring.size());
+        assertEquals(640 * 480 * 3 / 2, ring.pollFree().length);
+        assertTrue(ring.matches(640, 480));
+        assertFalse(ring.matches(480, 640));
+    }
+
+    @Test
+    public void pollFree_handsOutEachBufferOnce() {
+        PreviewBufferRing ring = new PreviewBufferRing(3, 16, 16);
+        Set<byte[]> buffers = new HashSet<byte[]>();
+        byte[] buffer;
+        while ((buffer = ring.pollFree()) != null) {
+            assertTrue(buffers.add(buffer));
+        }
+        assertEquals(3, buffers.size());
+        assertEquals(3, ring.queuedCount());
+        assertEquals(0, ring.freeCount());
+    }
+
+    @Test
+    public void release_returnsDeliveredBufferToRing() {
+        PreviewBufferRing ring = new PreviewBufferRing(2, 16, 16);
+        byte[] first = ring.pollFree();
+        byte[] second = ring.pollFree();
+        assertTrue(ring.onFrameDelivered(first));
+        assertEquals(1, ring.inUseCount());
+        assertTrue(ring.release(first));
+        assertEquals(1, ring.freeCount());
+        assertSame(first, ring.pollFree());
+        assertNull(ring.pollFree());
+        assertNotNull(second);
+    }
+
+    @Test
+    public void release_ignoresForeignAndQueuedBuffers() {
+        PreviewBufferRing ring = new PreviewBufferRing(2, 16, 16);
+        byte[] queued = ring.pollFree();
+        assertFalse(ring.release(new byte[16 * 16 * 3 / 2]));
+        assertFalse(ring.release(queued));
+        assertFalse(ring.onFrameDelivered(new byte[16 * 16 * 3 / 2]));
+        assertEquals(1, ring.queuedCount());
+    }
+
+    @Test
+    public void release_isIdempotent() {
+        PreviewBufferRing ring = new PreviewBufferRing(1, 16, 16);
+        byte[] buffer = ring.pollFree();
+        ring.onFrameDelivered(buffer);
+        assertTrue(ring.release(buffer));
+        assertFalse(ring.release(buffer));
+        assertEquals(1, ring.freeCount());
+    }
+
+    @Test
+    public void reset_freesQueuedButKeepsInUseBuffers() {
+        PreviewBufferRing ring = new PreviewBufferRing(3, 16, 16);
+        byte[] inUse = ring.pollFree();
+        ring.pollFree();
+        ring.pollFree();
+        ring.onFrameDelivered(inUse);
+        ring.reset();
+        assertEquals(2, ring.freeCount());
+        assertEquals(1, ring.inUseCount());
+        assertTrue(ring.release(inUse));
+        assertEquals(3, ring.freeCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_rejectsEmptyRing() {
+        new PreviewBufferRing(0, 16, 16);
+    }
+
+}
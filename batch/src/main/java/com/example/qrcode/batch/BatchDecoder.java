@@ -0,0 +1,263 @@
+package com.example.qrcode.batch;
+
+import com.example.qrcode.decode.DecodeFormatManager;
+import com.example.qrcode.decode.DecodeHints;
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.MultiFormatReader;
+import com.google.zxing.ReaderException;
+import com.google.zxing.Result;
+import com.google.zxing.common.HybridBinarizer;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//批量解码静态图片：用所有核心并行解码，每个线程有自己的MultiFormatReader，每张图片输出一行JSON
+//静态图片之间没有关联，每张都尝试全部格式，不使用相机流水线中按命中统计跳过格式的ReaderDispatcher
+public final class BatchDecoder {
+
+    private static final String USAGE = "Usage: BatchDecoder [--threads N] [--formats QR_CODE,EAN_13,...] [--mode QR_CODE_MODE] [--charset UTF-8] [--try-harder] <dir|image|-> ...\n"
+            + "  '-' reads image paths from stdin, one per line";
+
+    private final int threads;
+    private final JsonLinesWriter writer;
+    private final ExecutorService executor;
+    private final Semaphore inFlight;//限制排队的图片数，目录很大时不会一次全部读进队列
+    private final ThreadLocal<MultiFormatReader> readers;
+    private final AtomicInteger images = new AtomicInteger();
+    private final AtomicInteger found = new AtomicInteger();
+    private final AtomicInteger errors = new AtomicInteger();
+    private final long startNanos;
+
+    public BatchDecoder(final Map<DecodeHintType, Object> hints, int threads, Writer out) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread count must be positive: " + threads);
+        }
+        this.threads = threads;
+        writer = new JsonLinesWriter(out);
+        inFlight = new Semaphore(threads * 4);
+        readers = new ThreadLocal<MultiFormatReader>() {
+            @Override
+            protected MultiFormatReader initialValue() {
+                MultiFormatReader reader = new MultiFormatReader();
+                reader.setHints(hints);
+                return reader;
+            }
+        };
+        final AtomicInteger threadIndex = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "BatchDecode-" + threadIndex.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        startNanos = System.nanoTime();
+    }
+
+    //目录递归展开，按文件名排序；不支持的文件直接跳过
+    public void submitPath(File path) throws InterruptedException {
+        if (path.isDirectory()) {
+            File[] children = path.listFiles();
+            if (children == null) {
+                return;
+            }
+            Arrays.sort(children);
+            for (File child : children) {
+                if (child.isDirectory() || ImageLoader.isSupported(child.getName())) {
+                    submitPath(child);
+                }
+            }
+        } else {
+            submit(path);
+        }
+    }
+
+    //提交一张图片，队列满时阻塞
+    public void submit(final File file) throws InterruptedException {
+        inFlight.acquire();
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    decode(file);
+                } finally {
+                    inFlight.release();
+                }
+            }
+        });
+    }
+
+    //等所有图片解码完，返回统计
+    public Summary finish() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        return new Summary(images.get(), found.get(), errors.get(), threads, System.nanoTime() - startNanos);
+    }
+
+    IOException getWriteError() {
+        return writer.getError();
+    }
+
+    private void decode(File file) {
+        images.incrementAndGet();
+        long start = System.nanoTime();
+        LuminanceSource source;
+        try {
+            source = ImageLoader.load(file);
+        } catch (IOException e) {
+            errors.incrementAndGet();
+            writer.writeError(file.getPath(), e.getMessage());
+            return;
+        } catch (RuntimeException e) {
+            errors.incrementAndGet();
+            writer.writeError(file.getPath(), e.toString());
+            return;
+        }
+        long loaded = System.nanoTime();
+        MultiFormatReader reader = readers.get();
+        Result result = null;
+        try {
+            result = reader.decodeWithState(new BinaryBitmap(new HybridBinarizer(source)));
+        } catch (ReaderException re) {
+        } finally {
+            reader.reset();
+        }
+        long decoded = System.nanoTime();
+        if (result != null) {
+            found.incrementAndGet();
+        }
+        writer.writeResult(file.getPath(), source.getWidth(), source.getHeight(), result, loaded - start, decoded - loaded);
+    }
+
+    //一次批量解码的统计
+    public static final class Summary {
+
+        private final int images;
+        private final int found;
+        private final int errors;
+        private final int threads;
+        private final long elapsedNanos;
+
+        Summary(int images, int found, int errors, int threads, long elapsedNanos) {
+            this.images = images;
+            this.found = found;
+            this.errors = errors;
+            this.threads = threads;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public int getImages() {
+            return images;
+        }
+
+        public int getFound() {
+            return found;
+        }
+
+        public int getErrors() {
+            return errors;
+        }
+
+        public double getImagesPerSecond() {
+            return elapsedNanos == 0 ? 0 : images * 1e9 / elapsedNanos;
+        }
+
+        //按实际能并行的核心数平均
+        public double getImagesPerSecondPerCore() {
+            return getImagesPerSecond() / Math.min(threads, Runtime.getRuntime().availableProcessors());
+        }
+
+        public String toJson() {
+            return String.format(Locale.ROOT, "{\"images\":%d,\"found\":%d,\"errors\":%d,\"threads\":%d,\"seconds\":%.3f,\"imagesPerSecond\":%.2f,\"imagesPerSecondPerCore\":%.2f}",
+                    images, found, errors, threads, elapsedNanos / 1e9, getImagesPerSecond(), getImagesPerSecondPerCore());
+        }
+    }
+
+    //结果逐行写到标准输出，最后的统计写到标准错误
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int threads = Runtime.getRuntime().availableProcessors();
+        String formats = null;
+        String mode = null;
+        String characterSet = null;
+        boolean tryHarder = false;
+        List<String> paths = new ArrayList<String>();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if ("--threads".equals(arg) && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+            } else if ("--formats".equals(arg) && i + 1 < args.length) {
+                formats = args[++i];
+            } else if ("--mode".equals(arg) && i + 1 < args.length) {
+                mode = args[++i];
+            } else if ("--charset".equals(arg) && i + 1 < args.length) {
+                characterSet = args[++i];
+            } else if ("--try-harder".equals(arg)) {
+                tryHarder = true;
+            } else if (arg.startsWith("--")) {
+                System.err.println(USAGE);
+                System.exit(2);
+                return;
+            } else {
+                paths.add(arg);
+            }
+        }
+        if (paths.isEmpty()) {
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
+        }
+
+        Map<DecodeHintType, Object> baseHints = new EnumMap<DecodeHintType, Object>(DecodeHintType.class);
+        if (tryHarder) {
+            baseHints.put(DecodeHintType.TRY_HARDER, Boolean.TRUE);
+        }
+        Set<BarcodeFormat> decodeFormats = DecodeFormatManager.parseDecodeFormats(formats, mode);
+        Map<DecodeHintType, Object> hints = DecodeHints.create(decodeFormats, baseHints, characterSet);
+
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out, "UTF-8"));
+        BatchDecoder decoder = new BatchDecoder(hints, threads, out);
+        for (String path : paths) {
+            if ("-".equals(path)) {
+                BufferedReader in = new BufferedReader(new InputStreamReader(System.in, "UTF-8"));
+                String line;
+                while ((line = in.readLine()) != null) {
+                    line = line.trim();
+                    if (!line.isEmpty()) {
+                        decoder.submitPath(new File(line));
+                    }
+                }
+            } else {
+                decoder.submitPath(new File(path));
+            }
+        }
+        Summary summary = decoder.finish();
+        out.flush();
+        System.err.println(summary.toJson());
+        if (decoder.getWriteError() != null) {
+            throw decoder.getWriteError();
+        }
+    }
+
+}
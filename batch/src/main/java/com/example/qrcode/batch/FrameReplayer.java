@@ -0,0 +1,191 @@
+package com.example.qrcode.batch;
+
+import com.example.qrcode.decode.DecodeEngine;
+import com.example.qrcode.decode.DecodeFormatManager;
+import com.example.qrcode.decode.DecodeHints;
+import com.example.qrcode.decode.DecodeRegion;
+import com.example.qrcode.decode.DecodeResult;
+import com.example.qrcode.decode.DecodeTiers;
+import com.example.qrcode.decode.FrameRecording;
+import com.example.qrcode.decode.LatencyHistogram;
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.DecodeHintType;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+//回放FrameRecorder录下的预览帧：在当前线程用一个DecodeEngine逐帧解码，统计解码速率和延迟
+//最快速度回放时每帧都解码，结果是确定的，适合比较改动前后的耗时和识别率；
+//按录制速度回放时，和相机一样只解码解码线程空闲时最新到达的帧，其余的帧计为丢弃，延迟从帧到达算起
+public final class FrameReplayer {
+
+    private static final String USAGE = "Usage: FrameReplayer [--realtime] [--formats QR_CODE,EAN_13,...] [--mode QR_CODE_MODE] [--charset UTF-8] [--no-retry] <recording" + FrameRecording.FILE_SUFFIX + "> ...";
+
+    private final DecodeEngine engine;
+
+    public FrameReplayer(Map<DecodeHintType, ?> hints) {
+        engine = new DecodeEngine(hints);
+    }
+
+    //realtime为true时按录制的时间戳等待帧到达，否则一帧接一帧地解码
+    public Report replay(FrameRecording recording, boolean realtime) throws InterruptedException {
+        int frameCount = recording.getFrameCount();
+        LatencyHistogram latency = new LatencyHistogram();
+        int decoded = 0;
+        int found = 0;
+        int dropped = 0;
+        long start = System.nanoTime();
+        long firstTimestamp = frameCount > 0 ? recording.getFrame(0).getTimestampNanos() : 0;
+        int index = 0;
+        while (index < frameCount) {
+            FrameRecording.Frame frame = recording.getFrame(index);
+            long arrival = start + frame.getTimestampNanos() - firstTimestamp;
+            if (realtime) {
+                long now = System.nanoTime();
+                if (arrival > now) {
+                    TimeUnit.NANOSECONDS.sleep(arrival - now);
+                } else {
+                    //解码期间到达的帧只留下最新的一帧
+                    int latest = index;
+                    while (latest + 1 < frameCount && start + recording.getFrame(latest + 1).getTimestampNanos() - firstTimestamp <= now) {
+                        latest++;
+                    }
+                    if (latest > index) {
+                        dropped += latest - index;
+                        index = latest;
+                        continue;
+                    }
+                }
+            }
+            long decodeStart = System.nanoTime();
+            DecodeRegion region = frame.getRegion() != null ? frame.getRegion() : DecodeRegion.fullFrame(0, frame.getWidth(), frame.getHeight());
+            DecodeResult result = engine.decode(frame.getData(), frame.getWidth(), frame.getHeight(), frame.getWidth(), 1, region);
+            long end = System.nanoTime();
+            latency.record(end - (realtime ? arrival : decodeStart));
+            decoded++;
+            if (result.isFound()) {
+                found++;
+            }
+            index++;
+        }
+        return new Report(frameCount, decoded, found, dropped, System.nanoTime() - start, latency);
+    }
+
+    //一次回放的统计
+    public static final class Report {
+
+        private final int frames;
+        private final int decoded;
+        private final int found;
+        private final int dropped;
+        private final long elapsedNanos;
+        private final LatencyHistogram latency;
+
+        Report(int frames, int decoded, int found, int dropped, long elapsedNanos, LatencyHistogram latency) {
+            this.frames = frames;
+            this.decoded = decoded;
+            this.found = found;
+            this.dropped = dropped;
+            this.elapsedNanos = elapsedNanos;
+            this.latency = latency;
+        }
+
+        public int getFrames() {
+            return frames;
+        }
+
+        public int getDecoded() {
+            return decoded;
+        }
+
+        public int getFound() {
+            return found;
+        }
+
+        public int getDropped() {
+            return dropped;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        //每秒解码的帧数
+        public double getFramesPerSecond() {
+            return elapsedNanos == 0 ? 0 : decoded * 1e9 / elapsedNanos;
+        }
+
+        //解码的帧中识别出条码的比例
+        public double getFoundRate() {
+            return decoded == 0 ? 0 : (double) found / decoded;
+        }
+
+        public LatencyHistogram getLatency() {
+            return latency;
+        }
+
+        public String toJson() {
+            return String.format(Locale.ROOT, "{\"frames\":%d,\"decoded\":%d,\"found\":%d,\"dropped\":%d,\"seconds\":%.3f,\"framesPerSecond\":%.2f,\"foundRate\":%.3f,"
+                            + "\"latencyMillis\":{\"mean\":%.2f,\"p50\":%.2f,\"p90\":%.2f,\"p99\":%.2f,\"max\":%.2f}}",
+                    frames, decoded, found, dropped, elapsedNanos / 1e9, getFramesPerSecond(), getFoundRate(),
+                    latency.getMeanNanos() / 1e6, latency.getPercentileNanos(50) / 1e6, latency.getPercentileNanos(90) / 1e6,
+                    latency.getPercentileNanos(99) / 1e6, latency.getMaxNanos() / 1e6);
+        }
+    }
+
+    //每个录制文件输出一行JSON，先是文件名，再是统计
+    public static void main(String[] args) throws IOException, InterruptedException {
+        boolean realtime = false;
+        boolean retry = true;
+        String formats = null;
+        String mode = null;
+        String characterSet = null;
+        List<String> paths = new ArrayList<String>();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if ("--realtime".equals(arg)) {
+                realtime = true;
+            } else if ("--no-retry".equals(arg)) {
+                retry = false;
+            } else if ("--formats".equals(arg) && i + 1 < args.length) {
+                formats = args[++i];
+            } else if ("--mode".equals(arg) && i + 1 < args.length) {
+                mode = args[++i];
+            } else if ("--charset".equals(arg) && i + 1 < args.length) {
+                characterSet = args[++i];
+            } else if (arg.startsWith("--")) {
+                System.err.println(USAGE);
+                System.exit(2);
+                return;
+            } else {
+                paths.add(arg);
+            }
+        }
+        if (paths.isEmpty()) {
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
+        }
+
+        //与相机扫描的默认设置一致：快速解码失败后做TRY_HARDER和反色重试
+        Map<DecodeHintType, Object> baseHints = new EnumMap<DecodeHintType, Object>(DecodeHintType.class);
+        if (retry) {
+            DecodeTiers.put(baseHints, DecodeTiers.defaults());
+        }
+        Set<BarcodeFormat> decodeFormats = DecodeFormatManager.parseDecodeFormats(formats, mode);
+        Map<DecodeHintType, Object> hints = DecodeHints.create(decodeFormats, baseHints, characterSet);
+        for (String path : paths) {
+            //每个文件用新的引擎，命中统计和重试耗时估计不会互相影响
+            Report report = new FrameReplayer(hints).replay(FrameRecording.open(new File(path)), realtime);
+            System.out.println("{\"file\":" + JsonLinesWriter.quote(path) + ",\"replay\":" + report.toJson() + "}");
+        }
+    }
+
+}
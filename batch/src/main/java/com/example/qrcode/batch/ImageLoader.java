@@ -0,0 +1,116 @@
+package com.example.qrcode.batch;
+
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.PlanarYUVLuminanceSource;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.imageio.ImageIO;
+
+//把图片文件读成亮度源：ImageIO能读的PNG、JPEG等，以及文件名带尺寸的原始帧（name_640x480.y、.yuv、.nv21，只读亮度平面）
+final class ImageLoader {
+
+    private static final Pattern DIMENSIONS = Pattern.compile("_(\\d+)x(\\d+)\\.[^.]+$");
+
+    private ImageLoader() {
+    }
+
+    static boolean isSupported(String name) {
+        return isImage(name) || isRaw(name);
+    }
+
+    static LuminanceSource load(File file) throws IOException {
+        String name = file.getName();
+        if (isRaw(name)) {
+            int[] dimensions = parseDimensions(name);
+            if (dimensions == null) {
+                throw new IOException("Raw frame name needs a _WIDTHxHEIGHT suffix: " + name);
+            }
+            return fromLuma(readLuma(file, dimensions[0] * dimensions[1]), dimensions[0], dimensions[1]);
+        }
+        BufferedImage image = ImageIO.read(file);
+        if (image == null) {
+            throw new IOException("Unreadable image: " + name);
+        }
+        return fromImage(image);
+    }
+
+    //与zxing javase的BufferedImageLuminanceSource相同的灰度公式，透明像素按白色处理
+    static LuminanceSource fromImage(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        byte[] luma = new byte[width * height];
+        if (image.getType() == BufferedImage.TYPE_BYTE_GRAY) {
+            image.getRaster().getDataElements(0, 0, width, height, luma);
+            return fromLuma(luma, width, height);
+        }
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+            int offset = y * width;
+            for (int x = 0; x < width; x++) {
+                int pixel = row[x];
+                if ((pixel & 0xFF000000) == 0) {
+                    luma[offset + x] = (byte) 0xFF;
+                } else {
+                    luma[offset + x] = (byte) ((306 * ((pixel >> 16) & 0xFF) + 601 * ((pixel >> 8) & 0xFF) + 117 * (pixel & 0xFF) + 0x200) >> 10);
+                }
+            }
+        }
+        return fromLuma(luma, width, height);
+    }
+
+    //从文件名中解析"_宽x高"，没有时返回null
+    static int[] parseDimensions(String name) {
+        Matcher matcher = DIMENSIONS.matcher(name);
+        if (!matcher.find()) {
+            return null;
+        }
+        int width = Integer.parseInt(matcher.group(1));
+        int height = Integer.parseInt(matcher.group(2));
+        if (width <= 0 || height <= 0) {
+            return null;
+        }
+        return new int[]{width, height};
+    }
+
+    private static LuminanceSource fromLuma(byte[] luma, int width, int height) {
+        return new PlanarYUVLuminanceSource(luma, width, height, 0, 0, width, height, false);
+    }
+
+    private static byte[] readLuma(File file, int size) throws IOException {
+        byte[] luma = new byte[size];
+        InputStream in = new FileInputStream(file);
+        try {
+            int read = 0;
+            while (read < size) {
+                int count = in.read(luma, read, size - read);
+                if (count < 0) {
+                    throw new IOException("Raw frame is shorter than its dimensions: " + file.getName());
+                }
+                read += count;
+            }
+        } finally {
+            in.close();
+        }
+        return luma;
+    }
+
+    private static boolean isImage(String name) {
+        String lower = name.toLowerCase(Locale.ROOT);
+        return lower.endsWith(".png") || lower.endsWith(".jpg") || lower.endsWith(".jpeg") || lower.endsWith(".bmp") || lower.endsWith(".gif");
+    }
+
+    private static boolean isRaw(String name) {
+        String lower = name.toLowerCase(Locale.ROOT);
+        return lower.endsWith(".y") || lower.endsWith(".yuv") || lower.endsWith(".nv21");
+    }
+
+}
@@ -0,0 +1,95 @@
+package com.example.qrcode.batch;
+
+import com.google.zxing.Result;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+
+//每张图片的结果写成一行JSON，多个解码线程共用，按完成顺序输出，每行写完立即flush
+final class JsonLinesWriter {
+
+    private final Writer out;
+    private IOException error;//第一次写出错，之后的输出都会丢弃
+
+    JsonLinesWriter(Writer out) {
+        this.out = out;
+    }
+
+    void writeResult(String file, int width, int height, Result result, long loadNanos, long decodeNanos) {
+        StringBuilder line = new StringBuilder(128);
+        line.append("{\"file\":").append(quote(file));
+        line.append(",\"found\":").append(result != null);
+        if (result != null) {
+            line.append(",\"format\":").append(quote(result.getBarcodeFormat().name()));
+            line.append(",\"text\":").append(quote(result.getText()));
+        }
+        line.append(",\"width\":").append(width);
+        line.append(",\"height\":").append(height);
+        line.append(",\"loadMillis\":").append(millis(loadNanos));
+        line.append(",\"decodeMillis\":").append(millis(decodeNanos));
+        line.append('}');
+        writeLine(line.toString());
+    }
+
+    void writeError(String file, String message) {
+        writeLine("{\"file\":" + quote(file) + ",\"found\":false,\"error\":" + quote(message) + "}");
+    }
+
+    synchronized void writeLine(String line) {
+        if (error != null) {
+            return;
+        }
+        try {
+            out.write(line);
+            out.write('\n');
+            out.flush();
+        } catch (IOException e) {
+            error = e;
+        }
+    }
+
+    synchronized IOException getError() {
+        return error;
+    }
+
+    static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+    }
+
+    static String quote(String value) {
+        if (value == null) {
+            return "null";
+        }
+        StringBuilder quoted = new StringBuilder(value.length() + 2);
+        quoted.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    quoted.append("\\\"");
+                    break;
+                case '\\':
+                    quoted.append("\\\\");
+                    break;
+                case '\n':
+                    quoted.append("\\n");
+                    break;
+                case '\r':
+                    quoted.append("\\r");
+                    break;
+                case '\t':
+                    quoted.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        quoted.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+                    } else {
+                        quoted.append(c);
+                    }
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+}
@@ -0,0 +1,79 @@
+package com.example.qrcode.batch;
+
+import com.example.qrcode.decode.DecodeHints;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+
+import static org.junit.Assert.*;
+
+public class BatchDecoderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void submitPath_decodesEverySupportedImageInDirectory() throws IOException, InterruptedException {
+        File dir = folder.newFolder("uploads");
+        for (int i = 0; i < 6; i++) {
+            ImageIO.write(BatchImages.qrImage("upload-" + i, 240), "png", new File(dir, "code" + i + ".png"));
+        }
+        File nested = new File(dir, "nested");
+        assertTrue(nested.mkdir());
+        ImageIO.write(BatchImages.blankImage(120, 90), "jpg", new File(nested, "blank.jpg"));
+        assertTrue(new File(dir, "notes.txt").createNewFile());
+
+        StringWriter out = new StringWriter();
+        BatchDecoder decoder = new BatchDecoder(DecodeHints.create(null, null, null), 3, out);
+        decoder.submitPath(dir);
+        BatchDecoder.Summary summary = decoder.finish();
+
+        List<String> lines = Arrays.asList(out.toString().split("\n"));
+        assertEquals(7, lines.size());
+        assertEquals(7, summary.getImages());
+        assertEquals(6, summary.getFound());
+        assertEquals(0, summary.getErrors());
+        for (int i = 0; i < 6; i++) {
+            assertTrue(out.toString().contains("\"format\":\"QR_CODE\",\"text\":\"upload-" + i + "\""));
+        }
+        for (String line : lines) {
+            assertTrue(line.startsWith("{\"file\":") && line.endsWith("}"));
+            assertTrue(line.contains("\"decodeMillis\":"));
+        }
+        assertTrue(summary.getImagesPerSecond() > 0);
+    }
+
+    @Test
+    public void submit_reportsUnreadableImage() throws IOException, InterruptedException {
+        File broken = folder.newFile("broken.png");
+
+        StringWriter out = new StringWriter();
+        BatchDecoder decoder = new BatchDecoder(DecodeHints.create(null, null, null), 1, out);
+        decoder.submit(broken);
+        BatchDecoder.Summary summary = decoder.finish();
+
+        assertEquals(1, summary.getErrors());
+        assertTrue(out.toString().contains("\"found\":false,\"error\":"));
+    }
+
+    @Test
+    public void quote_escapesJsonSpecialCharacters() {
+        assertEquals("\"a\\\"b\\\\c\\nd\\u0001\"", JsonLinesWriter.quote("a\"b\\c\nd\u0001"));
+        assertEquals("null", JsonLinesWriter.quote(null));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_rejectsZeroThreads() {
+        new BatchDecoder(DecodeHints.create(null, null, null), 0, new StringWriter());
+    }
+
+}
@@ -0,0 +1,42 @@
+package com.example.qrcode.batch;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.MultiFormatWriter;
+import com.google.zxing.WriterException;
+import com.google.zxing.common.BitMatrix;
+
+import java.awt.image.BufferedImage;
+
+//测试用的合成图片
+final class BatchImages {
+
+    private BatchImages() {
+    }
+
+    static BufferedImage qrImage(String text, int size) {
+        BitMatrix matrix;
+        try {
+            matrix = new MultiFormatWriter().encode(text, BarcodeFormat.QR_CODE, size, size);
+        } catch (WriterException e) {
+            throw new IllegalArgumentException(e);
+        }
+        BufferedImage image = new BufferedImage(matrix.getWidth(), matrix.getHeight(), BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < matrix.getHeight(); y++) {
+            for (int x = 0; x < matrix.getWidth(); x++) {
+                image.setRGB(x, y, matrix.get(x, y) ? 0x000000 : 0xFFFFFF);
+            }
+        }
+        return image;
+    }
+
+    static BufferedImage blankImage(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.getRaster().setSample(x, y, 0, 0xE0);
+            }
+        }
+        return image;
+    }
+
+}
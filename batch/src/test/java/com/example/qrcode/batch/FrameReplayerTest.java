@@ -0,0 +1,87 @@
+package com.example.qrcode.batch;
+
+import com.example.qrcode.decode.DecodeHints;
+import com.example.qrcode.decode.DecodeRegion;
+import com.example.qrcode.decode.FrameRecorder;
+import com.example.qrcode.decode.FrameRecording;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class FrameReplayerTest {
+
+    private static final int WIDTH = 320;
+    private static final int HEIGHT = 240;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void replay_decodesEveryFrameAtMaximumSpeed() throws IOException, InterruptedException {
+        FrameRecording recording = record(20);
+
+        FrameReplayer.Report report = new FrameReplayer(DecodeHints.create(null, null, null)).replay(recording, false);
+
+        assertEquals(6, report.getFrames());
+        assertEquals(6, report.getDecoded());
+        assertEquals(3, report.getFound());
+        assertEquals(0, report.getDropped());
+        assertEquals(6, report.getLatency().getCount());
+        assertTrue(report.getFramesPerSecond() > 0);
+        assertTrue(report.toJson().contains("\"found\":3"));
+    }
+
+    @Test
+    public void replay_followsRecordedTimestampsInRealtime() throws IOException, InterruptedException {
+        FrameRecording recording = record(30);
+
+        FrameReplayer.Report report = new FrameReplayer(DecodeHints.create(null, null, null)).replay(recording, true);
+
+        //最后一帧在第150毫秒到达
+        assertTrue(report.getElapsedNanos() >= TimeUnit.MILLISECONDS.toNanos(150));
+        assertEquals(6, report.getDecoded() + report.getDropped());
+    }
+
+    //每隔intervalMillis录一帧，共6帧，偶数帧有二维码，奇数帧是空白
+    private FrameRecording record(int intervalMillis) throws IOException {
+        File file = folder.newFile("replay" + FrameRecording.FILE_SUFFIX);
+        FrameRecorder recorder = new FrameRecorder(file, FrameRecorder.DEFAULT_MAX_BYTES);
+        for (int i = 0; i < 6; i++) {
+            byte[] frame = i % 2 == 0 ? qrFrame("frame-" + i) : blankFrame();
+            recorder.append(frame, frame.length, WIDTH, HEIGHT, DecodeRegion.fullFrame(90, WIDTH, HEIGHT), 5000L + TimeUnit.MILLISECONDS.toNanos(intervalMillis * i));
+        }
+        recorder.close();
+        return FrameRecording.open(file);
+    }
+
+    private static byte[] blankFrame() {
+        byte[] frame = new byte[WIDTH * HEIGHT * 3 / 2];
+        Arrays.fill(frame, 0, WIDTH * HEIGHT, (byte) 0xE0);
+        Arrays.fill(frame, WIDTH * HEIGHT, frame.length, (byte) 0x80);
+        return frame;
+    }
+
+    //把二维码图片画到NV21帧的亮度平面中央
+    private static byte[] qrFrame(String text) {
+        byte[] frame = blankFrame();
+        BufferedImage image = BatchImages.qrImage(text, 200);
+        int left = (WIDTH - image.getWidth()) / 2;
+        int top = (HEIGHT - image.getHeight()) / 2;
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                frame[(top + y) * WIDTH + left + x] = (byte) (image.getRGB(x, y) & 0xff);
+            }
+        }
+        return frame;
+    }
+
+}
@@ -0,0 +1,82 @@
+package com.example.qrcode.batch;
+
+import com.google.zxing.LuminanceSource;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import javax.imageio.ImageIO;
+
+import static org.junit.Assert.*;
+
+public class ImageLoaderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void fromImage_convertsRgbToLuma() {
+        BufferedImage image = new BufferedImage(3, 1, BufferedImage.TYPE_INT_ARGB);
+        image.setRGB(0, 0, 0xFF000000);
+        image.setRGB(1, 0, 0xFFFFFFFF);
+        image.setRGB(2, 0, 0x00000000);//透明按白色处理
+
+        byte[] row = ImageLoader.fromImage(image).getRow(0, null);
+
+        assertEquals(0, row[0] & 0xFF);
+        assertEquals(255, row[1] & 0xFF);
+        assertEquals(255, row[2] & 0xFF);
+    }
+
+    @Test
+    public void load_readsPng() throws IOException {
+        File file = folder.newFile("code.png");
+        ImageIO.write(BatchImages.qrImage("png", 200), "png", file);
+
+        LuminanceSource source = ImageLoader.load(file);
+
+        assertEquals(200, source.getWidth());
+        assertEquals(200, source.getHeight());
+    }
+
+    @Test
+    public void load_readsRawLumaFromNamedDimensions() throws IOException {
+        File file = folder.newFile("frame_4x2.nv21");
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 9, 9, 9});
+        } finally {
+            out.close();
+        }
+
+        LuminanceSource source = ImageLoader.load(file);
+
+        assertEquals(4, source.getWidth());
+        assertEquals(2, source.getHeight());
+        assertArrayEquals(new byte[]{5, 6, 7, 8}, source.getRow(1, null));
+    }
+
+    @Test(expected = IOException.class)
+    public void load_rejectsRawFrameWithoutDimensions() throws IOException {
+        ImageLoader.load(folder.newFile("frame.y"));
+    }
+
+    @Test(expected = IOException.class)
+    public void load_rejectsTruncatedRawFrame() throws IOException {
+        ImageLoader.load(folder.newFile("frame_640x480.y"));
+    }
+
+    @Test
+    public void parseDimensions_readsSuffix() {
+        assertArrayEquals(new int[]{1280, 720}, ImageLoader.parseDimensions("cam_1280x720.yuv"));
+        assertNull(ImageLoader.parseDimensions("cam.yuv"));
+        assertNull(ImageLoader.parseDimensions("cam_0x720.yuv"));
+    }
+
+}
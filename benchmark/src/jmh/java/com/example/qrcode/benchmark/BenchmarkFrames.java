@@ -0,0 +1,159 @@
+package com.example.qrcode.benchmark;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.MultiFormatWriter;
+import com.google.zxing.WriterException;
+import com.google.zxing.common.BitMatrix;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+//基准测试的输入帧：合成的NV21帧，或者qrcode.frames.dir目录下录制的帧（文件名形如 name_1280x720.nv21）
+final class BenchmarkFrames {
+
+    static final String FRAMES_DIR_PROPERTY = "qrcode.frames.dir";
+
+    private static final int MIN_FRAME_WIDTH = 240;
+    private static final int MIN_FRAME_HEIGHT = 240;
+    private static final int MAX_FRAME_WIDTH = 1200;
+    private static final int MAX_FRAME_HEIGHT = 675;
+
+    final byte[] data;
+    final int width;//相机原始帧宽度
+    final int height;//相机原始帧高度
+    //取景框，顺时针旋转90度之后的坐标，按CameraManager的比例（5/8再取4/5）居中
+    final int roiLeft;
+    final int roiTop;
+    final int roiWidth;
+    final int roiHeight;
+
+    private BenchmarkFrames(byte[] data, int width, int height) {
+        this.data = data;
+        this.width = width;
+        this.height = height;
+        roiWidth = findDesiredDimensionInRange(height, MIN_FRAME_WIDTH, MAX_FRAME_WIDTH) * 4 / 5;
+        roiHeight = findDesiredDimensionInRange(width, MIN_FRAME_HEIGHT, MAX_FRAME_HEIGHT) * 4 / 5;
+        roiLeft = (height - roiWidth) / 2;
+        roiTop = (width - roiHeight) / 2;
+    }
+
+    //resolution形如"1280x720"，content为qr、blurred（水平运动模糊的qr）、blank或recorded
+    static BenchmarkFrames load(String resolution, String content) throws IOException {
+        int split = resolution.indexOf('x');
+        int width = Integer.parseInt(resolution.substring(0, split));
+        int height = Integer.parseInt(resolution.substring(split + 1));
+        if ("recorded".equals(content)) {
+            return new BenchmarkFrames(readRecorded(resolution, width, height), width, height);
+        }
+        byte[] frame = noisyFrame(width, height, resolution.hashCode());
+        if ("qr".equals(content) || "blurred".equals(content)) {
+            BenchmarkFrames frames = new BenchmarkFrames(frame, width, height);
+            int size = Math.min(frames.roiWidth, frames.roiHeight) * 3 / 4;
+            drawCode(frame, width, height, BarcodeFormat.QR_CODE, "https://example.com/qrcode/benchmark", size, size);
+            if ("blurred".equals(content)) {
+                motionBlur(frame, width, height, width / 80);
+            }
+            return frames;
+        }
+        if ("blank".equals(content)) {
+            return new BenchmarkFrames(frame, width, height);
+        }
+        throw new IllegalArgumentException("Unknown frame content: " + content);
+    }
+
+    //浅色背景加少量噪声，避免二值化遇到完全平坦的图像
+    private static byte[] noisyFrame(int width, int height, long seed) {
+        byte[] frame = new byte[width * height * 3 / 2];
+        Random random = new Random(seed);
+        for (int i = 0; i < width * height; i++) {
+            frame[i] = (byte) (200 + random.nextInt(16));
+        }
+        Arrays.fill(frame, width * height, frame.length, (byte) 0x80);
+        return frame;
+    }
+
+    private static void drawCode(byte[] frame, int width, int height, BarcodeFormat format, String text, int codeWidth, int codeHeight) {
+        BitMatrix matrix;
+        try {
+            matrix = new MultiFormatWriter().encode(text, format, codeWidth, codeHeight);
+        } catch (WriterException e) {
+            throw new IllegalArgumentException(e);
+        }
+        int left = (width - matrix.getWidth()) / 2;
+        int top = (height - matrix.getHeight()) / 2;
+        for (int y = 0; y < matrix.getHeight(); y++) {
+            for (int x = 0; x < matrix.getWidth(); x++) {
+                if (matrix.get(x, y)) {
+                    frame[(top + y) * width + left + x] = (byte) 0x28;
+                }
+            }
+        }
+    }
+
+    //沿原始帧的行方向做均值模糊，就地修改亮度平面
+    private static void motionBlur(byte[] frame, int width, int height, int radius) {
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            int offset = y * width;
+            for (int x = 0; x < width; x++) {
+                row[x] = frame[offset + x] & 0xff;
+            }
+            for (int x = 0; x < width; x++) {
+                int sum = 0;
+                int count = 0;
+                for (int k = Math.max(0, x - radius); k <= Math.min(width - 1, x + radius); k++) {
+                    sum += row[k];
+                    count++;
+                }
+                frame[offset + x] = (byte) (sum / count);
+            }
+        }
+    }
+
+    private static byte[] readRecorded(String resolution, int width, int height) throws IOException {
+        String dir = System.getProperty(FRAMES_DIR_PROPERTY);
+        if (dir == null || dir.isEmpty()) {
+            throw new IllegalStateException("Set -D" + FRAMES_DIR_PROPERTY + " to use recorded frames");
+        }
+        File[] files = new File(dir).listFiles();
+        if (files != null) {
+            Arrays.sort(files);
+            for (File file : files) {
+                if (file.getName().endsWith("_" + resolution + ".nv21")) {
+                    byte[] frame = new byte[width * height * 3 / 2];
+                    InputStream in = new FileInputStream(file);
+                    try {
+                        int read = 0;
+                        while (read < frame.length) {
+                            int count = in.read(frame, read, frame.length - read);
+                            if (count < 0) {
+                                throw new IOException("Truncated frame: " + file);
+                            }
+                            read += count;
+                        }
+                    } finally {
+                        in.close();
+                    }
+                    return frame;
+                }
+            }
+        }
+        throw new IllegalStateException("No recorded " + resolution + " frame in " + dir);
+    }
+
+    private static int findDesiredDimensionInRange(int resolution, int hardMin, int hardMax) {
+        int dim = 5 * resolution / 8;
+        if (dim < hardMin) {
+            return hardMin;
+        }
+        if (dim > hardMax) {
+            return hardMax;
+        }
+        return dim;
+    }
+
+}
@@ -0,0 +1,59 @@
+package com.example.qrcode.benchmark;
+
+import com.example.qrcode.decode.RotatedYUVLuminanceSource;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.PlanarYUVLuminanceSource;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.common.GlobalHistogramBinarizer;
+import com.google.zxing.common.HybridBinarizer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+//取景框二值化：HybridBinarizer对比GlobalHistogramBinarizer
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BinarizerBenchmark {
+
+    @Param({"640x480", "1280x720", "1920x1080"})
+    public String resolution;
+
+    @Param({"qr", "blank"})
+    public String content;
+
+    private LuminanceSource luminance;
+
+    @Setup
+    public void setUp() throws IOException {
+        BenchmarkFrames frames = BenchmarkFrames.load(resolution, content);
+        byte[] matrix = new RotatedYUVLuminanceSource(frames.data, frames.width, frames.height, frames.roiLeft, frames.roiTop, frames.roiWidth, frames.roiHeight, 90, null).getMatrix();
+        luminance = new PlanarYUVLuminanceSource(matrix, frames.roiWidth, frames.roiHeight, 0, 0, frames.roiWidth, frames.roiHeight, false);
+    }
+
+    @Benchmark
+    public BitMatrix hybrid() throws NotFoundException {
+        return new HybridBinarizer(luminance).getBlackMatrix();
+    }
+
+    @Benchmark
+    public BitMatrix globalHistogram() {
+        try {
+            return new GlobalHistogramBinarizer(luminance).getBlackMatrix();
+        } catch (NotFoundException e) {
+            //直方图找不到两个峰值时会抛出，空白帧常见
+            return null;
+        }
+    }
+
+}
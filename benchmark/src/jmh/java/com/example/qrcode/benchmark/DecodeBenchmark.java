@@ -0,0 +1,134 @@
+package com.example.qrcode.benchmark;
+
+import com.example.qrcode.decode.DecodeEngine;
+import com.example.qrcode.decode.DecodeFormatManager;
+import com.example.qrcode.decode.DecodeRegion;
+import com.example.qrcode.decode.DecodeResult;
+import com.example.qrcode.decode.ReaderDispatcher;
+import com.example.qrcode.decode.RotatedYUVLuminanceSource;
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.MultiFormatReader;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.PlanarYUVLuminanceSource;
+import com.google.zxing.ReaderException;
+import com.google.zxing.Result;
+import com.google.zxing.common.HybridBinarizer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+//MultiFormatReader.decodeWithState，按DecodeFormatManager中的格式组分别测试；二值化结果在准备阶段算好
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DecodeBenchmark {
+
+    @Param({"640x480", "1280x720", "1920x1080"})
+    public String resolution;
+
+    @Param({"qr", "blank"})
+    public String content;
+
+    //DEFAULT是DecodeThread在默认设置下启用的格式
+    @Param({"QR_CODE", "DATA_MATRIX", "PRODUCT", "INDUSTRIAL", "DEFAULT"})
+    public String formats;
+
+    private MultiFormatReader multiFormatReader;
+    private ReaderDispatcher readerDispatcher;
+    private DecodeEngine engine;
+    private DecodeEngine fullResolutionEngine;
+    private BenchmarkFrames frames;
+    private DecodeRegion region;
+    private BinaryBitmap bitmap;
+
+    @Setup
+    public void setUp() throws IOException, NotFoundException {
+        frames = BenchmarkFrames.load(resolution, content);
+        region = new DecodeRegion(90, frames.roiLeft, frames.roiTop, frames.roiWidth, frames.roiHeight);
+        byte[] matrix = new RotatedYUVLuminanceSource(frames.data, frames.width, frames.height, frames.roiLeft, frames.roiTop, frames.roiWidth, frames.roiHeight, 90, null).getMatrix();
+        bitmap = new BinaryBitmap(new HybridBinarizer(new PlanarYUVLuminanceSource(matrix, frames.roiWidth, frames.roiHeight, 0, 0, frames.roiWidth, frames.roiHeight, false)));
+        bitmap.getBlackMatrix();
+
+        Map<DecodeHintType, Object> hints = new EnumMap<DecodeHintType, Object>(DecodeHintType.class);
+        hints.put(DecodeHintType.POSSIBLE_FORMATS, formatSet(formats));
+        multiFormatReader = new MultiFormatReader();
+        multiFormatReader.setHints(hints);
+        readerDispatcher = new ReaderDispatcher(hints, new ReaderDispatcher.Statistics());
+        engine = new DecodeEngine(hints);
+        fullResolutionEngine = new DecodeEngine(hints);
+        fullResolutionEngine.setMaxPyramidLevel(0);
+    }
+
+    @Benchmark
+    public Result decodeWithState() {
+        try {
+            return multiFormatReader.decodeWithState(bitmap);
+        } catch (ReaderException re) {
+            return null;
+        } finally {
+            multiFormatReader.reset();
+        }
+    }
+
+    //按命中统计分发，冷门格式组隔几帧才试一次，结果是多帧的平均耗时
+    @Benchmark
+    public Result readerDispatcher() {
+        try {
+            return readerDispatcher.decode(bitmap);
+        } catch (NotFoundException nfe) {
+            return null;
+        }
+    }
+
+    //整条流水线：读取取景框、二值化和解码，与解码线程池中的一帧相同
+    @Benchmark
+    public DecodeResult engine() {
+        return engine.decode(frames.data, frames.width, frames.height, region);
+    }
+
+    //同上，但不用金字塔，始终在原分辨率上二值化和解码
+    @Benchmark
+    public DecodeResult engineFullResolution() {
+        return fullResolutionEngine.decode(frames.data, frames.width, frames.height, region);
+    }
+
+    static Collection<BarcodeFormat> formatSet(String name) {
+        if ("QR_CODE".equals(name)) {
+            return DecodeFormatManager.QR_CODE_FORMATS;
+        }
+        if ("DATA_MATRIX".equals(name)) {
+            return DecodeFormatManager.DATA_MATRIX_FORMATS;
+        }
+        if ("PRODUCT".equals(name)) {
+            return DecodeFormatManager.PRODUCT_FORMATS;
+        }
+        if ("INDUSTRIAL".equals(name)) {
+            return DecodeFormatManager.INDUSTRIAL_FORMATS;
+        }
+        if ("DEFAULT".equals(name)) {
+            Collection<BarcodeFormat> formats = EnumSet.noneOf(BarcodeFormat.class);
+            formats.addAll(DecodeFormatManager.PRODUCT_FORMATS);
+            formats.addAll(DecodeFormatManager.INDUSTRIAL_FORMATS);
+            formats.addAll(DecodeFormatManager.QR_CODE_FORMATS);
+            formats.addAll(DecodeFormatManager.DATA_MATRIX_FORMATS);
+            return formats;
+        }
+        throw new IllegalArgumentException("Unknown format set: " + name);
+    }
+
+}
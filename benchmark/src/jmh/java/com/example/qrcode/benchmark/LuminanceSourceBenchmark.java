@@ -0,0 +1,92 @@
+package com.example.qrcode.benchmark;
+
+import com.example.qrcode.decode.ByteBufferLuminanceSource;
+import com.example.qrcode.decode.FrameRotator;
+import com.example.qrcode.decode.RotatedYUVLuminanceSource;
+import com.google.zxing.PlanarYUVLuminanceSource;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+//取景框亮度矩阵：先旋转整帧再用PlanarYUVLuminanceSource裁剪，对比直接读取的RotatedYUVLuminanceSource
+//和从直接缓冲区读取的ByteBufferLuminanceSource
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LuminanceSourceBenchmark {
+
+    @Param({"640x480", "1280x720", "1920x1080"})
+    public String resolution;
+
+    @Param({"qr"})
+    public String content;
+
+    private BenchmarkFrames frames;
+    private byte[] rotated;
+    private byte[] matrixBuffer;
+    private ByteBuffer direct;//同一帧的亮度平面，放在直接缓冲区里
+
+    @Setup
+    public void setUp() throws IOException {
+        frames = BenchmarkFrames.load(resolution, content);
+        rotated = new byte[frames.width * frames.height];
+        matrixBuffer = new byte[frames.width * frames.height];
+        FrameRotator.rotateClockwise(frames.data, frames.width, frames.height, rotated);
+        direct = ByteBuffer.allocateDirect(frames.width * frames.height);
+        direct.put(frames.data, 0, frames.width * frames.height).flip();
+    }
+
+    //只计裁剪：输入是已经旋转好的整帧
+    @Benchmark
+    public byte[] planarCropOfRotatedFrame() {
+        return new PlanarYUVLuminanceSource(rotated, frames.height, frames.width, frames.roiLeft, frames.roiTop, frames.roiWidth, frames.roiHeight, false).getMatrix();
+    }
+
+    //旋转整帧加裁剪，相当于原来的DecodeHandler
+    @Benchmark
+    public byte[] rotateFrameThenPlanarCrop() {
+        FrameRotator.rotateClockwise(frames.data, frames.width, frames.height, rotated);
+        return new PlanarYUVLuminanceSource(rotated, frames.height, frames.width, frames.roiLeft, frames.roiTop, frames.roiWidth, frames.roiHeight, false).getMatrix();
+    }
+
+    @Benchmark
+    public byte[] rotatedSourceMatrix() {
+        return new RotatedYUVLuminanceSource(frames.data, frames.width, frames.height, frames.roiLeft, frames.roiTop, frames.roiWidth, frames.roiHeight, 90, matrixBuffer).getMatrix();
+    }
+
+    //按行读取，1D阅读器走的是这条路径
+    @Benchmark
+    public byte[] rotatedSourceRows() {
+        RotatedYUVLuminanceSource source = new RotatedYUVLuminanceSource(frames.data, frames.width, frames.height, frames.roiLeft, frames.roiTop, frames.roiWidth, frames.roiHeight, 90, null);
+        byte[] row = matrixBuffer;
+        for (int y = 0; y < frames.roiHeight; y++) {
+            row = source.getRow(y, row);
+        }
+        return row;
+    }
+
+    //同rotatedSourceMatrix，但源平面在直接缓冲区中，不先复制成byte[]
+    @Benchmark
+    public byte[] directBufferSourceMatrix() {
+        return new ByteBufferLuminanceSource(direct, frames.width, frames.height, frames.width, 1, frames.roiLeft, frames.roiTop, frames.roiWidth, frames.roiHeight, 90, matrixBuffer).getMatrix();
+    }
+
+    //复制整帧到byte[]再用RotatedYUVLuminanceSource读取，相当于LatestImagePump的做法
+    @Benchmark
+    public byte[] copyDirectBufferThenRotatedSource() {
+        direct.get(rotated, 0, frames.width * frames.height);
+        direct.rewind();
+        return new RotatedYUVLuminanceSource(rotated, frames.width, frames.height, frames.roiLeft, frames.roiTop, frames.roiWidth, frames.roiHeight, 90, matrixBuffer).getMatrix();
+    }
+
+}
@@ -0,0 +1,62 @@
+package com.example.qrcode.benchmark;
+
+import com.example.qrcode.decode.FrameRotator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+//帧旋转：原来逐像素旋转整帧、分块旋转整帧、只旋转取景框区域
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RotationBenchmark {
+
+    @Param({"640x480", "1280x720", "1920x1080"})
+    public String resolution;
+
+    @Param({"qr"})
+    public String content;
+
+    private BenchmarkFrames frames;
+    private byte[] target;
+
+    @Setup
+    public void setUp() throws IOException {
+        frames = BenchmarkFrames.load(resolution, content);
+        target = new byte[frames.width * frames.height];
+    }
+
+    @Benchmark
+    public byte[] naiveFullFrame() {
+        byte[] data = frames.data;
+        int width = frames.width;
+        int height = frames.height;
+        byte[] rotatedData = new byte[data.length];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) rotatedData[x * height + height - y - 1] = data[x + y * width];
+        }
+        return rotatedData;
+    }
+
+    @Benchmark
+    public byte[] blockedFullFrame() {
+        FrameRotator.rotateClockwise(frames.data, frames.width, frames.height, target);
+        return target;
+    }
+
+    @Benchmark
+    public byte[] framingRectOnly() {
+        FrameRotator.rotateRegion(frames.data, frames.width, frames.height, 90, frames.roiLeft, frames.roiTop, frames.roiWidth, frames.roiHeight, target);
+        return target;
+    }
+
+}
@@ -0,0 +1,67 @@
+package com.example.qrcode.benchmark;
+
+import com.example.qrcode.decode.DecodeEngine;
+import com.example.qrcode.decode.DecodeRegion;
+import com.example.qrcode.decode.DecodeResult;
+import com.example.qrcode.decode.SharpnessEstimator;
+import com.google.zxing.DecodeHintType;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+//模糊预过滤：清晰度估计本身的耗时，对比模糊帧被过滤和照常走完整条流水线的耗时
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SharpnessBenchmark {
+
+    @Param({"640x480", "1280x720", "1920x1080"})
+    public String resolution;
+
+    @Param({"qr", "blurred"})
+    public String content;
+
+    private BenchmarkFrames frames;
+    private DecodeRegion region;
+    private DecodeEngine filtered;
+    private DecodeEngine unfiltered;
+
+    @Setup
+    public void setUp() throws IOException {
+        frames = BenchmarkFrames.load(resolution, content);
+        region = new DecodeRegion(90, frames.roiLeft, frames.roiTop, frames.roiWidth, frames.roiHeight);
+        Map<DecodeHintType, Object> hints = new EnumMap<DecodeHintType, Object>(DecodeHintType.class);
+        hints.put(DecodeHintType.POSSIBLE_FORMATS, DecodeBenchmark.formatSet("DEFAULT"));
+        filtered = new DecodeEngine(hints);
+        unfiltered = new DecodeEngine(hints);
+        unfiltered.setMinSharpness(0);
+    }
+
+    @Benchmark
+    public int estimate() {
+        return SharpnessEstimator.estimate(frames.data, frames.width, frames.height, region);
+    }
+
+    //模糊帧在这里只付出estimate的代价
+    @Benchmark
+    public DecodeResult filteredEngine() {
+        return filtered.decode(frames.data, frames.width, frames.height, region);
+    }
+
+    @Benchmark
+    public DecodeResult unfilteredEngine() {
+        return unfiltered.decode(frames.data, frames.width, frames.height, region);
+    }
+
+}
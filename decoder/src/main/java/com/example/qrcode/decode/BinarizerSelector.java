@@ -0,0 +1,69 @@
+package com.example.qrcode.decode;
+
+import java.util.Arrays;
+
+//二值化策略：按取景框的亮度直方图决定先用哪种二值化
+//光线充足、明暗两端分得开、中间调很少的帧先用便宜的GlobalHistogramBinarizer，没解出来再用HybridBinarizer；
+//其余的帧（暗光、低对比度、有阴影或渐变）直接用HybridBinarizer；直方图缓冲区复用，不是线程安全的
+public final class BinarizerSelector {
+
+    //二值化方式
+    public enum Kind {
+        GLOBAL_HISTOGRAM, HYBRID
+    }
+
+    static final int SAMPLE_STEP = 4;//每个方向隔几个像素采样一次
+    static final int MIN_CONTRAST = 96;//暗端和亮端（第5和第95百分位）至少相差这么多
+    static final int MIN_BRIGHT = 128;//亮端至少这么亮，暗光下噪声大，全局阈值容易失败
+    static final int MAX_MIDTONE_PERCENT = 20;//明暗之间中间三分之一的像素占比不超过这个值
+
+    private static final int BUCKETS = 64;
+    private static final int SHIFT = 2;
+
+    private final int[] histogram = new int[BUCKETS];
+
+    BinarizerSelector() {
+    }
+
+    //是否先试GlobalHistogramBinarizer
+    boolean preferGlobal(byte[] matrix, int width, int height) {
+        Arrays.fill(histogram, 0);
+        int samples = 0;
+        for (int y = SAMPLE_STEP / 2; y < height; y += SAMPLE_STEP) {
+            int offset = y * width;
+            for (int x = SAMPLE_STEP / 2; x < width; x += SAMPLE_STEP) {
+                histogram[(matrix[offset + x] & 0xff) >> SHIFT]++;
+                samples++;
+            }
+        }
+        if (samples == 0) {
+            return false;
+        }
+        int dark = percentileBucket(samples * 5 / 100);
+        int bright = percentileBucket(samples * 95 / 100);
+        int contrast = (bright - dark) << SHIFT;
+        if (contrast < MIN_CONTRAST || bright << SHIFT < MIN_BRIGHT) {
+            return false;
+        }
+        //明暗之间的中间三分之一
+        int third = (bright - dark) / 3;
+        int midtones = 0;
+        for (int i = dark + third + 1; i < bright - third; i++) {
+            midtones += histogram[i];
+        }
+        return midtones * 100 <= samples * MAX_MIDTONE_PERCENT;
+    }
+
+    //第rank个样本（从0开始，按亮度从暗到亮）所在的桶
+    private int percentileBucket(int rank) {
+        int seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += histogram[i];
+            if (seen > rank) {
+                return i;
+            }
+        }
+        return BUCKETS - 1;
+    }
+
+}
@@ -0,0 +1,174 @@
+package com.example.qrcode.decode;
+
+import com.google.zxing.LuminanceSource;
+
+import java.nio.ByteBuffer;
+
+//ByteBuffer（可以是直接缓冲区或内存映射文件）上的亮度源：按行跨度和像素跨度直接读取，不先复制成byte[]
+//坐标规则同RotatedYUVLuminanceSource，left、top、width、height是顺时针旋转rotation度之后的取景框；
+//buffer当前的position是帧的起点，只用绝对位置读取，不改变buffer的position和limit；不是线程安全的
+public final class ByteBufferLuminanceSource extends LuminanceSource {
+
+    private static final int BLOCK_SIZE = 32;//分块边长，同FrameRotator
+    private static final int THUMBNAIL_SCALE_FACTOR = 2;
+
+    private final ByteBuffer buffer;
+    private final ByteBuffer view;//批量读取一行用的副本，只修改它的position
+    private final int dataWidth;
+    private final int dataHeight;
+    private final int rowStride;//相邻两行起点的字节距离，可以大于宽度（行末有填充）
+    private final int pixelStride;//相邻两个像素的字节距离，半平面格式中色度交错时为2
+    private final int rotation;
+    private final int left;
+    private final int top;
+    private final int start;//构造时buffer的position
+    private final int base;//旋转后(0, 0)在buffer中的绝对下标
+    private final int xStep;
+    private final int yStep;
+    private final byte[] matrixBuffer;//getMatrix复用的缓冲区，可为null
+
+    public ByteBufferLuminanceSource(ByteBuffer buffer, int dataWidth, int dataHeight, int rowStride, int pixelStride, int left, int top, int width, int height, int rotation, byte[] matrixBuffer) {
+        super(width, height);
+        if (rotation != 0 && rotation != 90 && rotation != 180 && rotation != 270) {
+            throw new IllegalArgumentException("Unsupported rotation: " + rotation);
+        }
+        if (pixelStride < 1 || rowStride < (dataWidth - 1) * pixelStride + 1) {
+            throw new IllegalArgumentException("Invalid strides: row " + rowStride + ", pixel " + pixelStride);
+        }
+        if (buffer.remaining() < (long) (dataHeight - 1) * rowStride + (long) (dataWidth - 1) * pixelStride + 1) {
+            throw new IllegalArgumentException("Buffer too small: " + buffer.remaining() + " bytes for " + dataWidth + "x" + dataHeight);
+        }
+        boolean swapped = rotation == 90 || rotation == 270;
+        int rotatedWidth = swapped ? dataHeight : dataWidth;
+        int rotatedHeight = swapped ? dataWidth : dataHeight;
+        if (left < 0 || top < 0 || left + width > rotatedWidth || top + height > rotatedHeight) {
+            throw new IllegalArgumentException("Crop rectangle does not fit within image data.");
+        }
+        this.buffer = buffer;
+        view = buffer.duplicate();
+        this.dataWidth = dataWidth;
+        this.dataHeight = dataHeight;
+        this.rowStride = rowStride;
+        this.pixelStride = pixelStride;
+        this.rotation = rotation;
+        this.left = left;
+        this.top = top;
+        //与FrameRotator.regionBase相同，只是把源平面中的一行换成rowStride、一个像素换成pixelStride
+        start = buffer.position();
+        switch (rotation) {
+            case 0:
+                base = start + top * rowStride + left * pixelStride;
+                xStep = pixelStride;
+                yStep = rowStride;
+                break;
+            case 90:
+                base = start + (dataHeight - 1 - left) * rowStride + top * pixelStride;
+                xStep = -rowStride;
+                yStep = pixelStride;
+                break;
+            case 180:
+                base = start + (dataHeight - 1 - top) * rowStride + (dataWidth - 1 - left) * pixelStride;
+                xStep = -pixelStride;
+                yStep = -rowStride;
+                break;
+            default:
+                base = start + left * rowStride + (dataWidth - 1 - top) * pixelStride;
+                xStep = rowStride;
+                yStep = -pixelStride;
+                break;
+        }
+        this.matrixBuffer = matrixBuffer;
+    }
+
+    @Override
+    public byte[] getRow(int y, byte[] row) {
+        if (y < 0 || y >= getHeight()) {
+            throw new IllegalArgumentException("Requested row is outside the image: " + y);
+        }
+        int width = getWidth();
+        if (row == null || row.length < width) {
+            row = new byte[width];
+        }
+        readRow(base + y * yStep, row, 0, width);
+        return row;
+    }
+
+    @Override
+    public byte[] getMatrix() {
+        int width = getWidth();
+        int height = getHeight();
+        int area = width * height;
+        byte[] matrix = matrixBuffer != null && matrixBuffer.length >= area ? matrixBuffer : new byte[area];
+        if (xStep == 1) {
+            //不旋转且像素连续时每行批量读取
+            for (int y = 0; y < height; y++) {
+                readRow(base + y * yStep, matrix, y * width, width);
+            }
+            return matrix;
+        }
+        //分块遍历，旋转时源平面是按列读的，一块的源行留在缓存里
+        for (int blockY = 0; blockY < height; blockY += BLOCK_SIZE) {
+            int endY = Math.min(blockY + BLOCK_SIZE, height);
+            for (int blockX = 0; blockX < width; blockX += BLOCK_SIZE) {
+                int endX = Math.min(blockX + BLOCK_SIZE, width);
+                for (int y = blockY; y < endY; y++) {
+                    int srcIndex = base + blockX * xStep + y * yStep;
+                    int outputOffset = y * width;
+                    for (int x = blockX; x < endX; x++, srcIndex += xStep) {
+                        matrix[outputOffset + x] = buffer.get(srcIndex);
+                    }
+                }
+            }
+        }
+        return matrix;
+    }
+
+    //从srcIndex开始沿x方向读取width个像素到dst
+    private void readRow(int srcIndex, byte[] dst, int offset, int width) {
+        if (xStep == 1) {
+            view.position(srcIndex);
+            view.get(dst, offset, width);
+        } else {
+            for (int x = 0; x < width; x++, srcIndex += xStep) {
+                dst[offset + x] = buffer.get(srcIndex);
+            }
+        }
+    }
+
+    //渲染缩略图，与RotatedYUVLuminanceSource.renderThumbnail()的输出一致；只能在buffer仍然有效时调用
+    public int[] renderThumbnail() {
+        int width = getThumbnailWidth();
+        int height = getThumbnailHeight();
+        int[] pixels = new int[width * height];
+        for (int y = 0; y < height; y++) {
+            int srcIndex = base + y * yStep * THUMBNAIL_SCALE_FACTOR;
+            int outputOffset = y * width;
+            for (int x = 0; x < width; x++, srcIndex += xStep * THUMBNAIL_SCALE_FACTOR) {
+                int grey = buffer.get(srcIndex) & 0xff;
+                pixels[outputOffset + x] = 0xFF000000 | (grey * 0x00010101);
+            }
+        }
+        return pixels;
+    }
+
+    public int getThumbnailWidth() {
+        return getWidth() / THUMBNAIL_SCALE_FACTOR;
+    }
+
+    public int getThumbnailHeight() {
+        return getHeight() / THUMBNAIL_SCALE_FACTOR;
+    }
+
+    @Override
+    public boolean isCropSupported() {
+        return true;
+    }
+
+    @Override
+    public LuminanceSource crop(int left, int top, int width, int height) {
+        ByteBuffer frame = buffer.duplicate();
+        frame.position(start);
+        return new ByteBufferLuminanceSource(frame, dataWidth, dataHeight, rowStride, pixelStride, this.left + left, this.top + top, width, height, rotation, null);
+    }
+
+}
@@ -0,0 +1,337 @@
+package com.example.qrcode.decode;
+
+import com.google.zxing.Binarizer;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.PlanarYUVLuminanceSource;
+import com.google.zxing.Result;
+import com.google.zxing.ResultPoint;
+import com.google.zxing.ResultPointCallback;
+import com.google.zxing.common.GlobalHistogramBinarizer;
+import com.google.zxing.common.HybridBinarizer;
+
+import java.nio.ByteBuffer;
+import java.util.EnumMap;
+import java.util.Map;
+
+//无界面的解码引擎：输入YUV帧（只有亮度平面也可以）、旋转角度和取景框，同步返回结果和各阶段耗时
+//不依赖Android，可以在普通JVM上测试、跑基准或在服务端使用；不是线程安全的，每个线程一个实例
+//单码解码先在缩小的金字塔层上尝试，粗层找到候选点却没解出来时换到更细的一层，没有候选点时直接换到原图；
+//提示中带有DecodeTiers时，快速解码失败后按策略在原图上做TRY_HARDER和反色重试
+public final class DecodeEngine {
+
+    public static final int DEFAULT_MAX_PYRAMID_LEVEL = 2;//最多缩小到1/4
+    public static final int DEFAULT_FULL_RESOLUTION_INTERVAL = 1;//粗层没有候选点时每帧都在原图上再试，远处的小条码和一维码在粗层上找不到定位图形
+
+    private final Map<DecodeHintType, ?> hints;
+    private final ReaderDispatcher readerDispatcher;
+    private final ReaderDispatcher coarseDispatcher;//粗层用的阅读器，候选点回调换成计数器
+    private final CandidateCounter candidates;
+    private final DecodeTiers tiers;//为null时只做快速解码
+    private final ReaderDispatcher tryHarderDispatcher;//提示中已经有TRY_HARDER时为null，快速解码本身就是TRY_HARDER
+    private final long[] tierCostNanos = new long[DecodeTiers.Tier.values().length];//各重试级别的平均耗时
+    private long tierFrames;
+    private byte[] invertedBuffer;
+    private LumaPyramid pyramid = new LumaPyramid(DEFAULT_MAX_PYRAMID_LEVEL);//为null时只在原图上解码
+    private long pyramidFrames;
+    private int fullResolutionInterval = DEFAULT_FULL_RESOLUTION_INTERVAL;
+    private long dispatchFrame;//本帧在格式命中统计中的序号，本帧的所有尝试共用
+    private final BinarizerSelector binarizerSelector = new BinarizerSelector();
+    private long binarizationNanos;//本帧各次尝试的二值化耗时之和
+    private long decodeNanos;
+    private MultiBarcodeReader multiBarcodeReader;//第一次一帧多码解码时创建
+    private final FrameRotator frameRotator = new FrameRotator();//亮度矩阵缓冲区，帧之间复用
+    private final ScanMetrics metrics;
+    private int minSharpness = SharpnessEstimator.DEFAULT_MIN_SHARPNESS;
+
+    public DecodeEngine(Map<DecodeHintType, ?> hints) {
+        this(hints, new ReaderDispatcher.Statistics(), new ScanMetrics());
+    }
+
+    //statistics可以在多个引擎之间共享，各阶段耗时同时记入metrics
+    public DecodeEngine(Map<DecodeHintType, ?> hints, ReaderDispatcher.Statistics statistics, ScanMetrics metrics) {
+        this.hints = hints;
+        readerDispatcher = new ReaderDispatcher(hints, statistics);
+        this.metrics = metrics;
+        Map<DecodeHintType, Object> coarseHints = new EnumMap<DecodeHintType, Object>(DecodeHintType.class);
+        if (hints != null) {
+            coarseHints.putAll(hints);
+        }
+        candidates = new CandidateCounter(hints == null ? null : (ResultPointCallback) hints.get(DecodeHintType.NEED_RESULT_POINT_CALLBACK));
+        coarseHints.put(DecodeHintType.NEED_RESULT_POINT_CALLBACK, candidates);
+        coarseDispatcher = new ReaderDispatcher(coarseHints, statistics);
+        tiers = DecodeTiers.from(hints);
+        if (tiers != null && tiers.isEnabled(DecodeTiers.Tier.TRY_HARDER) && !hints.containsKey(DecodeHintType.TRY_HARDER)) {
+            Map<DecodeHintType, Object> tryHarderHints = new EnumMap<DecodeHintType, Object>(DecodeHintType.class);
+            tryHarderHints.putAll(hints);
+            tryHarderHints.put(DecodeHintType.TRY_HARDER, Boolean.TRUE);
+            tryHarderDispatcher = new ReaderDispatcher(tryHarderHints, statistics);
+        } else {
+            tryHarderDispatcher = null;
+        }
+    }
+
+    public ScanMetrics getMetrics() {
+        return metrics;
+    }
+
+    //预览帧清晰度低于这个值时不做二值化和解码，直接返回没有结果；0表示不过滤
+    public void setMinSharpness(int minSharpness) {
+        this.minSharpness = minSharpness;
+    }
+
+    //粗层没有候选点时每几帧在原图上试一次；大于1时省下没有条码的帧的原图解码，但小条码和一维码的识别率会下降，
+    //改之前先用FrameReplayer在录制的帧上比较识别率
+    public void setFullResolutionInterval(int interval) {
+        if (interval < 1) {
+            throw new IllegalArgumentException("Interval must be positive: " + interval);
+        }
+        fullResolutionInterval = interval;
+    }
+
+    //单码解码最多缩小几次，0表示只在原图上解码
+    public void setMaxPyramidLevel(int maxLevel) {
+        pyramid = maxLevel > 0 ? new LumaPyramid(maxLevel) : null;
+    }
+
+    //data是未旋转的帧，width、height是它的尺寸，region给出旋转角度和旋转之后的取景框
+    public DecodeResult decode(byte[] data, int width, int height, DecodeRegion region) {
+        long start = System.nanoTime();
+        LuminanceSource source = buildSource(data, width, height, region);//构造时检查取景框是否在帧内
+        if (isBlurred(data, width, height, region, start)) {
+            return new DecodeResult(DecodeResult.NO_RESULTS, null, 0, 0, 0, System.nanoTime() - start, null);
+        }
+        return decode(source, start, false);
+    }
+
+    //亮度平面在ByteBuffer中（直接缓冲区、内存映射的录制文件或Image的平面），按跨度直接读出取景框，不先复制整帧
+    //buffer当前的position是帧的起点；清晰度在取出的取景框矩阵上估计，模糊帧也要付出读取的开销
+    public DecodeResult decode(ByteBuffer luma, int width, int height, int rowStride, int pixelStride, DecodeRegion region) {
+        return decode(luma, width, height, rowStride, pixelStride, region, false);
+    }
+
+    //一帧多码，亮度平面在ByteBuffer中
+    public DecodeResult decodeMultiple(ByteBuffer luma, int width, int height, int rowStride, int pixelStride, DecodeRegion region) {
+        return decode(luma, width, height, rowStride, pixelStride, region, true);
+    }
+
+    private DecodeResult decode(ByteBuffer luma, int width, int height, int rowStride, int pixelStride, DecodeRegion region, boolean multiple) {
+        long start = System.nanoTime();
+        int area = region.getWidth() * region.getHeight();
+        ByteBufferLuminanceSource source = new ByteBufferLuminanceSource(luma, width, height, rowStride, pixelStride, region.getLeft(), region.getTop(), region.getWidth(), region.getHeight(), region.getRotation(), frameRotator.obtainBuffer(area));
+        byte[] matrix = source.getMatrix();
+        long rotated = System.nanoTime();
+        metrics.record(ScanMetrics.Stage.ROTATION, rotated - start);
+        if (minSharpness > 0) {
+            boolean blurred = SharpnessEstimator.estimate(matrix, region.getWidth(), region.getHeight(), DecodeRegion.fullFrame(0, region.getWidth(), region.getHeight())) < minSharpness;
+            metrics.record(ScanMetrics.Stage.SHARPNESS, System.nanoTime() - rotated);
+            if (blurred) {
+                return new DecodeResult(DecodeResult.NO_RESULTS, null, rotated - start, 0, 0, System.nanoTime() - start, null);
+            }
+        }
+        return decode(source, matrix, start, rotated, multiple);
+    }
+
+    //已经构建好的亮度源，例如从图片文件读取的
+    public DecodeResult decode(LuminanceSource source) {
+        return decode(source, System.nanoTime(), false);
+    }
+
+    //一帧多码：返回取景框中的所有条码
+    public DecodeResult decodeMultiple(byte[] data, int width, int height, DecodeRegion region) {
+        long start = System.nanoTime();
+        LuminanceSource source = buildSource(data, width, height, region);
+        if (isBlurred(data, width, height, region, start)) {
+            return new DecodeResult(DecodeResult.NO_RESULTS, null, 0, 0, 0, System.nanoTime() - start, null);
+        }
+        return decode(source, start, true);
+    }
+
+    //采样估计清晰度，耗时记入SHARPNESS
+    private boolean isBlurred(byte[] data, int width, int height, DecodeRegion region, long start) {
+        if (minSharpness <= 0) {
+            return false;
+        }
+        boolean blurred = SharpnessEstimator.estimate(data, width, height, region) < minSharpness;
+        metrics.record(ScanMetrics.Stage.SHARPNESS, System.nanoTime() - start);
+        return blurred;
+    }
+
+    private LuminanceSource buildSource(byte[] data, int width, int height, DecodeRegion region) {
+        return new RotatedYUVLuminanceSource(data, width, height, region.getLeft(), region.getTop(), region.getWidth(), region.getHeight(), region.getRotation(), frameRotator.obtainBuffer(region.getWidth() * region.getHeight()));
+    }
+
+    private DecodeResult decode(LuminanceSource source, long start, boolean multiple) {
+        //先取出取景框的亮度矩阵，再包装成不拷贝的亮度源，这样旋转、二值化和解码可以分开计时
+        byte[] matrix = source.getMatrix();
+        long rotated = System.nanoTime();
+        metrics.record(ScanMetrics.Stage.ROTATION, rotated - start);
+        return decode(source, matrix, start, rotated, multiple);
+    }
+
+    //matrix是source取出的亮度矩阵，rotated是取出完成的时间
+    private DecodeResult decode(LuminanceSource source, byte[] matrix, long start, long rotated, boolean multiple) {
+        dispatchFrame = readerDispatcher.getStatistics().nextFrame();
+        int width = source.getWidth();
+        int height = source.getHeight();
+        int levels = multiple || pyramid == null ? 1 : pyramid.build(matrix, width, height);
+        boolean probeFullResolution = levels > 1 && pyramidFrames++ % fullResolutionInterval == 0;
+        Result[] results = DecodeResult.NO_RESULTS;
+        BinarizerSelector.Kind winner = null;
+        binarizationNanos = 0;
+        decodeNanos = 0;
+        int level = levels - 1;
+        while (level >= 0) {
+            int factor = 1 << level;
+            byte[] levelMatrix = level == 0 ? matrix : pyramid.level(level);
+            int levelWidth = level == 0 ? width : pyramid.width(level);
+            int levelHeight = level == 0 ? height : pyramid.height(level);
+            LuminanceSource luminance = new PlanarYUVLuminanceSource(levelMatrix, levelWidth, levelHeight, 0, 0, levelWidth, levelHeight, false);
+            candidates.reset(factor);
+            //光线好、对比度高的帧先试全局直方图二值化，没解出来再用局部阈值
+            if (binarizerSelector.preferGlobal(levelMatrix, levelWidth, levelHeight)) {
+                results = attempt(new GlobalHistogramBinarizer(luminance), level == 0 ? readerDispatcher : coarseDispatcher, level, multiple);
+                winner = BinarizerSelector.Kind.GLOBAL_HISTOGRAM;
+                metrics.onBinarizerAttempt(winner, results.length > 0);
+            }
+            if (results.length == 0) {
+                results = attempt(new HybridBinarizer(luminance), level == 0 ? readerDispatcher : coarseDispatcher, level, multiple);
+                winner = BinarizerSelector.Kind.HYBRID;
+                metrics.onBinarizerAttempt(winner, results.length > 0);
+            }
+            if (results.length > 0 || level == 0) {
+                break;
+            }
+            //粗层找到了候选点就换细一层，否则直接换到原图（按间隔跳过时放弃本帧）
+            level = candidates.count > 0 ? level - 1 : probeFullResolution ? 0 : -1;
+        }
+        if (results.length == 0 && !multiple && tiers != null) {
+            results = retry(matrix, width, height, start);
+            if (results.length > 0) {
+                winner = BinarizerSelector.Kind.HYBRID;
+            }
+        }
+        long end = System.nanoTime();
+        metrics.record(ScanMetrics.Stage.BINARIZATION, binarizationNanos);
+        if (decodeNanos > 0) {
+            metrics.record(ScanMetrics.Stage.DECODE, decodeNanos);
+        }
+        return new DecodeResult(results, source, rotated - start, binarizationNanos, decodeNanos, end - start, results.length > 0 ? winner : null);
+    }
+
+    //快速解码失败后按顺序尝试各重试级别，直到解出条码；每一级的耗时按指数平均估计，用来判断预算是否够用
+    private Result[] retry(byte[] matrix, int width, int height, long start) {
+        long frame = tierFrames++;
+        for (DecodeTiers.Tier tier : DecodeTiers.Tier.values()) {
+            if (tier == DecodeTiers.Tier.TRY_HARDER && tryHarderDispatcher == null) {
+                continue;
+            }
+            long tierStart = System.nanoTime();
+            int index = tier.ordinal();
+            if (!tiers.shouldRun(tier, frame, tierStart - start, tierCostNanos[index])) {
+                continue;
+            }
+            Result[] results;
+            if (tier == DecodeTiers.Tier.TRY_HARDER) {
+                LuminanceSource luminance = new PlanarYUVLuminanceSource(matrix, width, height, 0, 0, width, height, false);
+                results = attempt(new HybridBinarizer(luminance), tryHarderDispatcher, 0, false);
+            } else {
+                results = attempt(new HybridBinarizer(inverted(matrix, width, height)), readerDispatcher, 0, false);
+            }
+            long cost = System.nanoTime() - tierStart;
+            tierCostNanos[index] = tierCostNanos[index] == 0 ? cost : (tierCostNanos[index] * 3 + cost) / 4;
+            metrics.onTierAttempt(tier, results.length > 0);
+            if (results.length > 0) {
+                return results;
+            }
+        }
+        return DecodeResult.NO_RESULTS;
+    }
+
+    //亮度取反，缓冲区在帧之间复用
+    private LuminanceSource inverted(byte[] matrix, int width, int height) {
+        int size = width * height;
+        if (invertedBuffer == null || invertedBuffer.length < size) {
+            invertedBuffer = new byte[size];
+        }
+        for (int i = 0; i < size; i++) {
+            invertedBuffer[i] = (byte) (255 - (matrix[i] & 0xff));
+        }
+        return new PlanarYUVLuminanceSource(invertedBuffer, width, height, 0, 0, width, height, false);
+    }
+
+    //用一种二值化解码一层，二值化和解码的耗时累加到本帧；BinaryBitmap缓存二值化结果，各阅读器共用同一个BitMatrix
+    //粗层（level大于0）的结果点换算回原图坐标
+    private Result[] attempt(Binarizer binarizer, ReaderDispatcher dispatcher, int level, boolean multiple) {
+        long attemptStart = System.nanoTime();
+        BinaryBitmap bitmap = new BinaryBitmap(binarizer);
+        long binarized = 0;
+        Result[] results = DecodeResult.NO_RESULTS;
+        try {
+            bitmap.getBlackMatrix();
+            binarized = System.nanoTime();
+            if (multiple) {
+                if (multiBarcodeReader == null) {
+                    multiBarcodeReader = new MultiBarcodeReader(hints);
+                }
+                results = multiBarcodeReader.decodeMultiple(bitmap);
+            } else if (level == 0) {
+                results = new Result[]{dispatcher.decode(bitmap, dispatchFrame)};
+            } else {
+                results = new Result[]{scaled(dispatcher.decode(bitmap, dispatchFrame), 1 << level)};
+            }
+        } catch (NotFoundException nfe) {
+        }
+        long attemptEnd = System.nanoTime();
+        if (binarized == 0) {
+            binarizationNanos += attemptEnd - attemptStart;
+        } else {
+            binarizationNanos += binarized - attemptStart;
+            decodeNanos += attemptEnd - binarized;
+        }
+        return results;
+    }
+
+    //粗层的结果点坐标换算回原图
+    private static Result scaled(Result result, int factor) {
+        ResultPoint[] points = result.getResultPoints();
+        if (points == null) {
+            return result;
+        }
+        ResultPoint[] scaledPoints = new ResultPoint[points.length];
+        for (int i = 0; i < points.length; i++) {
+            scaledPoints[i] = points[i] == null ? null : new ResultPoint(points[i].getX() * factor, points[i].getY() * factor);
+        }
+        Result copy = new Result(result.getText(), result.getRawBytes(), scaledPoints, result.getBarcodeFormat(), result.getTimestamp());
+        copy.putAllMetadata(result.getResultMetadata());
+        return copy;
+    }
+
+    //粗层的候选点回调：记下个数，换算回原图坐标后转给原来的回调
+    private static final class CandidateCounter implements ResultPointCallback {
+
+        private final ResultPointCallback downstream;
+        private int count;
+        private int factor = 1;
+
+        CandidateCounter(ResultPointCallback downstream) {
+            this.downstream = downstream;
+        }
+
+        void reset(int factor) {
+            this.factor = factor;
+            count = 0;
+        }
+
+        @Override
+        public void foundPossibleResultPoint(ResultPoint point) {
+            count++;
+            if (downstream != null) {
+                downstream.foundPossibleResultPoint(new ResultPoint(point.getX() * factor, point.getY() * factor));
+            }
+        }
+    }
+
+}
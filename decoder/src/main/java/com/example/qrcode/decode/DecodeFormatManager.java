@@ -0,0 +1,78 @@
+package com.example.qrcode.decode;
+
+import com.google.zxing.BarcodeFormat;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+public final class DecodeFormatManager {
+
+    private static final Pattern COMMA_PATTERN = Pattern.compile(",");
+
+    //扫描模式的取值，Intents.Scan.MODE和批量解码的--mode都用这些名称
+    public static final String PRODUCT_MODE = "PRODUCT_MODE";
+    public static final String ONE_D_MODE = "ONE_D_MODE";
+    public static final String QR_CODE_MODE = "QR_CODE_MODE";
+    public static final String DATA_MATRIX_MODE = "DATA_MATRIX_MODE";
+    public static final String AZTEC_MODE = "AZTEC_MODE";
+    public static final String PDF417_MODE = "PDF417_MODE";
+
+    public static final Set<BarcodeFormat> PRODUCT_FORMATS;
+    public static final Set<BarcodeFormat> INDUSTRIAL_FORMATS;
+    public static final Set<BarcodeFormat> ONE_D_FORMATS;
+    public static final Set<BarcodeFormat> QR_CODE_FORMATS = EnumSet.of(BarcodeFormat.QR_CODE);
+    public static final Set<BarcodeFormat> DATA_MATRIX_FORMATS = EnumSet.of(BarcodeFormat.DATA_MATRIX);
+    public static final Set<BarcodeFormat> AZTEC_FORMATS = EnumSet.of(BarcodeFormat.AZTEC);
+    public static final Set<BarcodeFormat> PDF417_FORMATS = EnumSet.of(BarcodeFormat.PDF_417);
+    static {
+        PRODUCT_FORMATS = EnumSet.of(BarcodeFormat.UPC_A, BarcodeFormat.UPC_E, BarcodeFormat.EAN_13, BarcodeFormat.EAN_8, BarcodeFormat.RSS_14, BarcodeFormat.RSS_EXPANDED);
+        INDUSTRIAL_FORMATS = EnumSet.of(BarcodeFormat.CODE_39, BarcodeFormat.CODE_93, BarcodeFormat.CODE_128, BarcodeFormat.ITF, BarcodeFormat.CODABAR);
+        ONE_D_FORMATS = EnumSet.copyOf(PRODUCT_FORMATS);
+        ONE_D_FORMATS.addAll(INDUSTRIAL_FORMATS);
+    }
+
+    private static final Map<String, Set<BarcodeFormat>> FORMATS_FOR_MODE;
+
+    static {
+        FORMATS_FOR_MODE = new HashMap<String, Set<BarcodeFormat>>();
+        FORMATS_FOR_MODE.put(ONE_D_MODE, ONE_D_FORMATS);
+        FORMATS_FOR_MODE.put(PRODUCT_MODE, PRODUCT_FORMATS);
+        FORMATS_FOR_MODE.put(QR_CODE_MODE, QR_CODE_FORMATS);
+        FORMATS_FOR_MODE.put(DATA_MATRIX_MODE, DATA_MATRIX_FORMATS);
+        FORMATS_FOR_MODE.put(AZTEC_MODE, AZTEC_FORMATS);
+        FORMATS_FOR_MODE.put(PDF417_MODE, PDF417_FORMATS);
+    }
+
+    private DecodeFormatManager() {
+    }
+
+    //解析调用方指定的格式：scanFormats为逗号分隔的BarcodeFormat名称，优先于decodeMode；
+    //名称无法识别时退回decodeMode，都没有指定时返回null，由DecodeThread读取设置中的格式
+    public static Set<BarcodeFormat> parseDecodeFormats(String scanFormats, String decodeMode) {
+        if (scanFormats != null) {
+            Set<BarcodeFormat> formats = EnumSet.noneOf(BarcodeFormat.class);
+            try {
+                for (String format : Arrays.asList(COMMA_PATTERN.split(scanFormats))) {
+                    formats.add(BarcodeFormat.valueOf(format.trim()));
+                }
+                if (!formats.isEmpty()) {
+                    return formats;
+                }
+            } catch (IllegalArgumentException iae) {
+                //忽略，按模式处理
+            }
+        }
+        if (decodeMode != null) {
+            Set<BarcodeFormat> formats = FORMATS_FOR_MODE.get(decodeMode);
+            if (formats != null) {
+                return EnumSet.copyOf(formats);
+            }
+        }
+        return null;
+    }
+
+}
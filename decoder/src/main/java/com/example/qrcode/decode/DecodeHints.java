@@ -0,0 +1,44 @@
+package com.example.qrcode.decode;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.DecodeHintType;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+//解码提示的公共设置，相机扫描（DecodeThread）和批量解码共用
+public final class DecodeHints {
+
+    private DecodeHints() {
+    }
+
+    //没有指定格式也没有设置时启用的格式，与设置页的默认值一致：一维码、二维码和Data Matrix
+    public static Set<BarcodeFormat> defaultFormats() {
+        Set<BarcodeFormat> formats = EnumSet.noneOf(BarcodeFormat.class);
+        formats.addAll(DecodeFormatManager.PRODUCT_FORMATS);
+        formats.addAll(DecodeFormatManager.INDUSTRIAL_FORMATS);
+        formats.addAll(DecodeFormatManager.QR_CODE_FORMATS);
+        formats.addAll(DecodeFormatManager.DATA_MATRIX_FORMATS);
+        return formats;
+    }
+
+    //baseHints可为null；decodeFormats为空时使用defaultFormats()；characterSet为null时不设置
+    public static Map<DecodeHintType, Object> create(Collection<BarcodeFormat> decodeFormats, Map<DecodeHintType, ?> baseHints, String characterSet) {
+        Map<DecodeHintType, Object> hints = new EnumMap<DecodeHintType, Object>(DecodeHintType.class);
+        if (baseHints != null) {
+            hints.putAll(baseHints);
+        }
+        if (decodeFormats == null || decodeFormats.isEmpty()) {
+            decodeFormats = defaultFormats();
+        }
+        hints.put(DecodeHintType.POSSIBLE_FORMATS, decodeFormats);
+        if (characterSet != null) {
+            hints.put(DecodeHintType.CHARACTER_SET, characterSet);
+        }
+        return hints;
+    }
+
+}
@@ -0,0 +1,51 @@
+package com.example.qrcode.decode;
+
+//解码区域：顺时针旋转角度（0、90、180、270）和旋转之后坐标系中的取景框
+public final class DecodeRegion {
+
+    private final int rotation;
+    private final int left;
+    private final int top;
+    private final int width;
+    private final int height;
+
+    public DecodeRegion(int rotation, int left, int top, int width, int height) {
+        this.rotation = rotation;
+        this.left = left;
+        this.top = top;
+        this.width = width;
+        this.height = height;
+    }
+
+    //整帧，frameWidth、frameHeight是旋转之前的帧尺寸
+    public static DecodeRegion fullFrame(int rotation, int frameWidth, int frameHeight) {
+        boolean swapped = rotation == 90 || rotation == 270;
+        return new DecodeRegion(rotation, 0, 0, swapped ? frameHeight : frameWidth, swapped ? frameWidth : frameHeight);
+    }
+
+    public int getRotation() {
+        return rotation;
+    }
+
+    public int getLeft() {
+        return left;
+    }
+
+    public int getTop() {
+        return top;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public String toString() {
+        return "DecodeRegion[rotation=" + rotation + ", " + left + "," + top + " " + width + "x" + height + "]";
+    }
+
+}
@@ -0,0 +1,72 @@
+package com.example.qrcode.decode;
+
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.Result;
+
+//一帧的解码结果和各阶段耗时（纳秒），没有找到条码时getResult()为null；一帧多码模式下getResults()返回所有条码
+public final class DecodeResult {
+
+    static final Result[] NO_RESULTS = new Result[0];
+
+    private final Result[] results;
+    private final LuminanceSource source;
+    private final long rotationNanos;//取出取景框亮度矩阵，包括旋转
+    private final long binarizationNanos;
+    private final long decodeNanos;
+    private final long totalNanos;
+    private final BinarizerSelector.Kind binarizer;//解出结果的二值化方式
+
+    DecodeResult(Result[] results, LuminanceSource source, long rotationNanos, long binarizationNanos, long decodeNanos, long totalNanos, BinarizerSelector.Kind binarizer) {
+        this.results = results;
+        this.source = source;
+        this.rotationNanos = rotationNanos;
+        this.binarizationNanos = binarizationNanos;
+        this.decodeNanos = decodeNanos;
+        this.totalNanos = totalNanos;
+        this.binarizer = binarizer;
+    }
+
+    public boolean isFound() {
+        return results.length > 0;
+    }
+
+    public Result getResult() {
+        return results.length > 0 ? results[0] : null;
+    }
+
+    public Result[] getResults() {
+        return results.clone();
+    }
+
+    //同样的耗时，换成过滤之后的结果
+    DecodeResult withResults(Result[] filtered) {
+        return new DecodeResult(filtered, source, rotationNanos, binarizationNanos, decodeNanos, totalNanos, binarizer);
+    }
+
+    //解码用的亮度源，可以用来生成缩略图；它引用的帧数据被回收之后不能再使用；帧因模糊被跳过时为null
+    public LuminanceSource getSource() {
+        return source;
+    }
+
+    public long getRotationNanos() {
+        return rotationNanos;
+    }
+
+    public long getBinarizationNanos() {
+        return binarizationNanos;
+    }
+
+    public long getDecodeNanos() {
+        return decodeNanos;
+    }
+
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    //没有找到条码时为null
+    public BinarizerSelector.Kind getBinarizer() {
+        return binarizer;
+    }
+
+}
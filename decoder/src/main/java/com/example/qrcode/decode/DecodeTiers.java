@@ -0,0 +1,101 @@
+package com.example.qrcode.decode;
+
+import com.google.zxing.DecodeHintType;
+
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+//分级解码策略：每帧先做快速解码，没解出来时再按顺序尝试各个重试级别
+//重试级别每interval帧必做一次，其他帧只在本帧已用时间加上这一级的预计耗时不超过预算时才做；
+//通过DecodeHintType.OTHER放进解码提示，不可变，可以在多个解码线程之间共享
+public final class DecodeTiers {
+
+    //重试级别，声明顺序就是尝试顺序
+    public enum Tier {
+        TRY_HARDER,//打开TRY_HARDER重新解码原图
+        INVERTED//亮度取反后解码，识别深色底上的浅色条码（如屏幕上显示的）
+    }
+
+    public static final int DEFAULT_INTERVAL = 4;
+    public static final long DEFAULT_BUDGET_MILLIS = 50;//和预览帧间隔相当，超出后重试会拖慢下一帧
+
+    private final Set<Tier> enabled;
+    private final int interval;
+    private final long budgetNanos;
+
+    //interval为0时不强制重试，budgetMillis为0时不按预算重试
+    public DecodeTiers(Collection<Tier> enabled, int interval, long budgetMillis) {
+        if (interval < 0) {
+            throw new IllegalArgumentException("Interval must not be negative: " + interval);
+        }
+        if (budgetMillis < 0) {
+            throw new IllegalArgumentException("Budget must not be negative: " + budgetMillis);
+        }
+        this.enabled = enabled.isEmpty() ? EnumSet.noneOf(Tier.class) : EnumSet.copyOf(enabled);
+        this.interval = interval;
+        budgetNanos = TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+    }
+
+    //所有级别都启用，使用默认间隔和预算
+    public static DecodeTiers defaults() {
+        return new DecodeTiers(EnumSet.allOf(Tier.class), DEFAULT_INTERVAL, DEFAULT_BUDGET_MILLIS);
+    }
+
+    //放进解码提示，DecodeEngine从中取出
+    public static void put(Map<DecodeHintType, Object> hints, DecodeTiers tiers) {
+        hints.put(DecodeHintType.OTHER, tiers);
+    }
+
+    //提示中没有分级策略时返回null，只做快速解码
+    public static DecodeTiers from(Map<DecodeHintType, ?> hints) {
+        Object other = hints == null ? null : hints.get(DecodeHintType.OTHER);
+        return other instanceof DecodeTiers ? (DecodeTiers) other : null;
+    }
+
+    public boolean isEnabled(Tier tier) {
+        return enabled.contains(tier);
+    }
+
+    public int getInterval() {
+        return interval;
+    }
+
+    public long getBudgetNanos() {
+        return budgetNanos;
+    }
+
+    //frame为引擎的帧序号，elapsedNanos为本帧已用时间，estimatedNanos为这一级最近的平均耗时
+    boolean shouldRun(Tier tier, long frame, long elapsedNanos, long estimatedNanos) {
+        if (!enabled.contains(tier)) {
+            return false;
+        }
+        if (interval > 0 && frame % interval == 0) {
+            return true;
+        }
+        return budgetNanos > 0 && elapsedNanos + estimatedNanos <= budgetNanos;
+    }
+
+    //按值比较，停放的解码线程池据此判断解码提示是否相同
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof DecodeTiers)) {
+            return false;
+        }
+        DecodeTiers other = (DecodeTiers) o;
+        return enabled.equals(other.enabled) && interval == other.interval && budgetNanos == other.budgetNanos;
+    }
+
+    @Override
+    public int hashCode() {
+        return (enabled.hashCode() * 31 + interval) * 31 + (int) (budgetNanos ^ (budgetNanos >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        return "DecodeTiers" + enabled + " interval=" + interval + " budget=" + TimeUnit.NANOSECONDS.toMillis(budgetNanos) + "ms";
+    }
+
+}
@@ -0,0 +1,426 @@
+package com.example.qrcode.decode;
+
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.Result;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+//解码工作线程池：每个线程有自己的DecodeEngine，帧按轮询分发，每个线程只保留一帧待解码，满了丢弃最旧的帧
+//只要有一个线程解码成功，同一批次中其他线程的帧就全部作废；一帧多码模式下每帧都解码，结果跨帧去重后上报
+//连续扫描时传入去重器，时间窗口内重复的结果按失败处理，不会结束这一批次
+//线程池可以停放：解除和界面的绑定后线程保持等待，下次扫码重新绑定，不必重建线程、阅读器和缓冲区
+//帧可以是byte[]（NV21等，开头是紧凑的亮度平面）或LumaBuffer（例如Camera2图像的Y平面，不复制），用完后按原来的类型归还
+public final class DecodeWorkerPool {
+
+    private static final int MAX_DEFAULT_WORKERS = 4;
+
+    //由调用方根据取景框和旋转方向给出解码区域，在工作线程中调用；返回null表示还不能解码，这一帧按失败处理
+    public interface RegionProvider {
+        DecodeRegion regionFor(int width, int height);
+    }
+
+    //回调在工作线程或提交帧的线程中执行
+    public interface Callback {
+        void onDecodeSucceeded(DecodeResult result);
+
+        //decodeNanos为这一帧的解码耗时，没有真正解码时为0
+        void onDecodeFailed(long decodeNanos);
+
+        //线程池不再使用这一帧（已解码、被丢弃或被取消），调用方可以回收它的缓冲区
+        void onFrameReleased(byte[] data);
+
+        //同上，用submit(LumaBuffer, long)提交的帧；调用方在这里关闭图像，之后不能再读取它的buffer
+        void onFrameReleased(LumaBuffer frame);
+    }
+
+    //一次扫码的绑定：区域来源、回调、是否一帧多码和去重器；帧在提交时记下绑定，之后一直用它回调
+    private static final class Binding {
+        final RegionProvider regionProvider;
+        final Callback callback;
+        final boolean multiple;
+        final ResultDeduplicator deduplicator;//跨帧去重，可为null
+
+        Binding(RegionProvider regionProvider, Callback callback, boolean multiple, ResultDeduplicator deduplicator) {
+            this.regionProvider = regionProvider;
+            this.callback = callback;
+            this.multiple = multiple;
+            this.deduplicator = deduplicator;
+        }
+    }
+
+    private final Worker[] workers;
+    private final Map<DecodeHintType, Object> hints;
+    private final ScanMetrics metrics;
+    private Binding binding;//停放时为null
+    private final ReaderDispatcher.Statistics formatStatistics = new ReaderDispatcher.Statistics();//各线程共享的格式命中统计
+    private final AtomicLong generation = new AtomicLong();//解码成功后加一，旧批次的帧随之作废
+    private final AtomicInteger droppedFrames = new AtomicInteger();
+    private long sequence;//帧序号，用来找出最旧的待解码帧
+    private int nextWorker;//轮询下标
+
+    public DecodeWorkerPool(int size, Map<DecodeHintType, Object> hints, RegionProvider regionProvider, Callback callback, ScanMetrics metrics) {
+        this(size, hints, regionProvider, callback, metrics, false, null);
+    }
+
+    //multiple为一帧多码模式，成功回调只带新出现的条码，没有新条码的帧按失败回调；
+    //deduplicator为null时不去重，一帧多码模式必须提供
+    public DecodeWorkerPool(int size, Map<DecodeHintType, Object> hints, RegionProvider regionProvider, Callback callback, ScanMetrics metrics, boolean multiple, ResultDeduplicator deduplicator) {
+        this(size, hints, metrics);
+        attach(regionProvider, callback, multiple, deduplicator);
+    }
+
+    //创建后处于停放状态，attach之后才能提交帧；可以提前创建，让线程和阅读器在扫码前就准备好
+    public DecodeWorkerPool(int size, Map<DecodeHintType, Object> hints, ScanMetrics metrics) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Pool size must be positive: " + size);
+        }
+        this.hints = hints;
+        this.metrics = metrics;
+        workers = new Worker[size];
+        for (int i = 0; i < size; i++) {
+            workers[i] = new Worker(i, hints);
+        }
+        for (Worker worker : workers) {
+            worker.thread.start();
+        }
+    }
+
+    //绑定到一次扫码；multiple为一帧多码模式，成功回调只带新出现的条码，没有新条码的帧按失败回调；
+    //deduplicator为null时不去重，一帧多码模式必须提供
+    public synchronized void attach(RegionProvider regionProvider, Callback callback, boolean multiple, ResultDeduplicator deduplicator) {
+        if (multiple && deduplicator == null) {
+            throw new IllegalArgumentException("Multiple mode needs a deduplicator");
+        }
+        if (binding != null) {
+            throw new IllegalStateException("Pool is already attached");
+        }
+        binding = new Binding(regionProvider, callback, multiple, deduplicator);
+    }
+
+    //解除绑定：待解码的帧通过原来的回调归还，正在解码的帧的结果作废；线程保持等待，可以再次attach
+    public void park() {
+        Binding old;
+        synchronized (this) {
+            old = binding;
+            binding = null;
+        }
+        generation.incrementAndGet();
+        if (old == null) {
+            return;
+        }
+        for (Worker worker : workers) {
+            Object pending = worker.cancelPendingBefore(generation.get());
+            if (pending != null) {
+                release(old.callback, pending);
+            }
+        }
+    }
+
+    public synchronized boolean isParked() {
+        return binding == null;
+    }
+
+    //创建时的解码提示，判断停放的线程池能否用于新的扫码
+    public Map<DecodeHintType, Object> getHints() {
+        return hints;
+    }
+
+    //默认线程数：留一个核心给UI和相机，最多4个
+    public static int defaultPoolSize() {
+        int cores = Runtime.getRuntime().availableProcessors();
+        return Math.max(1, Math.min(cores - 1, MAX_DEFAULT_WORKERS));
+    }
+
+    public int size() {
+        return workers.length;
+    }
+
+    public void submit(byte[] data, int width, int height) {
+        submit(data, width, height, System.nanoTime());
+    }
+
+    //提交一帧：优先交给空闲线程，其次交给没有待解码帧的线程，都满了就替换最旧的待解码帧
+    //arrivalNanos是帧到达的时间，用来统计排队等待
+    public synchronized void submit(byte[] data, int width, int height, long arrivalNanos) {
+        dispatch(data, width, height, arrivalNanos);
+    }
+
+    //提交ByteBuffer中的一帧亮度平面，规则同上；解码直接读取buffer，用完后通过onFrameReleased(LumaBuffer)归还
+    public synchronized void submit(LumaBuffer frame, long arrivalNanos) {
+        dispatch(frame, frame.getWidth(), frame.getHeight(), arrivalNanos);
+    }
+
+    //frame为byte[]或LumaBuffer
+    private void dispatch(Object frame, int width, int height, long arrivalNanos) {
+        if (binding == null) {
+            throw new IllegalStateException("Pool is parked");
+        }
+        int count = workers.length;
+        int chosen = -1;
+        for (int i = 0; i < count && chosen < 0; i++) {
+            int index = (nextWorker + i) % count;
+            if (workers[index].isIdle()) {
+                chosen = index;
+            }
+        }
+        for (int i = 0; i < count && chosen < 0; i++) {
+            int index = (nextWorker + i) % count;
+            if (!workers[index].hasPending()) {
+                chosen = index;
+            }
+        }
+        if (chosen < 0) {
+            chosen = nextWorker;
+            for (int i = 0; i < count; i++) {
+                if (workers[i].pendingSequence() < workers[chosen].pendingSequence()) {
+                    chosen = i;
+                }
+            }
+        }
+        nextWorker = (chosen + 1) % count;
+        Object dropped = workers[chosen].offer(frame, width, height, arrivalNanos, generation.get(), sequence++);
+        if (dropped != null) {
+            droppedFrames.incrementAndGet();
+            release(binding.callback, dropped);
+        }
+    }
+
+    //是否还有线程既没有在解码也没有待解码的帧
+    public boolean hasIdleWorker() {
+        for (Worker worker : workers) {
+            if (worker.isIdle()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public ReaderDispatcher.Statistics getFormatStatistics() {
+        return formatStatistics;
+    }
+
+    public int getDroppedFrames() {
+        return droppedFrames.get();
+    }
+
+    //停止所有线程，最多等待timeoutMillis
+    public void shutdown(long timeoutMillis) {
+        Binding current;
+        synchronized (this) {
+            current = binding;
+        }
+        for (Worker worker : workers) {
+            Object pending = worker.quit();
+            if (pending != null && current != null) {
+                release(current.callback, pending);
+            }
+        }
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        for (Worker worker : workers) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                break;
+            }
+            try {
+                worker.thread.join(remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    //解码成功后清掉其他线程中属于旧批次的待解码帧
+    private void cancelStalePending(Callback callback) {
+        long current = generation.get();
+        for (Worker worker : workers) {
+            Object cancelled = worker.cancelPendingBefore(current);
+            if (cancelled != null) {
+                release(callback, cancelled);
+            }
+        }
+    }
+
+    //按帧的类型归还
+    private static void release(Callback callback, Object frame) {
+        if (frame instanceof LumaBuffer) {
+            callback.onFrameReleased((LumaBuffer) frame);
+        } else {
+            callback.onFrameReleased((byte[]) frame);
+        }
+    }
+
+    private final class Worker implements Runnable {
+
+        private final Thread thread;
+        private final DecodeEngine engine;//每个线程自己的阅读器和亮度矩阵缓冲区
+        private boolean running = true;
+        private boolean decoding;
+        private Object pendingFrame;//byte[]或LumaBuffer
+        private int pendingWidth;
+        private int pendingHeight;
+        private long pendingArrival;
+        private long pendingGeneration;
+        private long pendingSequence;
+        private Binding pendingBinding;
+
+        Worker(int index, Map<DecodeHintType, Object> hints) {
+            thread = new Thread(this, "DecodeWorker-" + index);
+            engine = new DecodeEngine(hints, formatStatistics, metrics);
+        }
+
+        synchronized boolean isIdle() {
+            return !decoding && pendingFrame == null;
+        }
+
+        synchronized boolean hasPending() {
+            return pendingFrame != null;
+        }
+
+        synchronized long pendingSequence() {
+            return pendingFrame == null ? Long.MAX_VALUE : pendingSequence;
+        }
+
+        //放入待解码帧，返回被替换掉的帧，没有则返回null
+        synchronized Object offer(Object frame, int width, int height, long arrivalNanos, long frameGeneration, long frameSequence) {
+            Object dropped = pendingFrame;
+            pendingFrame = frame;
+            pendingWidth = width;
+            pendingHeight = height;
+            pendingArrival = arrivalNanos;
+            pendingGeneration = frameGeneration;
+            pendingSequence = frameSequence;
+            pendingBinding = binding;
+            notifyAll();
+            return dropped;
+        }
+
+        //取消旧批次的待解码帧，返回被取消的帧
+        synchronized Object cancelPendingBefore(long currentGeneration) {
+            Object cancelled = null;
+            if (pendingFrame != null && pendingGeneration < currentGeneration) {
+                cancelled = pendingFrame;
+                pendingFrame = null;
+            }
+            return cancelled;
+        }
+
+        //返回还没来得及解码的帧
+        synchronized Object quit() {
+            running = false;
+            Object pending = pendingFrame;
+            pendingFrame = null;
+            notifyAll();
+            return pending;
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                Object frame;
+                int width;
+                int height;
+                long arrivalNanos;
+                long frameGeneration;
+                Binding frameBinding;
+                synchronized (this) {
+                    while (running && pendingFrame == null) {
+                        try {
+                            wait();
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                    }
+                    if (!running) {
+                        return;
+                    }
+                    frame = pendingFrame;
+                    width = pendingWidth;
+                    height = pendingHeight;
+                    arrivalNanos = pendingArrival;
+                    frameGeneration = pendingGeneration;
+                    frameBinding = pendingBinding;
+                    pendingFrame = null;
+                    pendingBinding = null;
+                    decoding = true;
+                }
+                try {
+                    decode(frame, width, height, arrivalNanos, frameGeneration, frameBinding);
+                } finally {
+                    //先归还缓冲区再标记空闲，下一帧请求时相机手里才有缓冲区可用
+                    release(frameBinding.callback, frame);
+                    synchronized (this) {
+                        decoding = false;
+                    }
+                }
+            }
+        }
+
+        private void decode(Object frame, int width, int height, long arrivalNanos, long frameGeneration, Binding frameBinding) {
+            if (frameGeneration != generation.get()) {
+                return;
+            }
+            metrics.record(ScanMetrics.Stage.QUEUE_WAIT, System.nanoTime() - arrivalNanos);
+            DecodeRegion region = frameBinding.regionProvider.regionFor(width, height);
+            Callback callback = frameBinding.callback;
+            ResultDeduplicator deduplicator = frameBinding.deduplicator;
+            if (frameBinding.multiple) {
+                decodeMultiple(frame, width, height, region, frameGeneration, frameBinding);
+                return;
+            }
+            DecodeResult result = region == null ? null : decodeFrame(frame, width, height, region, false);
+
+            //先只查询去重器再抢批次号，重复的结果不会让其他线程的帧作废
+            boolean found = result != null && result.isFound();
+            if (found && (deduplicator == null || !deduplicator.containsAll(result.getResults()))) {
+                //只有第一个成功的线程能把批次号加一，其余的结果直接丢弃；
+                //抢到之后才记入去重器，没抢到的条码下一帧还能上报
+                if (generation.compareAndSet(frameGeneration, frameGeneration + 1)) {
+                    if (deduplicator != null) {
+                        deduplicator.filter(result.getResults());
+                    }
+                    cancelStalePending(callback);
+                    callback.onDecodeSucceeded(result);
+                }
+                return;
+            }
+            if (found) {
+                //重复的条码还在画面中，刷新它的时间
+                deduplicator.filter(result.getResults());
+            }
+            if (frameGeneration == generation.get()) {
+                callback.onDecodeFailed(result == null ? 0 : result.getTotalNanos());
+            }
+        }
+
+        private void decodeMultiple(Object frame, int width, int height, DecodeRegion region, long frameGeneration, Binding frameBinding) {
+            DecodeResult result = region == null ? null : decodeFrame(frame, width, height, region, true);
+            Callback callback = frameBinding.callback;
+            Result[] fresh = frameBinding.deduplicator.filter(result == null ? DecodeResult.NO_RESULTS : result.getResults());
+            if (frameGeneration != generation.get()) {
+                //解码期间线程池被停放
+                return;
+            }
+            if (fresh.length > 0) {
+                callback.onDecodeSucceeded(result.withResults(fresh));
+            } else {
+                callback.onDecodeFailed(result == null ? 0 : result.getTotalNanos());
+            }
+        }
+
+        //按帧的类型选择引擎的入口
+        private DecodeResult decodeFrame(Object frame, int width, int height, DecodeRegion region, boolean multiple) {
+            if (frame instanceof LumaBuffer) {
+                LumaBuffer luma = (LumaBuffer) frame;
+                return multiple
+                        ? engine.decodeMultiple(luma.getBuffer(), width, height, luma.getRowStride(), luma.getPixelStride(), region)
+                        : engine.decode(luma.getBuffer(), width, height, luma.getRowStride(), luma.getPixelStride(), region);
+            }
+            byte[] data = (byte[]) frame;
+            return multiple ? engine.decodeMultiple(data, width, height, region) : engine.decode(data, width, height, region);
+        }
+    }
+
+}
\ No newline at end of file
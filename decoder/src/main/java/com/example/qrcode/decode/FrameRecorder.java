@@ -0,0 +1,95 @@
+package com.example.qrcode.decode;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+//把预览帧追加到录制文件，格式见FrameRecording；已有的文件接着追加，结尾不完整的记录先截掉
+//每帧一次聚集写入，记录头缓冲区复用；同步写文件，调用方负责放到后台线程；不是线程安全的
+public final class FrameRecorder implements Closeable {
+
+    public static final long DEFAULT_MAX_BYTES = 512L * 1024 * 1024;//1080p的NV21约170帧
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final long maxBytes;
+    private final ByteBuffer header = ByteBuffer.allocate(FrameRecording.RECORD_HEADER_BYTES);
+    private final ByteBuffer[] record = new ByteBuffer[2];
+    private long size;
+    private int frames;
+
+    //maxBytes为文件大小上限，不能超过2GB，否则读取时无法整体映射
+    public FrameRecorder(File path, long maxBytes) throws IOException {
+        if (maxBytes <= FrameRecording.FILE_HEADER_BYTES || maxBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid size limit: " + maxBytes);
+        }
+        this.maxBytes = maxBytes;
+        file = new RandomAccessFile(path, "rw");
+        channel = file.getChannel();
+        try {
+            if (channel.size() == 0) {
+                ByteBuffer fileHeader = ByteBuffer.allocate(FrameRecording.FILE_HEADER_BYTES);
+                fileHeader.putInt(FrameRecording.MAGIC).putInt(FrameRecording.VERSION).flip();
+                writeFully(fileHeader);
+                size = FrameRecording.FILE_HEADER_BYTES;
+            } else {
+                FrameRecording existing = FrameRecording.open(path);
+                size = existing.getValidLength();
+                frames = existing.getFrameCount();
+                channel.truncate(size);
+            }
+            channel.position(size);
+        } catch (IOException ioe) {
+            file.close();
+            throw ioe;
+        }
+    }
+
+    //追加一帧，data的前length字节是帧数据，region为null表示还没有取景框；超出大小上限时不写入，返回false
+    public boolean append(byte[] data, int length, int width, int height, DecodeRegion region, long timestampNanos) throws IOException {
+        long recordBytes = FrameRecording.RECORD_HEADER_BYTES + (long) length;
+        if (size + recordBytes > maxBytes) {
+            return false;
+        }
+        header.clear();
+        header.putInt(length).putLong(timestampNanos).putInt(width).putInt(height);
+        if (region != null) {
+            header.putInt(region.getRotation()).putInt(region.getLeft()).putInt(region.getTop()).putInt(region.getWidth()).putInt(region.getHeight());
+        } else {
+            header.putInt(0).putInt(0).putInt(0).putInt(0).putInt(0);
+        }
+        header.flip();
+        record[0] = header;
+        record[1] = ByteBuffer.wrap(data, 0, length);
+        while (record[1].hasRemaining()) {
+            channel.write(record);
+        }
+        record[1] = null;
+        size += recordBytes;
+        frames++;
+        return true;
+    }
+
+    public int getFrameCount() {
+        return frames;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+}
@@ -0,0 +1,147 @@
+package com.example.qrcode.decode;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+//预览帧录制文件：只追加写入，读取时整个文件映射到内存，帧数据不复制
+//文件头为MAGIC和VERSION；之后每帧一条记录：数据长度、时间戳、帧宽高、旋转角度、取景框（旋转后的left、top、width、height），再跟原始帧数据（NV21）
+//整数都是大端；录制中途退出时最后一条记录可能不完整，读取时忽略，FrameRecorder再次打开时截掉
+public final class FrameRecording {
+
+    static final int MAGIC = 0x51524652;//"QRFR"
+    static final int VERSION = 1;
+    static final int FILE_HEADER_BYTES = 8;
+    static final int RECORD_HEADER_BYTES = 40;
+    public static final String FILE_SUFFIX = ".frames";
+
+    private final ByteBuffer data;
+    private final int[] offsets;//各帧记录头的位置
+    private final int frameCount;
+    private final int validLength;//最后一条完整记录的结尾
+
+    private FrameRecording(ByteBuffer data) throws IOException {
+        this.data = data;
+        if (data.limit() < FILE_HEADER_BYTES || data.getInt(0) != MAGIC) {
+            throw new IOException("Not a frame recording");
+        }
+        if (data.getInt(4) != VERSION) {
+            throw new IOException("Unsupported frame recording version: " + data.getInt(4));
+        }
+        int[] found = new int[64];
+        int count = 0;
+        int offset = FILE_HEADER_BYTES;
+        while (offset + RECORD_HEADER_BYTES <= data.limit()) {
+            int length = data.getInt(offset);
+            if (length < 0 || length > data.limit() - offset - RECORD_HEADER_BYTES) {
+                break;
+            }
+            if (count == found.length) {
+                found = Arrays.copyOf(found, count * 2);
+            }
+            found[count++] = offset;
+            offset += RECORD_HEADER_BYTES + length;
+        }
+        offsets = found;
+        frameCount = count;
+        validLength = offset;
+    }
+
+    //只读映射整个文件，文件不能超过2GB（FrameRecorder按上限停止录制）
+    public static FrameRecording open(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Frame recording larger than 2 GB: " + file);
+            }
+            //映射在通道关闭后仍然有效
+            return new FrameRecording(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        } finally {
+            raf.close();
+        }
+    }
+
+    //从内存中的数据读取，例如测试或网络传来的录制
+    public static FrameRecording wrap(ByteBuffer data) throws IOException {
+        return new FrameRecording(data.slice());
+    }
+
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    int getValidLength() {
+        return validLength;
+    }
+
+    public Frame getFrame(int index) {
+        if (index < 0 || index >= frameCount) {
+            throw new IndexOutOfBoundsException("Frame " + index + " of " + frameCount);
+        }
+        int offset = offsets[index];
+        int regionWidth = data.getInt(offset + 32);
+        int regionHeight = data.getInt(offset + 36);
+        DecodeRegion region = regionWidth > 0 && regionHeight > 0
+                ? new DecodeRegion(data.getInt(offset + 20), data.getInt(offset + 24), data.getInt(offset + 28), regionWidth, regionHeight)
+                : null;
+        return new Frame(data, offset + RECORD_HEADER_BYTES, data.getInt(offset), data.getLong(offset + 4), data.getInt(offset + 12), data.getInt(offset + 16), region);
+    }
+
+    //一条帧记录，数据直接引用映射的文件
+    public static final class Frame {
+
+        private final ByteBuffer data;
+        private final int dataOffset;
+        private final int length;
+        private final long timestampNanos;
+        private final int width;
+        private final int height;
+        private final DecodeRegion region;
+
+        Frame(ByteBuffer data, int dataOffset, int length, long timestampNanos, int width, int height, DecodeRegion region) {
+            this.data = data;
+            this.dataOffset = dataOffset;
+            this.length = length;
+            this.timestampNanos = timestampNanos;
+            this.width = width;
+            this.height = height;
+            this.region = region;
+        }
+
+        //录制时的System.nanoTime()，只有帧之间的差值有意义
+        public long getTimestampNanos() {
+            return timestampNanos;
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+
+        //录制时还没有取景框的帧为null
+        public DecodeRegion getRegion() {
+            return region;
+        }
+
+        public int getLength() {
+            return length;
+        }
+
+        //帧数据的只读视图，position是帧的起点，开头width*height字节是亮度平面
+        public ByteBuffer getData() {
+            ByteBuffer view = data.asReadOnlyBuffer();
+            view.limit(dataOffset + length);
+            view.position(dataOffset);
+            return view;
+        }
+    }
+
+}
@@ -0,0 +1,115 @@
+package com.example.qrcode.decode;
+
+//帧旋转，复用同一块缓冲区，稳定运行时不再为每一帧分配数组
+public final class FrameRotator {
+
+    private static final int BLOCK_SIZE = 32;//分块边长，保证一块的源行和目标行都留在缓存里
+
+    private byte[] buffer;//复用的旋转缓冲区
+
+    //将亮度平面顺时针旋转90度，返回的数组在下一次调用rotate之前有效
+    public byte[] rotate(byte[] data, int width, int height) {
+        byte[] target = obtainBuffer(width * height);
+        rotateClockwise(data, width, height, target);
+        return target;
+    }
+
+    //取得至少size大小的缓冲区，只在尺寸变大时重新分配
+    public byte[] obtainBuffer(int size) {
+        byte[] target = buffer;
+        if (target == null || target.length < size) {
+            target = new byte[size];
+            buffer = target;
+        }
+        return target;
+    }
+
+    //整帧顺时针旋转90度
+    public static void rotateClockwise(byte[] src, int width, int height, byte[] dst) {
+        rotateRegion(src, width, height, 90, 0, 0, height, width, dst);
+    }
+
+    //旋转后坐标(x, y)对应的源下标为 base + x * xStep + y * yStep，这里算出base
+    static int regionBase(int dataWidth, int dataHeight, int rotation, int left, int top) {
+        switch (rotation) {
+            case 0:
+                return top * dataWidth + left;
+            case 90:
+                return (dataHeight - 1 - left) * dataWidth + top;
+            case 180:
+                return (dataHeight - 1 - top) * dataWidth + dataWidth - 1 - left;
+            case 270:
+                return left * dataWidth + dataWidth - 1 - top;
+            default:
+                throw new IllegalArgumentException("Unsupported rotation: " + rotation);
+        }
+    }
+
+    //旋转后x方向前进一个像素时源下标的步长
+    static int xStep(int dataWidth, int rotation) {
+        switch (rotation) {
+            case 0:
+                return 1;
+            case 90:
+                return -dataWidth;
+            case 180:
+                return -1;
+            default:
+                return dataWidth;
+        }
+    }
+
+    //旋转后y方向前进一个像素时源下标的步长
+    static int yStep(int dataWidth, int rotation) {
+        switch (rotation) {
+            case 0:
+                return dataWidth;
+            case 90:
+                return 1;
+            case 180:
+                return -dataWidth;
+            default:
+                return -1;
+        }
+    }
+
+    //按顺时针rotation度旋转源平面，并只取出旋转后坐标系中(left, top, width, height)的区域
+    //分块遍历，避免逐列读写时的缓存失效
+    public static void rotateRegion(byte[] src, int dataWidth, int dataHeight, int rotation, int left, int top, int width, int height, byte[] dst) {
+        if (dst.length < width * height) {
+            throw new IllegalArgumentException("Rotation buffer too small: " + dst.length + " < " + width * height);
+        }
+        int base = regionBase(dataWidth, dataHeight, rotation, left, top);
+        int xStep = xStep(dataWidth, rotation);
+        int yStep = yStep(dataWidth, rotation);
+        if (xStep == 1 || xStep == -1) {
+            //0度和180度按行读取本来就是连续的
+            for (int y = 0; y < height; y++) {
+                int srcIndex = base + y * yStep;
+                int dstIndex = y * width;
+                if (xStep == 1) {
+                    System.arraycopy(src, srcIndex, dst, dstIndex, width);
+                } else {
+                    for (int x = 0; x < width; x++, srcIndex--) {
+                        dst[dstIndex + x] = src[srcIndex];
+                    }
+                }
+            }
+            return;
+        }
+        for (int blockY = 0; blockY < height; blockY += BLOCK_SIZE) {
+            int endY = Math.min(blockY + BLOCK_SIZE, height);
+            for (int blockX = 0; blockX < width; blockX += BLOCK_SIZE) {
+                int endX = Math.min(blockX + BLOCK_SIZE, width);
+                for (int y = blockY; y < endY; y++) {
+                    int srcIndex = base + y * yStep + blockX * xStep;
+                    int dstIndex = y * width;
+                    for (int x = blockX; x < endX; x++, srcIndex += xStep) {
+                        dst[dstIndex + x] = src[srcIndex];
+                    }
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,183 @@
+package com.example.qrcode.decode;
+
+import java.util.concurrent.TimeUnit;
+
+//帧调度：在帧交给解码线程池之前决定是解码、跳过还是退避
+//取景框内按网格采样亮度，和上一帧解码过的帧相比几乎没变并且那次解码失败了，就跳过这一帧；
+//解码耗时的滑动平均明显高于本次会话的基准，或者系统报告过热时，两次解码之间至少间隔一个平均耗时
+//采样缓冲区预先分配，稳定运行时不分配内存；线程安全，解码结果在工作线程中回报
+public final class FrameScheduler {
+
+    //对一帧的决定
+    public enum Decision {
+        DECODE, SKIP_UNCHANGED, BACK_OFF
+    }
+
+    static final int SAMPLE_GRID = 16;//每个方向的采样点数
+    static final int SCENE_CHANGE_THRESHOLD = 4;//采样点亮度平均差低于这个值视为同一画面
+    static final int MAX_SKIPPED_FRAMES = 15;//连续跳过这么多帧后强制解码一次，对焦等缓慢变化也能被尝试
+    static final int WARMUP_SAMPLES = 8;//耗时样本数达到后才开始计算基准
+    static final int THROTTLE_LATENCY_RATIO = 3;//平均耗时达到基准的几倍视为被降频
+
+    private int[] reference = new int[SAMPLE_GRID * SAMPLE_GRID];//上一次解码的帧的采样
+    private int[] current = new int[SAMPLE_GRID * SAMPLE_GRID];
+    private boolean hasReference;
+    private boolean referenceFailed;//上一次解码的帧已经失败
+    private int skippedInRow;
+    private long averageNanos;//解码耗时的指数滑动平均，权重1/8
+    private long baselineNanos = Long.MAX_VALUE;//预热后滑动平均的最小值
+    private int latencySamples;
+    private boolean thermalThrottled;
+    private long lastAdmitNanos;
+    private boolean admitted;
+    private long skippedFrames;
+    private long backedOffFrames;
+
+    //region为null时直接解码，由线程池按失败处理
+    public synchronized Decision admit(byte[] data, int width, int height, DecodeRegion region, long nowNanos) {
+        if (shouldBackOff(nowNanos)) {
+            return Decision.BACK_OFF;
+        }
+        if (region != null) {
+            sample(data, width, height, region, current);
+        }
+        return admitSampled(region != null, nowNanos);
+    }
+
+    //亮度平面在ByteBuffer中的帧，规则同上
+    public synchronized Decision admit(LumaBuffer frame, DecodeRegion region, long nowNanos) {
+        if (shouldBackOff(nowNanos)) {
+            return Decision.BACK_OFF;
+        }
+        if (region != null) {
+            sample(frame, region, current);
+        }
+        return admitSampled(region != null, nowNanos);
+    }
+
+    private boolean shouldBackOff(long nowNanos) {
+        if (isThrottled() && admitted && nowNanos - lastAdmitNanos < averageNanos) {
+            backedOffFrames++;
+            return true;
+        }
+        return false;
+    }
+
+    //current中已经是这一帧的采样（sampled为true时），和上一次解码的帧比较
+    private Decision admitSampled(boolean sampled, long nowNanos) {
+        if (sampled) {
+            if (hasReference && referenceFailed && skippedInRow < MAX_SKIPPED_FRAMES
+                    && meanDifference(reference, current) < SCENE_CHANGE_THRESHOLD) {
+                skippedInRow++;
+                skippedFrames++;
+                return Decision.SKIP_UNCHANGED;
+            }
+            int[] swap = reference;
+            reference = current;
+            current = swap;
+            hasReference = true;
+        } else {
+            hasReference = false;
+        }
+        referenceFailed = false;
+        skippedInRow = 0;
+        lastAdmitNanos = nowNanos;
+        admitted = true;
+        return Decision.DECODE;
+    }
+
+    //一帧解码结束，在工作线程中调用；decodeNanos为0表示没有真正解码
+    public synchronized void onDecoded(boolean found, long decodeNanos) {
+        if (!found) {
+            referenceFailed = true;
+        }
+        if (decodeNanos <= 0) {
+            return;
+        }
+        averageNanos = latencySamples == 0 ? decodeNanos : averageNanos + (decodeNanos - averageNanos) / 8;
+        latencySamples++;
+        if (latencySamples >= WARMUP_SAMPLES && averageNanos < baselineNanos) {
+            baselineNanos = averageNanos;
+        }
+    }
+
+    //BACK_OFF之后再过多久可以送下一帧
+    public synchronized long backOffDelayMillis(long nowNanos) {
+        long remaining = lastAdmitNanos + averageNanos - nowNanos;
+        return remaining <= 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(remaining) + 1;
+    }
+
+    //系统报告的过热状态，在任意线程中调用
+    public synchronized void setThermalThrottled(boolean throttled) {
+        thermalThrottled = throttled;
+    }
+
+    public synchronized boolean isThrottled() {
+        return thermalThrottled || (baselineNanos != Long.MAX_VALUE && averageNanos >= baselineNanos * THROTTLE_LATENCY_RATIO);
+    }
+
+    public synchronized long getAverageDecodeNanos() {
+        return averageNanos;
+    }
+
+    public synchronized long getSkippedFrames() {
+        return skippedFrames;
+    }
+
+    public synchronized long getBackedOffFrames() {
+        return backedOffFrames;
+    }
+
+    //在取景框（旋转后的坐标）中按SAMPLE_GRID网格取亮度，直接从原始帧读取
+    static void sample(byte[] data, int width, int height, DecodeRegion region, int[] out) {
+        int rotation = region.getRotation();
+        int base = FrameRotator.regionBase(width, height, rotation, region.getLeft(), region.getTop());
+        int xStep = FrameRotator.xStep(width, rotation);
+        int yStep = FrameRotator.yStep(width, rotation);
+        int i = 0;
+        for (int gy = 0; gy < SAMPLE_GRID; gy++) {
+            int y = (2 * gy + 1) * region.getHeight() / (2 * SAMPLE_GRID);
+            for (int gx = 0; gx < SAMPLE_GRID; gx++) {
+                int x = (2 * gx + 1) * region.getWidth() / (2 * SAMPLE_GRID);
+                out[i++] = data[base + x * xStep + y * yStep] & 0xff;
+            }
+        }
+    }
+
+    //同上，按行跨度和像素跨度从ByteBuffer读取；旋转后的(x, y)先换回未旋转的坐标
+    static void sample(LumaBuffer frame, DecodeRegion region, int[] out) {
+        int rotation = region.getRotation();
+        int width = frame.getWidth();
+        int height = frame.getHeight();
+        int i = 0;
+        for (int gy = 0; gy < SAMPLE_GRID; gy++) {
+            int y = region.getTop() + (2 * gy + 1) * region.getHeight() / (2 * SAMPLE_GRID);
+            for (int gx = 0; gx < SAMPLE_GRID; gx++) {
+                int x = region.getLeft() + (2 * gx + 1) * region.getWidth() / (2 * SAMPLE_GRID);
+                switch (rotation) {
+                    case 0:
+                        out[i++] = frame.get(x, y);
+                        break;
+                    case 90:
+                        out[i++] = frame.get(y, height - 1 - x);
+                        break;
+                    case 180:
+                        out[i++] = frame.get(width - 1 - x, height - 1 - y);
+                        break;
+                    default:
+                        out[i++] = frame.get(width - 1 - y, x);
+                        break;
+                }
+            }
+        }
+    }
+
+    static int meanDifference(int[] a, int[] b) {
+        int sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += Math.abs(a[i] - b[i]);
+        }
+        return sum / a.length;
+    }
+
+}
@@ -0,0 +1,100 @@
+package com.example.qrcode.decode;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+//无锁的对数-线性直方图（类似HdrHistogram），记录纳秒耗时
+//每个2的幂区间再分成32个子桶，相对误差约3%，可以在多个线程中同时记录
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final long MAX_TRACKABLE_NANOS = (1L << 40) - 1;//约18分钟，超出的值按最大值记录
+    private static final int BUCKET_COUNT = indexOf(MAX_TRACKABLE_NANOS) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        } else if (nanos > MAX_TRACKABLE_NANOS) {
+            nanos = MAX_TRACKABLE_NANOS;
+        }
+        counts.incrementAndGet(indexOf(nanos));
+        totalCount.incrementAndGet();
+        totalNanos.addAndGet(nanos);
+        long max;
+        while (nanos > (max = maxNanos.get())) {
+            if (maxNanos.compareAndSet(max, nanos)) {
+                break;
+            }
+        }
+    }
+
+    public long getCount() {
+        return totalCount.get();
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    public long getMeanNanos() {
+        long count = totalCount.get();
+        return count == 0 ? 0 : totalNanos.get() / count;
+    }
+
+    //返回第percentile百分位的耗时（桶内的最大值），没有数据时返回0
+    public long getPercentileNanos(double percentile) {
+        long count = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            count += counts.get(i);
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long target = (long) Math.ceil(Math.min(100.0, Math.max(0.0, percentile)) / 100.0 * count);
+        if (target < 1) {
+            target = 1;
+        }
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                return Math.min(highestEquivalentValue(i), maxNanos.get());
+            }
+        }
+        return maxNanos.get();
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.set(i, 0);
+        }
+        totalCount.set(0);
+        totalNanos.set(0);
+        maxNanos.set(0);
+    }
+
+    //小于64的值每个值一个桶，更大的值按最高位分组，每组32个桶
+    static int indexOf(long value) {
+        if (value < 2 * SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return shift * SUB_BUCKET_COUNT + (int) (value >>> shift);
+    }
+
+    static long highestEquivalentValue(int index) {
+        if (index < 2 * SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = index / SUB_BUCKET_COUNT - 1;
+        long mantissa = index % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+        return ((mantissa + 1) << shift) - 1;
+    }
+
+}
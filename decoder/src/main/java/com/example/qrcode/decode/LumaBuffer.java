@@ -0,0 +1,51 @@
+package com.example.qrcode.decode;
+
+import java.nio.ByteBuffer;
+
+//ByteBuffer中的一帧亮度平面，例如Camera2图像的Y平面：按行跨度和像素跨度读取，不复制成byte[]
+//buffer当前的position是帧的起点，使用方只用绝对位置读取；数据归提交方所有，线程池用完后通过回调归还
+public final class LumaBuffer {
+
+    private final ByteBuffer buffer;
+    private final int width;
+    private final int height;
+    private final int rowStride;//相邻两行起点的字节距离，可以大于宽度（行末有填充）
+    private final int pixelStride;//相邻两个像素的字节距离
+
+    public LumaBuffer(ByteBuffer buffer, int width, int height, int rowStride, int pixelStride) {
+        if (pixelStride < 1 || rowStride < (width - 1) * pixelStride + 1) {
+            throw new IllegalArgumentException("Invalid strides: row " + rowStride + ", pixel " + pixelStride);
+        }
+        this.buffer = buffer;
+        this.width = width;
+        this.height = height;
+        this.rowStride = rowStride;
+        this.pixelStride = pixelStride;
+    }
+
+    public ByteBuffer getBuffer() {
+        return buffer;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getRowStride() {
+        return rowStride;
+    }
+
+    public int getPixelStride() {
+        return pixelStride;
+    }
+
+    //未旋转坐标(x, y)处像素的亮度
+    int get(int x, int y) {
+        return buffer.get(buffer.position() + y * rowStride + x * pixelStride) & 0xff;
+    }
+
+}
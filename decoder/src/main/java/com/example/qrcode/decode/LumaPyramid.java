@@ -0,0 +1,72 @@
+package com.example.qrcode.decode;
+
+//取景框亮度金字塔：第k层每个方向缩小2^k倍，由上一层相邻2x2取平均得到
+//第0层直接引用原矩阵不复制，其余各层的缓冲区在帧之间复用，只在尺寸变大时重新分配；不是线程安全的
+final class LumaPyramid {
+
+    static final int MIN_LEVEL_SIZE = 200;//短边小于这个值的层不再生成，再小的话中等大小的条码在粗层上也找不到定位图形
+
+    private final byte[][] levels;
+    private final int[] widths;
+    private final int[] heights;
+    private int count;
+
+    //maxLevel为最多缩小的次数，0表示只有原图
+    LumaPyramid(int maxLevel) {
+        levels = new byte[maxLevel + 1][];
+        widths = new int[maxLevel + 1];
+        heights = new int[maxLevel + 1];
+    }
+
+    //生成各层，返回层数；matrix在下一次build之前不能修改
+    int build(byte[] matrix, int width, int height) {
+        levels[0] = matrix;
+        widths[0] = width;
+        heights[0] = height;
+        count = 1;
+        while (count < levels.length) {
+            int levelWidth = widths[count - 1] / 2;
+            int levelHeight = heights[count - 1] / 2;
+            if (Math.min(levelWidth, levelHeight) < MIN_LEVEL_SIZE) {
+                break;
+            }
+            byte[] buffer = levels[count];
+            if (buffer == null || buffer.length < levelWidth * levelHeight) {
+                buffer = new byte[levelWidth * levelHeight];
+                levels[count] = buffer;
+            }
+            downsample(levels[count - 1], widths[count - 1], buffer, levelWidth, levelHeight);
+            widths[count] = levelWidth;
+            heights[count] = levelHeight;
+            count++;
+        }
+        return count;
+    }
+
+    byte[] level(int index) {
+        return levels[index];
+    }
+
+    int width(int index) {
+        return widths[index];
+    }
+
+    int height(int index) {
+        return heights[index];
+    }
+
+    //源宽度为奇数时最后一列不参与
+    static void downsample(byte[] src, int srcWidth, byte[] dst, int dstWidth, int dstHeight) {
+        for (int y = 0; y < dstHeight; y++) {
+            int top = 2 * y * srcWidth;
+            int bottom = top + srcWidth;
+            int out = y * dstWidth;
+            for (int x = 0; x < dstWidth; x++) {
+                int sx = 2 * x;
+                int sum = (src[top + sx] & 0xff) + (src[top + sx + 1] & 0xff) + (src[bottom + sx] & 0xff) + (src[bottom + sx + 1] & 0xff);
+                dst[out + x] = (byte) ((sum + 2) >> 2);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,87 @@
+package com.example.qrcode.decode;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.MultiFormatReader;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.Result;
+import com.google.zxing.multi.GenericMultipleBarcodeReader;
+import com.google.zxing.multi.qrcode.QRCodeMultiReader;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+//一帧多码：二维码用QRCodeMultiReader一次找出所有定位图案，其他格式用GenericMultipleBarcodeReader分块递归查找
+//同一帧中格式和内容都相同的结果只保留一个；不是线程安全的，每个解码线程一个实例
+public final class MultiBarcodeReader {
+
+    private final QRCodeMultiReader qrCodeReader;//没有启用二维码时为null
+    private final GenericMultipleBarcodeReader otherReader;//只有二维码时为null
+    private final Map<DecodeHintType, ?> qrHints;
+    private final Map<DecodeHintType, Object> otherHints;
+
+    @SuppressWarnings("unchecked")
+    public MultiBarcodeReader(Map<DecodeHintType, ?> hints) {
+        Collection<BarcodeFormat> formats = hints == null ? null : (Collection<BarcodeFormat>) hints.get(DecodeHintType.POSSIBLE_FORMATS);
+        Set<BarcodeFormat> others = formats == null || formats.isEmpty() ? DecodeHints.defaultFormats() : EnumSet.copyOf(formats);
+        boolean qrCode = others.remove(BarcodeFormat.QR_CODE);
+        qrCodeReader = qrCode ? new QRCodeMultiReader() : null;
+        qrHints = hints;
+        if (others.isEmpty()) {
+            otherReader = null;
+            otherHints = null;
+        } else {
+            //GenericMultipleBarcodeReader会把提示传给MultiFormatReader.decode()，去掉二维码以免重复查找
+            otherHints = new EnumMap<DecodeHintType, Object>(DecodeHintType.class);
+            if (hints != null) {
+                otherHints.putAll(hints);
+            }
+            otherHints.put(DecodeHintType.POSSIBLE_FORMATS, others);
+            otherReader = new GenericMultipleBarcodeReader(new MultiFormatReader());
+        }
+    }
+
+    //返回这一帧中的所有条码，一个都没有时抛出NotFoundException
+    public Result[] decodeMultiple(BinaryBitmap image) throws NotFoundException {
+        List<Result> results = new ArrayList<Result>();
+        if (qrCodeReader != null) {
+            try {
+                addDistinct(results, qrCodeReader.decodeMultiple(image, qrHints));
+            } catch (NotFoundException nfe) {
+                //继续找其他格式
+            }
+        }
+        if (otherReader != null) {
+            try {
+                addDistinct(results, otherReader.decodeMultiple(image, otherHints));
+            } catch (NotFoundException nfe) {
+            }
+        }
+        if (results.isEmpty()) {
+            throw NotFoundException.getNotFoundInstance();
+        }
+        return results.toArray(new Result[results.size()]);
+    }
+
+    private static void addDistinct(List<Result> results, Result[] found) {
+        for (Result result : found) {
+            boolean duplicate = false;
+            for (Result existing : results) {
+                if (existing.getBarcodeFormat() == result.getBarcodeFormat() && existing.getText().equals(result.getText())) {
+                    duplicate = true;
+                    break;
+                }
+            }
+            if (!duplicate) {
+                results.add(result);
+            }
+        }
+    }
+
+}
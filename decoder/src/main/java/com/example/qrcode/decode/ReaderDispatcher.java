@@ -0,0 +1,211 @@
+package com.example.qrcode.decode;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.Reader;
+import com.google.zxing.ReaderException;
+import com.google.zxing.Result;
+import com.google.zxing.aztec.AztecReader;
+import com.google.zxing.datamatrix.DataMatrixReader;
+import com.google.zxing.oned.MultiFormatOneDReader;
+import com.google.zxing.pdf417.PDF417Reader;
+import com.google.zxing.qrcode.QRCodeReader;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+//按格式组分发的阅读器，代替每帧把所有阅读器都试一遍的MultiFormatReader
+//各组按本次会话的命中次数排序，排第一或命中占比够高的组每帧都试，其余的组每SLOW_GROUP_INTERVAL帧才试一次
+//阅读器不是线程安全的，每个解码线程一个实例，命中统计由同一线程池的实例共享
+public final class ReaderDispatcher {
+
+    static final int SLOW_GROUP_INTERVAL = 4;//冷门格式组每隔几帧试一次
+    static final int FREQUENT_HIT_PERCENT = 10;//命中占比达到这个值的组每帧都试
+
+    //格式组，声明顺序就是没有命中统计时的尝试顺序
+    public enum Group {
+        QR_CODE(DecodeFormatManager.QR_CODE_FORMATS),
+        DATA_MATRIX(DecodeFormatManager.DATA_MATRIX_FORMATS),
+        AZTEC(DecodeFormatManager.AZTEC_FORMATS),
+        PDF417(DecodeFormatManager.PDF417_FORMATS),
+        ONE_D(DecodeFormatManager.ONE_D_FORMATS);
+
+        private final Set<BarcodeFormat> formats;
+
+        Group(Set<BarcodeFormat> formats) {
+            this.formats = formats;
+        }
+
+        static Group of(BarcodeFormat format) {
+            for (Group group : values()) {
+                if (group.formats.contains(format)) {
+                    return group;
+                }
+            }
+            throw new IllegalArgumentException("Unsupported format: " + format);
+        }
+    }
+
+    //一次会话中各格式组的命中次数和已分发的帧数，线程安全
+    public static final class Statistics {
+
+        private final AtomicLongArray hits = new AtomicLongArray(Group.values().length);
+        private final AtomicLong totalHits = new AtomicLong();
+        private final AtomicLong frames = new AtomicLong();
+
+        void recordHit(Group group) {
+            hits.incrementAndGet(group.ordinal());
+            totalHits.incrementAndGet();
+        }
+
+        //取得下一帧的序号，每帧调用一次
+        long nextFrame() {
+            return frames.getAndIncrement();
+        }
+
+        public long getHits(Group group) {
+            return hits.get(group.ordinal());
+        }
+
+        public long getTotalHits() {
+            return totalHits.get();
+        }
+
+        public long getFrames() {
+            return frames.get();
+        }
+    }
+
+    private final Map<DecodeHintType, ?> hints;
+    private final Statistics statistics;
+    private final Reader[] readers;//按Group下标，没有启用的组为null
+    private final Group[] order;//本帧的尝试顺序，复用避免每帧分配
+    private final long[] orderHits;
+    private final int groupCount;
+
+    @SuppressWarnings("unchecked")
+    public ReaderDispatcher(Map<DecodeHintType, ?> hints, Statistics statistics) {
+        this.hints = hints;
+        this.statistics = statistics;
+        Collection<BarcodeFormat> formats = hints == null ? null : (Collection<BarcodeFormat>) hints.get(DecodeHintType.POSSIBLE_FORMATS);
+        Group[] groups = Group.values();
+        readers = new Reader[groups.length];
+        int count = 0;
+        for (Group group : groups) {
+            if (isEnabled(group, formats)) {
+                readers[group.ordinal()] = createReader(group, hints);
+                count++;
+            }
+        }
+        groupCount = count;
+        order = new Group[count];
+        orderHits = new long[count];
+    }
+
+    public Statistics getStatistics() {
+        return statistics;
+    }
+
+    //单独使用时每次调用算一帧
+    public Result decode(BinaryBitmap image) throws NotFoundException {
+        return decode(image, statistics.nextFrame());
+    }
+
+    //按当前排序尝试各组，找不到时抛出NotFoundException；返回前会重置所有阅读器
+    //frame为相机帧的序号，同一帧的多次尝试（金字塔各层、两种二值化、重试级别）传入同一个值，冷门组的间隔按帧计算
+    public Result decode(BinaryBitmap image, long frame) throws NotFoundException {
+        long total = statistics.getTotalHits();
+        rank();
+        try {
+            for (int i = 0; i < groupCount; i++) {
+                Group group = order[i];
+                if (!shouldTry(i, orderHits[i], total, group.ordinal(), frame)) {
+                    continue;
+                }
+                try {
+                    Result result = readers[group.ordinal()].decode(image, hints);
+                    statistics.recordHit(Group.of(result.getBarcodeFormat()));
+                    return result;
+                } catch (ReaderException re) {
+                    //试下一组
+                }
+            }
+        } finally {
+            reset();
+        }
+        throw NotFoundException.getNotFoundInstance();
+    }
+
+    public void reset() {
+        for (Reader reader : readers) {
+            if (reader != null) {
+                reader.reset();
+            }
+        }
+    }
+
+    //排第一的组每帧都试；命中占比不低于FREQUENT_HIT_PERCENT的组也每帧都试；
+    //其余的组按下标错开，每SLOW_GROUP_INTERVAL帧试一次，保证不会漏掉任何格式
+    static boolean shouldTry(int rank, long groupHits, long totalHits, int groupIndex, long frame) {
+        if (rank == 0) {
+            return true;
+        }
+        if (groupHits > 0 && groupHits * 100 >= totalHits * FREQUENT_HIT_PERCENT) {
+            return true;
+        }
+        return (frame + groupIndex) % SLOW_GROUP_INTERVAL == 0;
+    }
+
+    //按命中次数从高到低插入排序，次数相同的保持声明顺序
+    private void rank() {
+        int size = 0;
+        for (Group group : Group.values()) {
+            if (readers[group.ordinal()] == null) {
+                continue;
+            }
+            long hits = statistics.getHits(group);
+            int i = size++;
+            while (i > 0 && orderHits[i - 1] < hits) {
+                order[i] = order[i - 1];
+                orderHits[i] = orderHits[i - 1];
+                i--;
+            }
+            order[i] = group;
+            orderHits[i] = hits;
+        }
+    }
+
+    //没有指定格式时和MultiFormatReader一样启用全部格式
+    private static boolean isEnabled(Group group, Collection<BarcodeFormat> formats) {
+        if (formats == null) {
+            return true;
+        }
+        for (BarcodeFormat format : formats) {
+            if (group.formats.contains(format)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Reader createReader(Group group, Map<DecodeHintType, ?> hints) {
+        switch (group) {
+            case QR_CODE:
+                return new QRCodeReader();
+            case DATA_MATRIX:
+                return new DataMatrixReader();
+            case AZTEC:
+                return new AztecReader();
+            case PDF417:
+                return new PDF417Reader();
+            default:
+                return new MultiFormatOneDReader(hints);//只包含POSSIBLE_FORMATS中的一维格式
+        }
+    }
+
+}
@@ -0,0 +1,163 @@
+package com.example.qrcode.decode;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.Result;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+//跨帧去重：同一个条码（格式和内容）在最近windowMillis内出现过就不再上报，每次出现都会刷新时间
+//条码一直留在画面中时只上报一次，移开超过时间窗口后再对准才会再次上报；线程安全
+//最多记住capacity个条码，超出时淘汰最久没出现的；重复的结果不分配内存
+public final class ResultDeduplicator {
+
+    public static final long DEFAULT_WINDOW_MILLIS = 1000L;
+    public static final int DEFAULT_CAPACITY = 64;
+
+    private final long windowNanos;
+    private final int capacity;
+    private final LinkedHashMap<Seen, Seen> entries;//按访问顺序排列，表头是最久没出现的条码
+    private final Seen probe = new Seen();//查找用的键，在锁内复用
+    private Result[] freshBuffer = new Result[4];//一次调用中新条码的暂存区，按需扩容
+    private long suppressed;//被丢弃的重复结果数
+
+    public ResultDeduplicator() {
+        this(DEFAULT_WINDOW_MILLIS);
+    }
+
+    public ResultDeduplicator(long windowMillis) {
+        this(windowMillis, DEFAULT_CAPACITY);
+    }
+
+    public ResultDeduplicator(long windowMillis, int capacity) {
+        if (windowMillis < 1) {
+            throw new IllegalArgumentException("Window must be positive: " + windowMillis);
+        }
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        this.capacity = capacity;
+        entries = new LinkedHashMap<Seen, Seen>(capacity * 4 / 3 + 1, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Seen, Seen> eldest) {
+                return size() > ResultDeduplicator.this.capacity;
+            }
+        };
+    }
+
+    public Result[] filter(Result[] results) {
+        return filter(results, System.nanoTime());
+    }
+
+    //返回results中时间窗口内没有出现过的条码
+    public synchronized Result[] filter(Result[] results, long nowNanos) {
+        evictExpired(nowNanos);
+        int freshCount = 0;
+        for (Result result : results) {
+            Seen seen = entries.get(probe.set(result.getBarcodeFormat(), result.getText()));
+            if (seen != null) {
+                //get已经把它移到表尾，刷新时间即可
+                seen.lastSeen = nowNanos;
+                suppressed++;
+                continue;
+            }
+            seen = new Seen().set(result.getBarcodeFormat(), result.getText());
+            seen.lastSeen = nowNanos;
+            entries.put(seen, seen);
+            if (freshCount == freshBuffer.length) {
+                Result[] grown = new Result[freshCount * 2];
+                System.arraycopy(freshBuffer, 0, grown, 0, freshCount);
+                freshBuffer = grown;
+            }
+            freshBuffer[freshCount++] = result;
+        }
+        if (freshCount == 0) {
+            return DecodeResult.NO_RESULTS;
+        }
+        Result[] fresh = new Result[freshCount];
+        System.arraycopy(freshBuffer, 0, fresh, 0, freshCount);
+        for (int i = 0; i < freshCount; i++) {
+            freshBuffer[i] = null;
+        }
+        return fresh;
+    }
+
+    public boolean containsAll(Result[] results) {
+        return containsAll(results, System.nanoTime());
+    }
+
+    //results是否都在时间窗口内出现过；只查询，不记录也不刷新时间，空数组返回false
+    public synchronized boolean containsAll(Result[] results, long nowNanos) {
+        evictExpired(nowNanos);
+        if (results.length == 0) {
+            return false;
+        }
+        for (Result result : results) {
+            //containsKey不改变访问顺序
+            if (!entries.containsKey(probe.set(result.getBarcodeFormat(), result.getText()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized long getSuppressedCount() {
+        return suppressed;
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    //表头最久没出现，从表头删到第一个没过期的为止
+    private void evictExpired(long nowNanos) {
+        Iterator<Seen> iterator = entries.keySet().iterator();
+        while (iterator.hasNext()) {
+            if (nowNanos - iterator.next().lastSeen <= windowNanos) {
+                return;
+            }
+            iterator.remove();
+        }
+    }
+
+    //既是键也是值：格式和内容决定相等性，lastSeen可变
+    private static final class Seen {
+
+        private BarcodeFormat format;
+        private String text;
+        private int hash;
+        private long lastSeen;
+
+        Seen set(BarcodeFormat format, String text) {
+            this.format = format;
+            this.text = text;
+            hash = 31 * format.hashCode() + (text == null ? 0 : text.hashCode());
+            return this;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Seen)) {
+                return false;
+            }
+            Seen other = (Seen) o;
+            return hash == other.hash && format == other.format && (text == null ? other.text == null : text.equals(other.text));
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+}
@@ -0,0 +1,157 @@
+package com.example.qrcode.decode;
+
+import com.google.zxing.ResultPoint;
+import com.google.zxing.ResultPointCallback;
+
+import java.util.concurrent.TimeUnit;
+
+//感兴趣区域跟踪：收集解码过程中找到的候选点（如二维码的定位图形），之后的帧只解码候选点周围的小窗口
+//同时是解码线程池的区域来源和阅读器的候选点回调；每隔FULL_FRAME_INTERVAL帧仍解码整个取景框，
+//小窗口连续失败MAX_MISSES次或候选点过期后退回整个取景框；线程安全
+public final class RoiTracker implements DecodeWorkerPool.RegionProvider, ResultPointCallback {
+
+    static final int MAX_POINTS = 16;//只保留最近的候选点
+    static final long POINT_TTL_NANOS = TimeUnit.MILLISECONDS.toNanos(300);
+    static final int FULL_FRAME_INTERVAL = 3;//每3帧有1帧解码整个取景框，其他位置的新条码不会被漏掉
+    static final int MAX_MISSES = 6;
+    static final int MIN_SIZE_DIVISOR = 3;//窗口边长至少是取景框短边的1/3
+
+    private final DecodeWorkerPool.RegionProvider fullRegionProvider;
+    private final ResultPointCallback downstream;//界面上画候选点，可为null
+    //每个解码线程本帧使用的区域，阅读器在同一线程中回调候选点，据此换算坐标
+    private final ThreadLocal<DecodeRegion> currentRegion = new ThreadLocal<DecodeRegion>();
+    //每个解码线程本帧拿到的是不是小窗口；fullRegion会被其他线程改写，不能用引用比较来判断
+    private final ThreadLocal<Boolean> currentTracked = new ThreadLocal<Boolean>();
+    //候选点环，坐标是旋转之后的整帧坐标
+    private final float[] pointX = new float[MAX_POINTS];
+    private final float[] pointY = new float[MAX_POINTS];
+    private final long[] pointTime = new long[MAX_POINTS];
+    private int pointCount;
+    private int nextPoint;
+    private DecodeRegion fullRegion;//最近一次的整个取景框
+    private long frames;
+    private int misses;
+    private long trackedFrames;
+
+    public RoiTracker(DecodeWorkerPool.RegionProvider fullRegionProvider, ResultPointCallback downstream) {
+        this.fullRegionProvider = fullRegionProvider;
+        this.downstream = downstream;
+    }
+
+    @Override
+    public DecodeRegion regionFor(int width, int height) {
+        return regionFor(width, height, System.nanoTime());
+    }
+
+    DecodeRegion regionFor(int width, int height, long nowNanos) {
+        DecodeRegion full = fullRegionProvider.regionFor(width, height);
+        DecodeRegion region = full;
+        boolean tracking = false;
+        if (full != null) {
+            synchronized (this) {
+                fullRegion = full;
+                if (frames++ % FULL_FRAME_INTERVAL != 0 && misses < MAX_MISSES) {
+                    DecodeRegion tracked = trackedRegion(full, nowNanos);
+                    if (tracked != null) {
+                        region = tracked;
+                        tracking = true;
+                        trackedFrames++;
+                    }
+                }
+            }
+        }
+        currentRegion.set(region);
+        currentTracked.set(tracking);
+        return region;
+    }
+
+    //阅读器在解码线程中回调，point是本帧区域内的坐标
+    @Override
+    public void foundPossibleResultPoint(ResultPoint point) {
+        onPoint(point.getX(), point.getY(), System.nanoTime());
+    }
+
+    void onPoint(float x, float y, long nowNanos) {
+        DecodeRegion region = currentRegion.get();
+        if (region == null) {
+            return;
+        }
+        float frameX = region.getLeft() + x;
+        float frameY = region.getTop() + y;
+        DecodeRegion full;
+        synchronized (this) {
+            pointX[nextPoint] = frameX;
+            pointY[nextPoint] = frameY;
+            pointTime[nextPoint] = nowNanos;
+            nextPoint = (nextPoint + 1) % MAX_POINTS;
+            pointCount = Math.min(pointCount + 1, MAX_POINTS);
+            full = fullRegion;
+        }
+        //界面按整个取景框的坐标画点
+        if (downstream != null && full != null) {
+            downstream.foundPossibleResultPoint(new ResultPoint(frameX - full.getLeft(), frameY - full.getTop()));
+        }
+    }
+
+    //本线程这一帧的解码结果；成功后条码已经交付，清空候选点，小窗口中失败则记一次
+    public void onDecoded(boolean found) {
+        boolean tracking = Boolean.TRUE.equals(currentTracked.get());
+        synchronized (this) {
+            if (found) {
+                pointCount = 0;
+                misses = 0;
+            } else if (tracking) {
+                if (++misses >= MAX_MISSES) {
+                    pointCount = 0;
+                    misses = 0;
+                }
+            }
+        }
+    }
+
+    public synchronized long getTrackedFrames() {
+        return trackedFrames;
+    }
+
+    //没过期的候选点的外接框向外扩展：定位图形中心到条码边缘还有几个模块和静区，扩展半个框再加上最小边长的1/4
+    private DecodeRegion trackedRegion(DecodeRegion full, long nowNanos) {
+        float minX = Float.MAX_VALUE;
+        float minY = Float.MAX_VALUE;
+        float maxX = -Float.MAX_VALUE;
+        float maxY = -Float.MAX_VALUE;
+        int fresh = 0;
+        for (int i = 0; i < pointCount; i++) {
+            if (nowNanos - pointTime[i] > POINT_TTL_NANOS) {
+                continue;
+            }
+            minX = Math.min(minX, pointX[i]);
+            minY = Math.min(minY, pointY[i]);
+            maxX = Math.max(maxX, pointX[i]);
+            maxY = Math.max(maxY, pointY[i]);
+            fresh++;
+        }
+        if (fresh == 0) {
+            return null;
+        }
+        int minSize = Math.min(full.getWidth(), full.getHeight()) / MIN_SIZE_DIVISOR;
+        float margin = Math.max(maxX - minX, maxY - minY) / 2 + minSize / 4;
+        int left = Math.max(full.getLeft(), (int) (minX - margin));
+        int top = Math.max(full.getTop(), (int) (minY - margin));
+        int right = Math.min(full.getLeft() + full.getWidth(), (int) Math.ceil(maxX + margin));
+        int bottom = Math.min(full.getTop() + full.getHeight(), (int) Math.ceil(maxY + margin));
+        if (right - left < minSize) {
+            left = Math.max(full.getLeft(), Math.min(left, right - minSize));
+            right = Math.min(full.getLeft() + full.getWidth(), left + minSize);
+        }
+        if (bottom - top < minSize) {
+            top = Math.max(full.getTop(), Math.min(top, bottom - minSize));
+            bottom = Math.min(full.getTop() + full.getHeight(), top + minSize);
+        }
+        //窗口几乎和取景框一样大就不必裁剪
+        if ((long) (right - left) * (bottom - top) * 10 > (long) full.getWidth() * full.getHeight() * 9) {
+            return null;
+        }
+        return new DecodeRegion(full.getRotation(), left, top, right - left, bottom - top);
+    }
+
+}
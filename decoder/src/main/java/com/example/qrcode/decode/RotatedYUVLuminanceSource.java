@@ -0,0 +1,110 @@
+package com.example.qrcode.decode;
+
+import com.google.zxing.LuminanceSource;
+
+//裁剪和旋转合在一起的亮度源：直接从未旋转的相机YUV数据中读取取景框区域
+//left、top、width、height都是顺时针旋转rotation度之后坐标系中的值，与getFramingRectInPreview()一致
+public final class RotatedYUVLuminanceSource extends LuminanceSource {
+
+    private static final int THUMBNAIL_SCALE_FACTOR = 2;
+
+    private final byte[] yuvData;
+    private final int dataWidth;//相机原始帧宽度
+    private final int dataHeight;//相机原始帧高度
+    private final int rotation;
+    private final int left;
+    private final int top;
+    private final byte[] matrixBuffer;//getMatrix复用的缓冲区，可为null
+
+    public RotatedYUVLuminanceSource(byte[] yuvData, int dataWidth, int dataHeight, int left, int top, int width, int height, int rotation, byte[] matrixBuffer) {
+        super(width, height);
+        if (rotation != 0 && rotation != 90 && rotation != 180 && rotation != 270) {
+            throw new IllegalArgumentException("Unsupported rotation: " + rotation);
+        }
+        boolean swapped = rotation == 90 || rotation == 270;
+        int rotatedWidth = swapped ? dataHeight : dataWidth;
+        int rotatedHeight = swapped ? dataWidth : dataHeight;
+        if (left < 0 || top < 0 || left + width > rotatedWidth || top + height > rotatedHeight) {
+            throw new IllegalArgumentException("Crop rectangle does not fit within image data.");
+        }
+        this.yuvData = yuvData;
+        this.dataWidth = dataWidth;
+        this.dataHeight = dataHeight;
+        this.rotation = rotation;
+        this.left = left;
+        this.top = top;
+        this.matrixBuffer = matrixBuffer;
+    }
+
+    @Override
+    public byte[] getRow(int y, byte[] row) {
+        if (y < 0 || y >= getHeight()) {
+            throw new IllegalArgumentException("Requested row is outside the image: " + y);
+        }
+        int width = getWidth();
+        if (row == null || row.length < width) {
+            row = new byte[width];
+        }
+        int xStep = FrameRotator.xStep(dataWidth, rotation);
+        int srcIndex = FrameRotator.regionBase(dataWidth, dataHeight, rotation, left, top) + y * FrameRotator.yStep(dataWidth, rotation);
+        if (xStep == 1) {
+            System.arraycopy(yuvData, srcIndex, row, 0, width);
+        } else {
+            for (int x = 0; x < width; x++, srcIndex += xStep) {
+                row[x] = yuvData[srcIndex];
+            }
+        }
+        return row;
+    }
+
+    @Override
+    public byte[] getMatrix() {
+        int width = getWidth();
+        int height = getHeight();
+        if (rotation == 0 && width == dataWidth && height == dataHeight) {
+            return yuvData;
+        }
+        int area = width * height;
+        byte[] matrix = matrixBuffer != null && matrixBuffer.length >= area ? matrixBuffer : new byte[area];
+        FrameRotator.rotateRegion(yuvData, dataWidth, dataHeight, rotation, left, top, width, height, matrix);
+        return matrix;
+    }
+
+    @Override
+    public boolean isCropSupported() {
+        return true;
+    }
+
+    @Override
+    public LuminanceSource crop(int left, int top, int width, int height) {
+        return new RotatedYUVLuminanceSource(yuvData, dataWidth, dataHeight, this.left + left, this.top + top, width, height, rotation, null);
+    }
+
+    //渲染缩略图，与PlanarYUVLuminanceSource.renderThumbnail()的输出一致
+    public int[] renderThumbnail() {
+        int width = getThumbnailWidth();
+        int height = getThumbnailHeight();
+        int[] pixels = new int[width * height];
+        int base = FrameRotator.regionBase(dataWidth, dataHeight, rotation, left, top);
+        int xStep = FrameRotator.xStep(dataWidth, rotation) * THUMBNAIL_SCALE_FACTOR;
+        int yStep = FrameRotator.yStep(dataWidth, rotation) * THUMBNAIL_SCALE_FACTOR;
+        for (int y = 0; y < height; y++) {
+            int srcIndex = base + y * yStep;
+            int outputOffset = y * width;
+            for (int x = 0; x < width; x++, srcIndex += xStep) {
+                int grey = yuvData[srcIndex] & 0xff;
+                pixels[outputOffset + x] = 0xFF000000 | (grey * 0x00010101);
+            }
+        }
+        return pixels;
+    }
+
+    public int getThumbnailWidth() {
+        return getWidth() / THUMBNAIL_SCALE_FACTOR;
+    }
+
+    public int getThumbnailHeight() {
+        return getHeight() / THUMBNAIL_SCALE_FACTOR;
+    }
+
+}
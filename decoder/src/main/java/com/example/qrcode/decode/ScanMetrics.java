@@ -0,0 +1,180 @@
+package com.example.qrcode.decode;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+//扫码流水线各阶段的耗时统计，进程内共享，可以随时查询或输出
+public final class ScanMetrics {
+
+    //流水线阶段
+    public enum Stage {
+        FRAME_INTERVAL,//相邻两帧到达PreviewCallback的间隔
+        QUEUE_WAIT,//帧到达到开始解码的等待
+        SHARPNESS,//清晰度估计，模糊的帧到此为止
+        ROTATION,//取景框裁剪和旋转
+        BINARIZATION,//二值化
+        DECODE,//MultiFormatReader.decodeWithState
+        THUMBNAIL,//缩略图打包
+        DELIVERY,//解码成功到CaptureActivityHandler处理结果
+        TIME_TO_FIRST_DECODE//扫码开始到第一次交付结果
+    }
+
+    private static final ScanMetrics INSTANCE = new ScanMetrics();
+
+    private final LatencyHistogram[] histograms;
+    private final AtomicLong lastFrameArrival = new AtomicLong();
+    private final AtomicLong dispatchedFrameArrival = new AtomicLong();
+    private final AtomicLong sessionStart = new AtomicLong();
+    private final AtomicBoolean firstDecodeRecorded = new AtomicBoolean(true);
+    private final AtomicLong codesDelivered = new AtomicLong();//本次扫码交付的条码数
+    private final AtomicLong lastDelivery = new AtomicLong();
+    private final AtomicLongArray binarizerAttempts = new AtomicLongArray(BinarizerSelector.Kind.values().length);
+    private final AtomicLongArray binarizerWins = new AtomicLongArray(BinarizerSelector.Kind.values().length);
+    private final AtomicLongArray tierAttempts = new AtomicLongArray(DecodeTiers.Tier.values().length);
+    private final AtomicLongArray tierWins = new AtomicLongArray(DecodeTiers.Tier.values().length);
+
+    public ScanMetrics() {
+        Stage[] stages = Stage.values();
+        histograms = new LatencyHistogram[stages.length];
+        for (int i = 0; i < stages.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+    }
+
+    public static ScanMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    public void record(Stage stage, long nanos) {
+        histograms[stage.ordinal()].record(nanos);
+    }
+
+    public LatencyHistogram getHistogram(Stage stage) {
+        return histograms[stage.ordinal()];
+    }
+
+    //开始一次扫码，之后第一次交付结果计入TIME_TO_FIRST_DECODE
+    public void startSession(long nanos) {
+        sessionStart.set(nanos);
+        lastFrameArrival.set(0);
+        firstDecodeRecorded.set(false);
+        codesDelivered.set(0);
+        lastDelivery.set(0);
+    }
+
+    //每一帧到达PreviewCallback时调用
+    public void onFrameArrived(long nanos) {
+        long last = lastFrameArrival.getAndSet(nanos);
+        if (last != 0) {
+            record(Stage.FRAME_INTERVAL, nanos - last);
+        }
+    }
+
+    //帧交给解码线程时记下到达时间；同一时刻只有一帧在PreviewCallback和DecodeHandler之间传递
+    public void onFrameDispatched(long arrivalNanos) {
+        dispatchedFrameArrival.set(arrivalNanos);
+    }
+
+    //取出onFrameDispatched记下的到达时间，没有则返回nowNanos
+    public long takeDispatchedFrameArrival(long nowNanos) {
+        long arrival = dispatchedFrameArrival.getAndSet(0);
+        return arrival != 0 ? arrival : nowNanos;
+    }
+
+    //结果已交付，foundNanos是解码成功的时间
+    public void onResultDelivered(long foundNanos, long nowNanos) {
+        onResultDelivered(foundNanos, nowNanos, 1);
+    }
+
+    //一帧多码模式一次交付codes个条码
+    public void onResultDelivered(long foundNanos, long nowNanos, int codes) {
+        codesDelivered.addAndGet(codes);
+        lastDelivery.set(nowNanos);
+        if (foundNanos != 0) {
+            record(Stage.DELIVERY, nowNanos - foundNanos);
+        }
+        if (firstDecodeRecorded.compareAndSet(false, true)) {
+            record(Stage.TIME_TO_FIRST_DECODE, nowNanos - sessionStart.get());
+        }
+    }
+
+    public long getCodesDelivered() {
+        return codesDelivered.get();
+    }
+
+    //扫码开始到最后一次交付之间每秒交付的条码数
+    public double getCodesPerSecond() {
+        long elapsed = lastDelivery.get() - sessionStart.get();
+        return elapsed > 0 ? codesDelivered.get() * 1e9 / elapsed : 0;
+    }
+
+    //用kind二值化后解码了一次，found表示解出了条码
+    public void onBinarizerAttempt(BinarizerSelector.Kind kind, boolean found) {
+        binarizerAttempts.incrementAndGet(kind.ordinal());
+        if (found) {
+            binarizerWins.incrementAndGet(kind.ordinal());
+        }
+    }
+
+    public long getBinarizerAttempts(BinarizerSelector.Kind kind) {
+        return binarizerAttempts.get(kind.ordinal());
+    }
+
+    public long getBinarizerWins(BinarizerSelector.Kind kind) {
+        return binarizerWins.get(kind.ordinal());
+    }
+
+    //快速解码失败后做了一次tier级别的重试
+    public void onTierAttempt(DecodeTiers.Tier tier, boolean found) {
+        tierAttempts.incrementAndGet(tier.ordinal());
+        if (found) {
+            tierWins.incrementAndGet(tier.ordinal());
+        }
+    }
+
+    public long getTierAttempts(DecodeTiers.Tier tier) {
+        return tierAttempts.get(tier.ordinal());
+    }
+
+    public long getTierWins(DecodeTiers.Tier tier) {
+        return tierWins.get(tier.ordinal());
+    }
+
+    public void reset() {
+        for (LatencyHistogram histogram : histograms) {
+            histogram.reset();
+        }
+        for (int i = 0; i < binarizerAttempts.length(); i++) {
+            binarizerAttempts.set(i, 0);
+            binarizerWins.set(i, 0);
+        }
+        for (int i = 0; i < tierAttempts.length(); i++) {
+            tierAttempts.set(i, 0);
+            tierWins.set(i, 0);
+        }
+    }
+
+    //每个阶段一行：次数、p50、p95、p99、最大值（毫秒）
+    public String dump() {
+        StringBuilder out = new StringBuilder();
+        for (Stage stage : Stage.values()) {
+            LatencyHistogram histogram = getHistogram(stage);
+            out.append(String.format(Locale.US, "%-21s n=%-6d p50=%.2fms p95=%.2fms p99=%.2fms max=%.2fms%n", stage, histogram.getCount(), toMillis(histogram.getPercentileNanos(50)), toMillis(histogram.getPercentileNanos(95)), toMillis(histogram.getPercentileNanos(99)), toMillis(histogram.getMaxNanos())));
+        }
+        for (BinarizerSelector.Kind kind : BinarizerSelector.Kind.values()) {
+            out.append(String.format(Locale.US, "%-21s n=%-6d won=%d%n", kind, getBinarizerAttempts(kind), getBinarizerWins(kind)));
+        }
+        for (DecodeTiers.Tier tier : DecodeTiers.Tier.values()) {
+            out.append(String.format(Locale.US, "%-21s n=%-6d won=%d%n", tier, getTierAttempts(tier), getTierWins(tier)));
+        }
+        out.append(String.format(Locale.US, "%-21s n=%-6d rate=%.2f/s%n", "CODES", getCodesDelivered(), getCodesPerSecond()));
+        return out.toString();
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1e6;
+    }
+
+}
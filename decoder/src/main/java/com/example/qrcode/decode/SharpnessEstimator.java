@@ -0,0 +1,58 @@
+package com.example.qrcode.decode;
+
+//清晰度估计：在取景框内按网格采样，分别计算水平和竖直二阶差分的方差，取较小的一个
+//运动模糊会抹掉一个方向的边缘，两个方向都要够清晰才值得二值化和解码；直接读取原始帧，不分配内存
+public final class SharpnessEstimator {
+
+    //低于这个值的帧不解码；取得偏保守，模糊到勉强能解的码也能通过，噪声本身会贡献约6倍噪声方差
+    public static final int DEFAULT_MIN_SHARPNESS = 30;
+    static final int SAMPLE_GRID = 48;//每个方向的采样点数
+    static final int GAP = 2;//差分的像素间距，间距1时对轻微模糊过于敏感
+
+    private SharpnessEstimator() {
+    }
+
+    //region是旋转之后的取景框；返回值越大越清晰，纯色帧为0
+    public static int estimate(byte[] data, int width, int height, DecodeRegion region) {
+        int rotation = region.getRotation();
+        int base = FrameRotator.regionBase(width, height, rotation, region.getLeft(), region.getTop());
+        int xStep = FrameRotator.xStep(width, rotation);
+        int yStep = FrameRotator.yStep(width, rotation);
+        int regionWidth = region.getWidth();
+        int regionHeight = region.getHeight();
+        if (regionWidth <= 2 * GAP || regionHeight <= 2 * GAP) {
+            return 0;
+        }
+        int spanX = regionWidth - 2 * GAP;
+        int spanY = regionHeight - 2 * GAP;
+        int columns = Math.min(SAMPLE_GRID, spanX);
+        int rows = Math.min(SAMPLE_GRID, spanY);
+        long sumX = 0;
+        long sumSquaresX = 0;
+        long sumY = 0;
+        long sumSquaresY = 0;
+        int stepX = spanX / columns;
+        int stepY = spanY / rows;
+        for (int gy = 0; gy < rows; gy++) {
+            for (int gx = 0; gx < columns; gx++) {
+                //采样点避开边缘GAP个像素，邻居都在取景框内；每行每列错开不同的相位，
+                //规则网格的间距和条码模块接近时，采样点可能全部落在模块内部的平坦处
+                int x = GAP + gx * spanX / columns + (gy * 7) % stepX;
+                int y = GAP + gy * spanY / rows + (gx * 7) % stepY;
+                int index = base + x * xStep + y * yStep;
+                int center = (data[index] & 0xff) << 1;
+                int dxx = center - (data[index - GAP * xStep] & 0xff) - (data[index + GAP * xStep] & 0xff);
+                int dyy = center - (data[index - GAP * yStep] & 0xff) - (data[index + GAP * yStep] & 0xff);
+                sumX += dxx;
+                sumSquaresX += dxx * dxx;
+                sumY += dyy;
+                sumSquaresY += dyy * dyy;
+            }
+        }
+        int samples = columns * rows;
+        long varianceX = (sumSquaresX - sumX * sumX / samples) / samples;
+        long varianceY = (sumSquaresY - sumY * sumY / samples) / samples;
+        return (int) Math.min(varianceX, varianceY);
+    }
+
+}
@@ -0,0 +1,62 @@
+package com.example.qrcode.decode;
+
+import com.google.zxing.BarcodeFormat;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BinarizerSelectorTest {
+
+    private static final int WIDTH = 320;
+    private static final int HEIGHT = 240;
+
+    @Test
+    public void preferGlobal_wellLitHighContrastCode() {
+        byte[] frame = TestFrames.qrFrame("lit", WIDTH, HEIGHT);
+
+        assertTrue(new BinarizerSelector().preferGlobal(frame, WIDTH, HEIGHT));
+    }
+
+    @Test
+    public void preferGlobal_notForShadedCode() {
+        byte[] frame = shaded(TestFrames.qrFrame("shaded", WIDTH, HEIGHT));
+
+        assertFalse(new BinarizerSelector().preferGlobal(frame, WIDTH, HEIGHT));
+    }
+
+    @Test
+    public void preferGlobal_notForDimCode() {
+        byte[] frame = TestFrames.qrFrame("dim", WIDTH, HEIGHT);
+        for (int i = 0; i < WIDTH * HEIGHT; i++) {
+            frame[i] = (byte) ((frame[i] & 0xff) / 3);
+        }
+
+        assertFalse(new BinarizerSelector().preferGlobal(frame, WIDTH, HEIGHT));
+    }
+
+    @Test
+    public void preferGlobal_notForBlankFrame() {
+        assertFalse(new BinarizerSelector().preferGlobal(TestFrames.blankFrame(WIDTH, HEIGHT), WIDTH, HEIGHT));
+    }
+
+    @Test
+    public void preferGlobal_notForSmallCode() {
+        //暗像素不到5%，看不出两端
+        byte[] frame = TestFrames.barcodeFrame(BarcodeFormat.QR_CODE, "small", WIDTH, HEIGHT, 40, 40);
+
+        assertFalse(new BinarizerSelector().preferGlobal(frame, WIDTH, HEIGHT));
+    }
+
+    //从左到右亮度由30%渐变到100%，模拟侧光
+    static byte[] shaded(byte[] frame) {
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                int i = y * WIDTH + x;
+                frame[i] = (byte) ((frame[i] & 0xff) * (30 + 70 * x / WIDTH) / 100);
+            }
+        }
+        return frame;
+    }
+
+}
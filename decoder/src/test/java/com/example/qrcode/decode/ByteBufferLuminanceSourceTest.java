@@ -0,0 +1,107 @@
+package com.example.qrcode.decode;
+
+import com.google.zxing.LuminanceSource;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class ByteBufferLuminanceSourceTest {
+
+    private static final int DATA_WIDTH = 97;
+    private static final int DATA_HEIGHT = 61;
+    private static final int ROW_STRIDE = 112;//行末有15字节填充
+
+    @Test
+    public void getMatrix_matchesRotatedYUVSourceWithRowPadding() {
+        byte[] data = FrameRotatorTest.randomFrame(DATA_WIDTH * DATA_HEIGHT, 7);
+        ByteBuffer buffer = strided(data, ROW_STRIDE, 1, 0);
+        for (int rotation = 0; rotation < 360; rotation += 90) {
+            RotatedYUVLuminanceSource expected = new RotatedYUVLuminanceSource(data, DATA_WIDTH, DATA_HEIGHT, 5, 9, 40, 33, rotation, null);
+            ByteBufferLuminanceSource actual = new ByteBufferLuminanceSource(buffer, DATA_WIDTH, DATA_HEIGHT, ROW_STRIDE, 1, 5, 9, 40, 33, rotation, null);
+            assertArrayEquals("rotation " + rotation, expected.getMatrix(), actual.getMatrix());
+        }
+    }
+
+    @Test
+    public void getRow_matchesRotatedYUVSourceWithPixelStride() {
+        byte[] data = FrameRotatorTest.randomFrame(DATA_WIDTH * DATA_HEIGHT, 11);
+        //像素跨度2，类似半平面格式中交错的色度
+        ByteBuffer buffer = strided(data, DATA_WIDTH * 2, 2, 0);
+        for (int rotation = 0; rotation < 360; rotation += 90) {
+            RotatedYUVLuminanceSource expected = new RotatedYUVLuminanceSource(data, DATA_WIDTH, DATA_HEIGHT, 3, 2, 51, 17, rotation, null);
+            ByteBufferLuminanceSource actual = new ByteBufferLuminanceSource(buffer, DATA_WIDTH, DATA_HEIGHT, DATA_WIDTH * 2, 2, 3, 2, 51, 17, rotation, null);
+            byte[] row = new byte[51];
+            for (int y = 0; y < 17; y++) {
+                assertArrayEquals("rotation " + rotation + " row " + y, expected.getRow(y, null), actual.getRow(y, row));
+            }
+            assertArrayEquals("rotation " + rotation, expected.getMatrix(), actual.getMatrix());
+        }
+    }
+
+    @Test
+    public void getMatrix_readsFromBufferPositionWithoutMovingIt() {
+        byte[] data = FrameRotatorTest.randomFrame(DATA_WIDTH * DATA_HEIGHT, 13);
+        ByteBuffer buffer = strided(data, ROW_STRIDE, 1, 100);
+        buffer.position(100);
+        ByteBufferLuminanceSource source = new ByteBufferLuminanceSource(buffer, DATA_WIDTH, DATA_HEIGHT, ROW_STRIDE, 1, 0, 0, DATA_WIDTH, DATA_HEIGHT, 0, null);
+
+        assertArrayEquals(data, source.getMatrix());
+        assertEquals(100, buffer.position());
+    }
+
+    @Test
+    public void getMatrix_writesIntoReusableBuffer() {
+        byte[] data = FrameRotatorTest.randomFrame(DATA_WIDTH * DATA_HEIGHT, 17);
+        byte[] matrix = new byte[DATA_WIDTH * DATA_HEIGHT];
+        byte[] row = new byte[DATA_WIDTH];
+        ByteBufferLuminanceSource source = new ByteBufferLuminanceSource(strided(data, ROW_STRIDE, 1, 0), DATA_WIDTH, DATA_HEIGHT, ROW_STRIDE, 1, 10, 10, 30, 30, 90, matrix);
+
+        assertSame(matrix, source.getMatrix());
+        assertSame(row, source.getRow(3, row));
+    }
+
+    @Test
+    public void crop_matchesRotatedYUVSource() {
+        byte[] data = FrameRotatorTest.randomFrame(DATA_WIDTH * DATA_HEIGHT, 19);
+        ByteBuffer buffer = strided(data, ROW_STRIDE, 1, 8);
+        buffer.position(8);
+        for (int rotation = 0; rotation < 360; rotation += 90) {
+            LuminanceSource expected = new RotatedYUVLuminanceSource(data, DATA_WIDTH, DATA_HEIGHT, 4, 6, 40, 30, rotation, null).crop(3, 2, 20, 10);
+            LuminanceSource actual = new ByteBufferLuminanceSource(buffer, DATA_WIDTH, DATA_HEIGHT, ROW_STRIDE, 1, 4, 6, 40, 30, rotation, null).crop(3, 2, 20, 10);
+            assertArrayEquals("rotation " + rotation, expected.getMatrix(), actual.getMatrix());
+        }
+    }
+
+    @Test
+    public void renderThumbnail_matchesRotatedYUVSource() {
+        byte[] data = FrameRotatorTest.randomFrame(DATA_WIDTH * DATA_HEIGHT, 23);
+        ByteBuffer buffer = strided(data, ROW_STRIDE, 1, 0);
+        for (int rotation = 0; rotation < 360; rotation += 90) {
+            RotatedYUVLuminanceSource expected = new RotatedYUVLuminanceSource(data, DATA_WIDTH, DATA_HEIGHT, 1, 1, 45, 37, rotation, null);
+            ByteBufferLuminanceSource actual = new ByteBufferLuminanceSource(buffer, DATA_WIDTH, DATA_HEIGHT, ROW_STRIDE, 1, 1, 1, 45, 37, rotation, null);
+            assertEquals(expected.getThumbnailWidth(), actual.getThumbnailWidth());
+            assertEquals(expected.getThumbnailHeight(), actual.getThumbnailHeight());
+            assertArrayEquals("rotation " + rotation, expected.renderThumbnail(), actual.renderThumbnail());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_rejectsBufferSmallerThanFrame() {
+        new ByteBufferLuminanceSource(ByteBuffer.allocateDirect(DATA_WIDTH * DATA_HEIGHT - 1), DATA_WIDTH, DATA_HEIGHT, DATA_WIDTH, 1, 0, 0, DATA_WIDTH, DATA_HEIGHT, 0, null);
+    }
+
+    //把紧凑的亮度平面按跨度写进直接缓冲区，前面留offset字节；最后一行的填充可以省略，和Image的平面一样
+    static ByteBuffer strided(byte[] data, int rowStride, int pixelStride, int offset) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(offset + (DATA_HEIGHT - 1) * rowStride + (DATA_WIDTH - 1) * pixelStride + 1);
+        for (int y = 0; y < DATA_HEIGHT; y++) {
+            for (int x = 0; x < DATA_WIDTH; x++) {
+                buffer.put(offset + y * rowStride + x * pixelStride, data[y * DATA_WIDTH + x]);
+            }
+        }
+        return buffer;
+    }
+
+}
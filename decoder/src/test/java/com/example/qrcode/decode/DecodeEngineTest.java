@@ -0,0 +1,309 @@
+package com.example.qrcode.decode;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.PlanarYUVLuminanceSource;
+import com.google.zxing.ResultPoint;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class DecodeEngineTest {
+
+    private static final int WIDTH = 320;
+    private static final int HEIGHT = 240;
+
+    @Test
+    public void decode_findsCodeInRotatedRegion() {
+        DecodeEngine engine = new DecodeEngine(DecodeWorkerPoolTest.qrHints());
+        byte[] frame = TestFrames.qrFrame("engine", WIDTH, HEIGHT);
+
+        //旋转90度之后是240x320，取中间的200x200
+        DecodeResult result = engine.decode(frame, WIDTH, HEIGHT, new DecodeRegion(90, 20, 60, 200, 200));
+
+        assertTrue(result.isFound());
+        assertEquals("engine", result.getResult().getText());
+        assertEquals(200, result.getSource().getWidth());
+    }
+
+    @Test
+    public void decode_findsCodeInDirectBufferWithRowPadding() {
+        byte[] frame = TestFrames.qrFrame("direct", WIDTH, HEIGHT);
+        int rowStride = WIDTH + 64;
+        ByteBuffer buffer = ByteBuffer.allocateDirect(rowStride * HEIGHT);
+        for (int y = 0; y < HEIGHT; y++) {
+            buffer.position(y * rowStride);
+            buffer.put(frame, y * WIDTH, WIDTH);
+        }
+        buffer.position(0);
+        DecodeEngine engine = new DecodeEngine(DecodeWorkerPoolTest.qrHints());
+
+        DecodeResult result = engine.decode(buffer, WIDTH, HEIGHT, rowStride, 1, new DecodeRegion(90, 20, 60, 200, 200));
+
+        assertTrue(result.isFound());
+        assertEquals("direct", result.getResult().getText());
+        assertEquals(0, buffer.position());
+    }
+
+    @Test
+    public void decode_skipsBlurredDirectBufferFrame() {
+        ScanMetrics metrics = new ScanMetrics();
+        DecodeEngine engine = new DecodeEngine(DecodeWorkerPoolTest.qrHints(), new ReaderDispatcher.Statistics(), metrics);
+        byte[] blurred = TestFrames.motionBlur(TestFrames.qrFrame("blurred", WIDTH, HEIGHT), WIDTH, HEIGHT, 8, true);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(blurred.length);
+        buffer.put(blurred).flip();
+
+        DecodeResult result = engine.decode(buffer, WIDTH, HEIGHT, WIDTH, 1, DecodeRegion.fullFrame(90, WIDTH, HEIGHT));
+
+        assertFalse(result.isFound());
+        assertEquals(1, metrics.getHistogram(ScanMetrics.Stage.SHARPNESS).getCount());
+        assertEquals(0, metrics.getHistogram(ScanMetrics.Stage.BINARIZATION).getCount());
+    }
+
+    @Test
+    public void decode_reportsStageTimings() {
+        ScanMetrics metrics = new ScanMetrics();
+        DecodeEngine engine = new DecodeEngine(DecodeWorkerPoolTest.qrHints(), new ReaderDispatcher.Statistics(), metrics);
+
+        DecodeResult result = engine.decode(TestFrames.qrFrame("timing", WIDTH, HEIGHT), WIDTH, HEIGHT, DecodeRegion.fullFrame(90, WIDTH, HEIGHT));
+
+        assertTrue(result.getTotalNanos() > 0);
+        assertTrue(result.getTotalNanos() >= result.getRotationNanos() + result.getBinarizationNanos() + result.getDecodeNanos());
+        assertEquals(1, metrics.getHistogram(ScanMetrics.Stage.ROTATION).getCount());
+        assertEquals(1, metrics.getHistogram(ScanMetrics.Stage.BINARIZATION).getCount());
+        assertEquals(1, metrics.getHistogram(ScanMetrics.Stage.DECODE).getCount());
+    }
+
+    @Test
+    public void decode_skipsBlurredFrameBeforeBinarization() {
+        ScanMetrics metrics = new ScanMetrics();
+        DecodeEngine engine = new DecodeEngine(DecodeWorkerPoolTest.qrHints(), new ReaderDispatcher.Statistics(), metrics);
+        byte[] blurred = TestFrames.motionBlur(TestFrames.qrFrame("blurred", WIDTH, HEIGHT), WIDTH, HEIGHT, 8, true);
+
+        DecodeResult result = engine.decode(blurred, WIDTH, HEIGHT, DecodeRegion.fullFrame(90, WIDTH, HEIGHT));
+
+        assertFalse(result.isFound());
+        assertNull(result.getSource());
+        assertEquals(1, metrics.getHistogram(ScanMetrics.Stage.SHARPNESS).getCount());
+        assertEquals(0, metrics.getHistogram(ScanMetrics.Stage.BINARIZATION).getCount());
+    }
+
+    @Test
+    public void decode_binarizesBlurredFrameWhenFilterDisabled() {
+        ScanMetrics metrics = new ScanMetrics();
+        DecodeEngine engine = new DecodeEngine(DecodeWorkerPoolTest.qrHints(), new ReaderDispatcher.Statistics(), metrics);
+        engine.setMinSharpness(0);
+        byte[] blurred = TestFrames.motionBlur(TestFrames.qrFrame("blurred", WIDTH, HEIGHT), WIDTH, HEIGHT, 8, true);
+
+        engine.decode(blurred, WIDTH, HEIGHT, DecodeRegion.fullFrame(90, WIDTH, HEIGHT));
+
+        assertEquals(0, metrics.getHistogram(ScanMetrics.Stage.SHARPNESS).getCount());
+        assertEquals(1, metrics.getHistogram(ScanMetrics.Stage.BINARIZATION).getCount());
+    }
+
+    @Test
+    public void decode_advancesFormatStatisticsOncePerFrame() {
+        ReaderDispatcher.Statistics statistics = new ReaderDispatcher.Statistics();
+        Map<DecodeHintType, Object> hints = DecodeWorkerPoolTest.qrHints();
+        DecodeTiers.put(hints, DecodeTiers.defaults());
+        DecodeEngine engine = new DecodeEngine(hints, statistics, new ScanMetrics());
+        engine.setMinSharpness(0);//空白帧没有边缘，否则会被当作模糊帧跳过
+        byte[] blank = TestFrames.blankFrame(640, 480);
+
+        //金字塔各层、两种二值化和重试级别都会分发，但都算同一帧
+        for (int i = 0; i < 3; i++) {
+            engine.decode(blank, 640, 480, DecodeRegion.fullFrame(90, 640, 480));
+        }
+
+        assertEquals(3, statistics.getFrames());
+    }
+
+    @Test
+    public void decode_findsLargeCodeOnCoarseLevelWithFullResolutionPoints() {
+        byte[] frame = TestFrames.barcodeFrame(BarcodeFormat.QR_CODE, "coarse", 640, 480, 300, 300);
+        DecodeRegion region = DecodeRegion.fullFrame(90, 640, 480);
+        DecodeEngine pyramid = new DecodeEngine(DecodeWorkerPoolTest.qrHints());
+        DecodeEngine fullResolution = new DecodeEngine(DecodeWorkerPoolTest.qrHints());
+        fullResolution.setMaxPyramidLevel(0);
+
+        ResultPoint[] coarse = pyramid.decode(frame, 640, 480, region).getResult().getResultPoints();
+        ResultPoint[] fine = fullResolution.decode(frame, 640, 480, region).getResult().getResultPoints();
+
+        assertEquals(fine.length, coarse.length);
+        for (int i = 0; i < fine.length; i++) {
+            assertEquals(fine[i].getX(), coarse[i].getX(), 3f);
+            assertEquals(fine[i].getY(), coarse[i].getY(), 3f);
+        }
+    }
+
+    @Test
+    public void decode_fallsBackToFullResolutionForSmallCodeEveryFrame() {
+        byte[] frame = TestFrames.barcodeFrame(BarcodeFormat.QR_CODE, "distant", 640, 480, 60, 60);
+        DecodeRegion region = DecodeRegion.fullFrame(90, 640, 480);
+        DecodeEngine engine = new DecodeEngine(DecodeWorkerPoolTest.qrHints());
+        engine.setMinSharpness(0);
+
+        for (int i = 0; i < 4; i++) {
+            assertTrue("frame " + i, engine.decode(frame, 640, 480, region).isFound());
+        }
+    }
+
+    @Test
+    public void decode_probesFullResolutionAtConfiguredInterval() {
+        byte[] frame = TestFrames.barcodeFrame(BarcodeFormat.QR_CODE, "distant", 640, 480, 60, 60);
+        DecodeRegion region = DecodeRegion.fullFrame(90, 640, 480);
+        DecodeEngine engine = new DecodeEngine(DecodeWorkerPoolTest.qrHints());
+        engine.setMinSharpness(0);
+        engine.setFullResolutionInterval(2);
+        int found = 0;
+        for (int i = 0; i < 4; i++) {
+            if (engine.decode(frame, 640, 480, region).isFound()) {
+                found++;
+            }
+        }
+
+        assertTrue(found >= 2);
+    }
+
+    @Test
+    public void decode_reportsGlobalHistogramWinOnWellLitFrame() {
+        ScanMetrics metrics = new ScanMetrics();
+        DecodeEngine engine = new DecodeEngine(DecodeWorkerPoolTest.qrHints(), new ReaderDispatcher.Statistics(), metrics);
+
+        DecodeResult result = engine.decode(TestFrames.qrFrame("lit", WIDTH, HEIGHT), WIDTH, HEIGHT, DecodeRegion.fullFrame(90, WIDTH, HEIGHT));
+
+        assertEquals(BinarizerSelector.Kind.GLOBAL_HISTOGRAM, result.getBinarizer());
+        assertEquals(1, metrics.getBinarizerWins(BinarizerSelector.Kind.GLOBAL_HISTOGRAM));
+        assertEquals(0, metrics.getBinarizerAttempts(BinarizerSelector.Kind.HYBRID));
+    }
+
+    @Test
+    public void decode_usesHybridOnShadedFrame() {
+        ScanMetrics metrics = new ScanMetrics();
+        DecodeEngine engine = new DecodeEngine(DecodeWorkerPoolTest.qrHints(), new ReaderDispatcher.Statistics(), metrics);
+        byte[] frame = BinarizerSelectorTest.shaded(TestFrames.qrFrame("shaded", WIDTH, HEIGHT));
+
+        DecodeResult result = engine.decode(frame, WIDTH, HEIGHT, DecodeRegion.fullFrame(90, WIDTH, HEIGHT));
+
+        assertEquals("shaded", result.getResult().getText());
+        assertEquals(BinarizerSelector.Kind.HYBRID, result.getBinarizer());
+        assertEquals(0, metrics.getBinarizerAttempts(BinarizerSelector.Kind.GLOBAL_HISTOGRAM));
+    }
+
+    @Test
+    public void decode_invertedCodeNeedsInvertedTier() {
+        byte[] frame = inverted(TestFrames.qrFrame("screen", WIDTH, HEIGHT));
+
+        DecodeResult result = new DecodeEngine(DecodeWorkerPoolTest.qrHints()).decode(frame, WIDTH, HEIGHT, DecodeRegion.fullFrame(90, WIDTH, HEIGHT));
+
+        assertFalse(result.isFound());
+    }
+
+    @Test
+    public void decode_invertedTierFindsLightOnDarkCode() {
+        Map<DecodeHintType, Object> hints = DecodeWorkerPoolTest.qrHints();
+        DecodeTiers.put(hints, new DecodeTiers(EnumSet.of(DecodeTiers.Tier.INVERTED), 1, 0));
+        DecodeEngine engine = new DecodeEngine(hints);
+        byte[] frame = inverted(TestFrames.qrFrame("screen", WIDTH, HEIGHT));
+
+        DecodeResult result = engine.decode(frame, WIDTH, HEIGHT, DecodeRegion.fullFrame(90, WIDTH, HEIGHT));
+
+        assertEquals("screen", result.getResult().getText());
+        assertEquals(1, engine.getMetrics().getTierWins(DecodeTiers.Tier.INVERTED));
+    }
+
+    @Test
+    public void decode_retriesOnlyEveryIntervalFramesWithoutBudget() {
+        Map<DecodeHintType, Object> hints = DecodeWorkerPoolTest.qrHints();
+        DecodeTiers.put(hints, new DecodeTiers(EnumSet.allOf(DecodeTiers.Tier.class), 3, 0));
+        DecodeEngine engine = new DecodeEngine(hints);
+        //只开了二维码，清晰的一维码帧怎么重试都解不出来
+        byte[] frame = TestFrames.barcodeFrame(BarcodeFormat.CODE_128, "no qr", WIDTH, HEIGHT, 200, 80);
+
+        for (int i = 0; i < 6; i++) {
+            assertFalse(engine.decode(frame, WIDTH, HEIGHT, DecodeRegion.fullFrame(90, WIDTH, HEIGHT)).isFound());
+        }
+
+        assertEquals(2, engine.getMetrics().getTierAttempts(DecodeTiers.Tier.TRY_HARDER));
+        assertEquals(2, engine.getMetrics().getTierAttempts(DecodeTiers.Tier.INVERTED));
+    }
+
+    @Test
+    public void decode_retriesWhileBudgetLeavesRoom() {
+        Map<DecodeHintType, Object> hints = DecodeWorkerPoolTest.qrHints();
+        DecodeTiers.put(hints, new DecodeTiers(EnumSet.of(DecodeTiers.Tier.TRY_HARDER), 0, 10000));
+        DecodeEngine engine = new DecodeEngine(hints);
+        byte[] frame = inverted(TestFrames.qrFrame("budget", WIDTH, HEIGHT));
+
+        for (int i = 0; i < 3; i++) {
+            engine.decode(frame, WIDTH, HEIGHT, DecodeRegion.fullFrame(90, WIDTH, HEIGHT));
+        }
+
+        assertEquals(3, engine.getMetrics().getTierAttempts(DecodeTiers.Tier.TRY_HARDER));
+    }
+
+    @Test
+    public void decode_skipsTryHarderTierWhenHintAlreadySet() {
+        Map<DecodeHintType, Object> hints = DecodeWorkerPoolTest.qrHints();
+        hints.put(DecodeHintType.TRY_HARDER, Boolean.TRUE);
+        DecodeTiers.put(hints, new DecodeTiers(EnumSet.allOf(DecodeTiers.Tier.class), 1, 0));
+        DecodeEngine engine = new DecodeEngine(hints);
+
+        engine.decode(inverted(TestFrames.qrFrame("hard", WIDTH, HEIGHT)), WIDTH, HEIGHT, DecodeRegion.fullFrame(90, WIDTH, HEIGHT));
+
+        assertEquals(0, engine.getMetrics().getTierAttempts(DecodeTiers.Tier.TRY_HARDER));
+        assertEquals(1, engine.getMetrics().getTierWins(DecodeTiers.Tier.INVERTED));
+    }
+
+    @Test
+    public void decode_blankFrameIsNotFound() {
+        DecodeEngine engine = new DecodeEngine(DecodeWorkerPoolTest.qrHints());
+
+        DecodeResult result = engine.decode(TestFrames.blankFrame(WIDTH, HEIGHT), WIDTH, HEIGHT, DecodeRegion.fullFrame(0, WIDTH, HEIGHT));
+
+        assertFalse(result.isFound());
+        assertNull(result.getResult());
+    }
+
+    @Test
+    public void decode_acceptsLumaOnlyFrame() {
+        DecodeEngine engine = new DecodeEngine(DecodeWorkerPoolTest.qrHints());
+        byte[] luma = Arrays.copyOf(TestFrames.qrFrame("luma", WIDTH, HEIGHT), WIDTH * HEIGHT);
+
+        DecodeResult result = engine.decode(luma, WIDTH, HEIGHT, DecodeRegion.fullFrame(270, WIDTH, HEIGHT));
+
+        assertEquals("luma", result.getResult().getText());
+    }
+
+    @Test
+    public void decode_acceptsPrebuiltSource() {
+        DecodeEngine engine = new DecodeEngine(DecodeWorkerPoolTest.qrHints());
+        byte[] frame = TestFrames.qrFrame("source", WIDTH, HEIGHT);
+
+        DecodeResult result = engine.decode(new PlanarYUVLuminanceSource(frame, WIDTH, HEIGHT, 0, 0, WIDTH, HEIGHT, false));
+
+        assertEquals("source", result.getResult().getText());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decode_rejectsRegionOutsideFrame() {
+        DecodeEngine engine = new DecodeEngine(DecodeWorkerPoolTest.qrHints());
+
+        engine.decode(TestFrames.blankFrame(WIDTH, HEIGHT), WIDTH, HEIGHT, new DecodeRegion(0, 0, 0, HEIGHT, WIDTH));
+    }
+
+    //浅色条码在深色底上，模拟手机屏幕
+    private static byte[] inverted(byte[] frame) {
+        for (int i = 0; i < frame.length; i++) {
+            frame[i] = (byte) (255 - (frame[i] & 0xff));
+        }
+        return frame;
+    }
+
+}
@@ -0,0 +1,46 @@
+package com.example.qrcode.decode;
+
+import com.google.zxing.BarcodeFormat;
+
+import org.junit.Test;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class DecodeFormatManagerTest {
+
+    @Test
+    public void parseDecodeFormats_modeSelectsFormatGroup() {
+        assertEquals(EnumSet.of(BarcodeFormat.QR_CODE), DecodeFormatManager.parseDecodeFormats(null, DecodeFormatManager.QR_CODE_MODE));
+        assertEquals(DecodeFormatManager.PRODUCT_FORMATS, DecodeFormatManager.parseDecodeFormats(null, DecodeFormatManager.PRODUCT_MODE));
+    }
+
+    @Test
+    public void parseDecodeFormats_formatListWinsOverMode() {
+        Set<BarcodeFormat> formats = DecodeFormatManager.parseDecodeFormats("EAN_13, CODE_128", DecodeFormatManager.QR_CODE_MODE);
+
+        assertEquals(EnumSet.of(BarcodeFormat.EAN_13, BarcodeFormat.CODE_128), formats);
+    }
+
+    @Test
+    public void parseDecodeFormats_unknownFormatFallsBackToMode() {
+        assertEquals(EnumSet.of(BarcodeFormat.AZTEC), DecodeFormatManager.parseDecodeFormats("NOT_A_FORMAT", DecodeFormatManager.AZTEC_MODE));
+    }
+
+    @Test
+    public void parseDecodeFormats_nothingRequestedReturnsNull() {
+        assertNull(DecodeFormatManager.parseDecodeFormats(null, null));
+        assertNull(DecodeFormatManager.parseDecodeFormats(null, "UNKNOWN_MODE"));
+    }
+
+    @Test
+    public void parseDecodeFormats_returnsCopyOfModeSet() {
+        Set<BarcodeFormat> formats = DecodeFormatManager.parseDecodeFormats(null, DecodeFormatManager.ONE_D_MODE);
+        formats.clear();
+
+        assertFalse(DecodeFormatManager.ONE_D_FORMATS.isEmpty());
+    }
+
+}
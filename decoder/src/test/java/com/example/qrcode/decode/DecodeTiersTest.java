@@ -0,0 +1,77 @@
+package com.example.qrcode.decode;
+
+import com.google.zxing.DecodeHintType;
+
+import org.junit.Test;
+
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class DecodeTiersTest {
+
+    private static final long MS = 1000000L;
+
+    @Test
+    public void shouldRun_everyIntervalFrames() {
+        DecodeTiers tiers = new DecodeTiers(EnumSet.allOf(DecodeTiers.Tier.class), 4, 0);
+
+        assertTrue(tiers.shouldRun(DecodeTiers.Tier.INVERTED, 0, 100 * MS, 100 * MS));
+        assertFalse(tiers.shouldRun(DecodeTiers.Tier.INVERTED, 1, 0, 0));
+        assertFalse(tiers.shouldRun(DecodeTiers.Tier.INVERTED, 3, 0, 0));
+        assertTrue(tiers.shouldRun(DecodeTiers.Tier.INVERTED, 8, 100 * MS, 100 * MS));
+    }
+
+    @Test
+    public void shouldRun_whenBudgetLeavesRoom() {
+        DecodeTiers tiers = new DecodeTiers(EnumSet.allOf(DecodeTiers.Tier.class), 0, 50);
+
+        assertTrue(tiers.shouldRun(DecodeTiers.Tier.TRY_HARDER, 1, 20 * MS, 30 * MS));
+        assertFalse(tiers.shouldRun(DecodeTiers.Tier.TRY_HARDER, 1, 20 * MS, 31 * MS));
+        assertFalse(tiers.shouldRun(DecodeTiers.Tier.TRY_HARDER, 0, 60 * MS, 0));
+    }
+
+    @Test
+    public void shouldRun_neverForDisabledTier() {
+        DecodeTiers tiers = new DecodeTiers(EnumSet.of(DecodeTiers.Tier.INVERTED), 1, 1000);
+
+        assertFalse(tiers.shouldRun(DecodeTiers.Tier.TRY_HARDER, 0, 0, 0));
+        assertFalse(tiers.isEnabled(DecodeTiers.Tier.TRY_HARDER));
+        assertTrue(tiers.isEnabled(DecodeTiers.Tier.INVERTED));
+    }
+
+    @Test
+    public void from_readsTiersPutIntoHints() {
+        Map<DecodeHintType, Object> hints = new EnumMap<DecodeHintType, Object>(DecodeHintType.class);
+        assertNull(DecodeTiers.from(hints));
+        assertNull(DecodeTiers.from(null));
+
+        DecodeTiers tiers = DecodeTiers.defaults();
+        DecodeTiers.put(hints, tiers);
+
+        assertSame(tiers, DecodeTiers.from(hints));
+        assertEquals(DecodeTiers.DEFAULT_INTERVAL, tiers.getInterval());
+        assertEquals(DecodeTiers.DEFAULT_BUDGET_MILLIS * MS, tiers.getBudgetNanos());
+    }
+
+    @Test
+    public void equals_comparesSettings() {
+        assertEquals(DecodeTiers.defaults(), DecodeTiers.defaults());
+        assertEquals(DecodeTiers.defaults().hashCode(), DecodeTiers.defaults().hashCode());
+        assertFalse(DecodeTiers.defaults().equals(new DecodeTiers(EnumSet.allOf(DecodeTiers.Tier.class), 2, DecodeTiers.DEFAULT_BUDGET_MILLIS)));
+        assertFalse(DecodeTiers.defaults().equals(new DecodeTiers(EnumSet.of(DecodeTiers.Tier.INVERTED), DecodeTiers.DEFAULT_INTERVAL, DecodeTiers.DEFAULT_BUDGET_MILLIS)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_rejectsNegativeInterval() {
+        new DecodeTiers(EnumSet.allOf(DecodeTiers.Tier.class), -1, 50);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_rejectsNegativeBudget() {
+        new DecodeTiers(EnumSet.allOf(DecodeTiers.Tier.class), 4, -1);
+    }
+
+}
@@ -0,0 +1,409 @@
+package com.example.qrcode.decode;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.Result;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class DecodeWorkerPoolTest {
+
+    private static final int WIDTH = 320;
+    private static final int HEIGHT = 240;
+
+    private DecodeWorkerPool pool;
+
+    @After
+    public void tearDown() {
+        if (pool != null) {
+            pool.shutdown(1000L);
+        }
+    }
+
+    @Test
+    public void submit_decodesFrameAmongBlankFrames() throws InterruptedException {
+        RecordingCallback callback = new RecordingCallback(1);
+        pool = new DecodeWorkerPool(3, qrHints(), new FullFrameRegion(), callback, new ScanMetrics());
+        for (int i = 0; i < 4; i++) {
+            submitWhenIdle(TestFrames.blankFrame(WIDTH, HEIGHT));
+        }
+        submitWhenIdle(TestFrames.qrFrame("pool", WIDTH, HEIGHT));
+        assertTrue(callback.succeeded.await(5, TimeUnit.SECONDS));
+        assertEquals("pool", callback.results.get(0).getText());
+    }
+
+    @Test
+    public void submit_recordsStageLatencies() throws InterruptedException {
+        ScanMetrics metrics = new ScanMetrics();
+        RecordingCallback callback = new RecordingCallback(1);
+        pool = new DecodeWorkerPool(1, qrHints(), new FullFrameRegion(), callback, metrics);
+        pool.submit(TestFrames.qrFrame("metrics", WIDTH, HEIGHT), WIDTH, HEIGHT, System.nanoTime());
+        assertTrue(callback.succeeded.await(5, TimeUnit.SECONDS));
+        assertEquals(1, metrics.getHistogram(ScanMetrics.Stage.QUEUE_WAIT).getCount());
+        assertEquals(1, metrics.getHistogram(ScanMetrics.Stage.ROTATION).getCount());
+        assertEquals(1, metrics.getHistogram(ScanMetrics.Stage.BINARIZATION).getCount());
+        assertEquals(1, metrics.getHistogram(ScanMetrics.Stage.DECODE).getCount());
+    }
+
+    @Test
+    public void submit_onlyFirstSuccessIsDelivered() throws InterruptedException {
+        BlockingRegion source = new BlockingRegion();
+        RecordingCallback callback = new RecordingCallback(1);
+        pool = new DecodeWorkerPool(4, qrHints(), source, callback, new ScanMetrics());
+        for (int i = 0; i < 8; i++) {
+            pool.submit(TestFrames.qrFrame("frame", WIDTH, HEIGHT), WIDTH, HEIGHT);
+        }
+        //所有帧都提交之后才放行解码，保证它们属于同一批次
+        source.release.countDown();
+        assertTrue(callback.succeeded.await(5, TimeUnit.SECONDS));
+        waitUntilIdle();
+        assertEquals(1, callback.results.size());
+        //同一批次中没有赢的帧不算失败
+        assertEquals(0, callback.failures.get());
+    }
+
+    @Test
+    public void submit_newFramesDecodeAfterSuccess() throws InterruptedException {
+        RecordingCallback callback = new RecordingCallback(2);
+        pool = new DecodeWorkerPool(2, qrHints(), new FullFrameRegion(), callback, new ScanMetrics());
+        submitWhenIdle(TestFrames.qrFrame("first", WIDTH, HEIGHT));
+        waitUntilIdle();
+        submitWhenIdle(TestFrames.qrFrame("second", WIDTH, HEIGHT));
+        assertTrue(callback.succeeded.await(5, TimeUnit.SECONDS));
+        assertEquals("first", callback.results.get(0).getText());
+        assertEquals("second", callback.results.get(1).getText());
+    }
+
+    @Test
+    public void submit_dropsOldestPendingFrameWhenFull() throws InterruptedException {
+        BlockingRegion source = new BlockingRegion();
+        RecordingCallback callback = new RecordingCallback(1);
+        pool = new DecodeWorkerPool(1, qrHints(), source, callback, new ScanMetrics());
+        byte[] first = TestFrames.blankFrame(WIDTH, HEIGHT);
+        byte[] second = TestFrames.blankFrame(WIDTH, HEIGHT);
+        byte[] third = TestFrames.qrFrame("latest", WIDTH, HEIGHT);
+        pool.submit(first, WIDTH, HEIGHT);
+        assertTrue(source.entered.await(5, TimeUnit.SECONDS));
+        pool.submit(second, WIDTH, HEIGHT);
+        pool.submit(third, WIDTH, HEIGHT);
+        assertEquals(1, pool.getDroppedFrames());
+        source.release.countDown();
+        assertTrue(callback.succeeded.await(5, TimeUnit.SECONDS));
+        assertEquals("latest", callback.results.get(0).getText());
+        waitUntilIdle();
+        //被丢弃的第二帧最先归还，之后才是解码过的第一帧和第三帧
+        assertEquals(3, callback.released.size());
+        assertSame(second, callback.released.get(0));
+        assertSame(first, callback.released.get(1));
+        assertSame(third, callback.released.get(2));
+    }
+
+    @Test
+    public void submit_releasesEveryFrameExactlyOnce() throws InterruptedException {
+        BlockingRegion source = new BlockingRegion();
+        RecordingCallback callback = new RecordingCallback(1);
+        pool = new DecodeWorkerPool(2, qrHints(), source, callback, new ScanMetrics());
+        List<byte[]> frames = new ArrayList<byte[]>();
+        for (int i = 0; i < 6; i++) {
+            byte[] frame = TestFrames.qrFrame("release", WIDTH, HEIGHT);
+            frames.add(frame);
+            pool.submit(frame, WIDTH, HEIGHT);
+        }
+        source.release.countDown();
+        assertTrue(callback.succeeded.await(5, TimeUnit.SECONDS));
+        waitUntilIdle();
+        pool.shutdown(1000L);
+        pool = null;
+        //被解码的、被丢弃的和被取消的帧都要归还
+        assertEquals(frames.size(), callback.released.size());
+        for (byte[] frame : frames) {
+            assertTrue(callback.released.contains(frame));
+        }
+    }
+
+    @Test
+    public void submit_decodesLumaBufferAndReleasesItByType() throws InterruptedException {
+        RecordingCallback callback = new RecordingCallback(1);
+        pool = new DecodeWorkerPool(1, qrHints(), new FullFrameRegion(), callback, new ScanMetrics());
+        LumaBuffer frame = paddedLuma(TestFrames.qrFrame("buffer", WIDTH, HEIGHT));
+        pool.submit(frame, System.nanoTime());
+        assertTrue(callback.succeeded.await(5, TimeUnit.SECONDS));
+        assertEquals("buffer", callback.results.get(0).getText());
+        waitUntilIdle();
+        assertEquals(1, callback.releasedBuffers.size());
+        assertSame(frame, callback.releasedBuffers.get(0));
+        assertEquals(0, callback.released.size());
+    }
+
+    @Test
+    public void submit_releasesDroppedLumaBufferThroughItsCallback() throws InterruptedException {
+        BlockingRegion source = new BlockingRegion();
+        RecordingCallback callback = new RecordingCallback(1);
+        pool = new DecodeWorkerPool(1, qrHints(), source, callback, new ScanMetrics(), true, new ResultDeduplicator(60000L));
+        byte[] first = TestFrames.blankFrame(WIDTH, HEIGHT);
+        LumaBuffer second = paddedLuma(TestFrames.blankFrame(WIDTH, HEIGHT));
+        LumaBuffer third = paddedLuma(TestFrames.qrFrame("multiple", WIDTH, HEIGHT));
+        pool.submit(first, WIDTH, HEIGHT);
+        assertTrue(source.entered.await(5, TimeUnit.SECONDS));
+        pool.submit(second, System.nanoTime());
+        pool.submit(third, System.nanoTime());
+        assertSame(second, callback.releasedBuffers.get(0));
+        source.release.countDown();
+        //一帧多码模式也能直接解码ByteBuffer中的帧
+        assertTrue(callback.succeeded.await(5, TimeUnit.SECONDS));
+        assertEquals("multiple", callback.results.get(0).getText());
+        waitUntilIdle();
+        assertEquals(Collections.singletonList(first), callback.released);
+        assertEquals(2, callback.releasedBuffers.size());
+        assertSame(third, callback.releasedBuffers.get(1));
+    }
+
+    @Test
+    public void submit_multipleModeReportsNewCodesOnly() throws InterruptedException {
+        RecordingCallback callback = new RecordingCallback(2);
+        pool = new DecodeWorkerPool(2, qrHints(), new FullFrameRegion(), callback, new ScanMetrics(), true, new ResultDeduplicator(60000L));
+        submitWhenIdle(TestFrames.qrFrame("first", WIDTH, HEIGHT));
+        waitUntilIdle();
+        //同一个条码仍在画面中，不再上报
+        submitWhenIdle(TestFrames.qrFrame("first", WIDTH, HEIGHT));
+        waitUntilIdle();
+        submitWhenIdle(TestFrames.qrFrame("second", WIDTH, HEIGHT));
+        assertTrue(callback.succeeded.await(5, TimeUnit.SECONDS));
+        waitUntilIdle();
+        assertEquals(2, callback.results.size());
+        assertEquals("first", callback.results.get(0).getText());
+        assertEquals("second", callback.results.get(1).getText());
+        assertEquals(1, callback.failures.get());
+    }
+
+    @Test
+    public void submit_continuousModeSuppressesRepeatedReads() throws InterruptedException {
+        RecordingCallback callback = new RecordingCallback(2);
+        pool = new DecodeWorkerPool(1, qrHints(), new FullFrameRegion(), callback, new ScanMetrics(), false, new ResultDeduplicator(60000L));
+        submitWhenIdle(TestFrames.qrFrame("item", WIDTH, HEIGHT));
+        waitUntilIdle();
+        submitWhenIdle(TestFrames.qrFrame("item", WIDTH, HEIGHT));
+        waitUntilIdle();
+        submitWhenIdle(TestFrames.qrFrame("next", WIDTH, HEIGHT));
+        assertTrue(callback.succeeded.await(5, TimeUnit.SECONDS));
+        assertEquals("item", callback.results.get(0).getText());
+        assertEquals("next", callback.results.get(1).getText());
+        assertEquals(1, callback.failures.get());
+    }
+
+    @Test
+    public void submit_continuousModeReportsCodeThatLostTheRace() throws InterruptedException {
+        BlockingRegion source = new BlockingRegion(2);
+        RecordingCallback callback = new RecordingCallback(2);
+        pool = new DecodeWorkerPool(2, qrHints(), source, callback, new ScanMetrics(), false, new ResultDeduplicator(60000L));
+        //两个线程在同一批次中读到不同的条码，只有一个能赢
+        pool.submit(TestFrames.qrFrame("x", WIDTH, HEIGHT), WIDTH, HEIGHT);
+        pool.submit(TestFrames.qrFrame("y", WIDTH, HEIGHT), WIDTH, HEIGHT);
+        assertTrue(source.entered.await(5, TimeUnit.SECONDS));
+        source.release.countDown();
+        waitUntilIdle();
+        assertEquals(1, callback.results.size());
+
+        //输掉的条码没有记入去重器，再读到时照常上报
+        submitWhenIdle(TestFrames.qrFrame("x", WIDTH, HEIGHT));
+        waitUntilIdle();
+        submitWhenIdle(TestFrames.qrFrame("y", WIDTH, HEIGHT));
+        assertTrue(callback.succeeded.await(5, TimeUnit.SECONDS));
+        waitUntilIdle();
+        assertEquals(2, callback.results.size());
+        assertEquals(new HashSet<String>(Arrays.asList("x", "y")),
+                new HashSet<String>(Arrays.asList(callback.results.get(0).getText(), callback.results.get(1).getText())));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_multipleModeNeedsDeduplicator() {
+        new DecodeWorkerPool(1, qrHints(), new FullFrameRegion(), new RecordingCallback(1), new ScanMetrics(), true, null);
+    }
+
+    @Test
+    public void attach_reusesParkedWorkersForNextScan() throws InterruptedException {
+        pool = new DecodeWorkerPool(2, qrHints(), new ScanMetrics());
+        assertTrue(pool.isParked());
+        RecordingCallback first = new RecordingCallback(1);
+        pool.attach(new FullFrameRegion(), first, false, null);
+        submitWhenIdle(TestFrames.qrFrame("first", WIDTH, HEIGHT));
+        assertTrue(first.succeeded.await(5, TimeUnit.SECONDS));
+        waitUntilIdle();
+        pool.park();
+
+        RecordingCallback second = new RecordingCallback(1);
+        pool.attach(new FullFrameRegion(), second, false, null);
+        submitWhenIdle(TestFrames.qrFrame("second", WIDTH, HEIGHT));
+
+        assertTrue(second.succeeded.await(5, TimeUnit.SECONDS));
+        assertEquals("second", second.results.get(0).getText());
+        assertEquals(1, first.results.size());
+    }
+
+    @Test
+    public void park_releasesPendingFramesAndDropsInFlightResults() throws InterruptedException {
+        BlockingRegion source = new BlockingRegion();
+        RecordingCallback callback = new RecordingCallback(1);
+        pool = new DecodeWorkerPool(1, qrHints(), source, callback, new ScanMetrics());
+        byte[] decoding = TestFrames.qrFrame("decoding", WIDTH, HEIGHT);
+        byte[] pending = TestFrames.qrFrame("pending", WIDTH, HEIGHT);
+        pool.submit(decoding, WIDTH, HEIGHT);
+        assertTrue(source.entered.await(5, TimeUnit.SECONDS));
+        pool.submit(pending, WIDTH, HEIGHT);
+
+        pool.park();
+        assertTrue(callback.released.contains(pending));
+        source.release.countDown();
+        waitUntilIdle();
+
+        assertTrue(callback.released.contains(decoding));
+        assertEquals(0, callback.results.size());
+        assertEquals(0, callback.failures.get());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void submit_rejectedWhileParked() {
+        pool = new DecodeWorkerPool(1, qrHints(), new ScanMetrics());
+        pool.submit(TestFrames.blankFrame(WIDTH, HEIGHT), WIDTH, HEIGHT);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void attach_rejectsSecondBinding() {
+        pool = new DecodeWorkerPool(1, qrHints(), new FullFrameRegion(), new RecordingCallback(1), new ScanMetrics());
+        pool.attach(new FullFrameRegion(), new RecordingCallback(1), false, null);
+    }
+
+    @Test
+    public void shutdown_stopsWorkers() {
+        pool = new DecodeWorkerPool(2, qrHints(), new FullFrameRegion(), new RecordingCallback(1), new ScanMetrics());
+        pool.shutdown(1000L);
+        int alive = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().startsWith("DecodeWorker-")) {
+                alive++;
+            }
+        }
+        assertEquals(0, alive);
+        pool = null;
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_rejectsEmptyPool() {
+        new DecodeWorkerPool(0, qrHints(), new FullFrameRegion(), new RecordingCallback(1), new ScanMetrics());
+    }
+
+    private void submitWhenIdle(byte[] frame) throws InterruptedException {
+        waitUntilIdle();
+        pool.submit(frame, WIDTH, HEIGHT);
+    }
+
+    //帧的亮度平面放进直接缓冲区，每行末尾有填充，模拟Camera2图像的Y平面
+    private static LumaBuffer paddedLuma(byte[] frame) {
+        int rowStride = WIDTH + 32;
+        ByteBuffer buffer = ByteBuffer.allocateDirect(rowStride * HEIGHT);
+        for (int y = 0; y < HEIGHT; y++) {
+            buffer.position(y * rowStride);
+            buffer.put(frame, y * WIDTH, WIDTH);
+        }
+        buffer.clear();
+        return new LumaBuffer(buffer, WIDTH, HEIGHT, rowStride, 1);
+    }
+
+    private void waitUntilIdle() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000L;
+        while (!pool.hasIdleWorker() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5L);
+        }
+        Thread.sleep(50L);
+    }
+
+    static Map<DecodeHintType, Object> qrHints() {
+        Map<DecodeHintType, Object> hints = new EnumMap<DecodeHintType, Object>(DecodeHintType.class);
+        hints.put(DecodeHintType.POSSIBLE_FORMATS, EnumSet.of(BarcodeFormat.QR_CODE));
+        return hints;
+    }
+
+    //与竖屏预览一致：顺时针旋转90度，取整帧
+    static class FullFrameRegion implements DecodeWorkerPool.RegionProvider {
+        @Override
+        public DecodeRegion regionFor(int width, int height) {
+            return DecodeRegion.fullFrame(90, width, height);
+        }
+    }
+
+    //解码前阻塞，直到测试放行
+    private static final class BlockingRegion extends FullFrameRegion {
+        final CountDownLatch entered;
+        final CountDownLatch release = new CountDownLatch(1);
+
+        BlockingRegion() {
+            this(1);
+        }
+
+        //workers个线程都进入解码后entered才放开
+        BlockingRegion(int workers) {
+            entered = new CountDownLatch(workers);
+        }
+
+        @Override
+        public DecodeRegion regionFor(int width, int height) {
+            entered.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return super.regionFor(width, height);
+        }
+    }
+
+    static final class RecordingCallback implements DecodeWorkerPool.Callback {
+        final CountDownLatch succeeded;
+        final List<Result> results = Collections.synchronizedList(new ArrayList<Result>());
+        final AtomicInteger failures = new AtomicInteger();
+        final List<byte[]> released = Collections.synchronizedList(new ArrayList<byte[]>());
+        final List<LumaBuffer> releasedBuffers = Collections.synchronizedList(new ArrayList<LumaBuffer>());
+
+        RecordingCallback(int expectedResults) {
+            succeeded = new CountDownLatch(expectedResults);
+        }
+
+        @Override
+        public void onDecodeSucceeded(DecodeResult result) {
+            results.add(result.getResult());
+            succeeded.countDown();
+        }
+
+        @Override
+        public void onDecodeFailed(long decodeNanos) {
+            failures.incrementAndGet();
+        }
+
+        @Override
+        public void onFrameReleased(byte[] data) {
+            released.add(data);
+        }
+
+        @Override
+        public void onFrameReleased(LumaBuffer frame) {
+            releasedBuffers.add(frame);
+        }
+    }
+
+}
@@ -0,0 +1,129 @@
+package com.example.qrcode.decode;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class FrameRecordingTest {
+
+    private static final int WIDTH = 320;
+    private static final int HEIGHT = 240;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void open_readsBackRecordedFrames() throws IOException {
+        File file = folder.newFile("scan" + FrameRecording.FILE_SUFFIX);
+        byte[] first = TestFrames.qrFrame("first", WIDTH, HEIGHT);
+        byte[] second = TestFrames.blankFrame(WIDTH, HEIGHT);
+        FrameRecorder recorder = new FrameRecorder(file, FrameRecorder.DEFAULT_MAX_BYTES);
+        assertTrue(recorder.append(first, first.length, WIDTH, HEIGHT, new DecodeRegion(90, 20, 60, 200, 200), 1000L));
+        assertTrue(recorder.append(second, second.length, WIDTH, HEIGHT, null, 34000000L));
+        recorder.close();
+
+        FrameRecording recording = FrameRecording.open(file);
+
+        assertEquals(2, recording.getFrameCount());
+        FrameRecording.Frame frame = recording.getFrame(0);
+        assertEquals(1000L, frame.getTimestampNanos());
+        assertEquals(WIDTH, frame.getWidth());
+        assertEquals(HEIGHT, frame.getHeight());
+        assertEquals(90, frame.getRegion().getRotation());
+        assertEquals(60, frame.getRegion().getTop());
+        assertEquals(200, frame.getRegion().getHeight());
+        assertArrayEquals(first, contents(frame.getData()));
+        assertNull(recording.getFrame(1).getRegion());
+        assertArrayEquals(second, contents(recording.getFrame(1).getData()));
+    }
+
+    @Test
+    public void open_ignoresTruncatedLastRecord() throws IOException {
+        File file = folder.newFile("torn" + FrameRecording.FILE_SUFFIX);
+        byte[] frame = TestFrames.blankFrame(WIDTH, HEIGHT);
+        FrameRecorder recorder = new FrameRecorder(file, FrameRecorder.DEFAULT_MAX_BYTES);
+        recorder.append(frame, frame.length, WIDTH, HEIGHT, null, 0L);
+        recorder.append(frame, frame.length, WIDTH, HEIGHT, null, 1L);
+        recorder.close();
+        truncate(file, file.length() - 100);
+
+        assertEquals(1, FrameRecording.open(file).getFrameCount());
+    }
+
+    @Test
+    public void recorder_appendsAfterTruncatedRecordOnReopen() throws IOException {
+        File file = folder.newFile("resume" + FrameRecording.FILE_SUFFIX);
+        byte[] frame = TestFrames.blankFrame(WIDTH, HEIGHT);
+        FrameRecorder recorder = new FrameRecorder(file, FrameRecorder.DEFAULT_MAX_BYTES);
+        recorder.append(frame, frame.length, WIDTH, HEIGHT, null, 0L);
+        recorder.append(frame, frame.length, WIDTH, HEIGHT, null, 1L);
+        recorder.close();
+        truncate(file, file.length() - 100);
+
+        recorder = new FrameRecorder(file, FrameRecorder.DEFAULT_MAX_BYTES);
+        assertEquals(1, recorder.getFrameCount());
+        recorder.append(frame, frame.length, WIDTH, HEIGHT, null, 2L);
+        recorder.close();
+
+        FrameRecording recording = FrameRecording.open(file);
+        assertEquals(2, recording.getFrameCount());
+        assertEquals(2L, recording.getFrame(1).getTimestampNanos());
+    }
+
+    @Test
+    public void append_stopsAtSizeLimit() throws IOException {
+        byte[] frame = TestFrames.blankFrame(WIDTH, HEIGHT);
+        long limit = FrameRecording.FILE_HEADER_BYTES + 2 * (FrameRecording.RECORD_HEADER_BYTES + frame.length);
+        FrameRecorder recorder = new FrameRecorder(folder.newFile("limit" + FrameRecording.FILE_SUFFIX), limit);
+
+        assertTrue(recorder.append(frame, frame.length, WIDTH, HEIGHT, null, 0L));
+        assertTrue(recorder.append(frame, frame.length, WIDTH, HEIGHT, null, 1L));
+        assertFalse(recorder.append(frame, frame.length, WIDTH, HEIGHT, null, 2L));
+        assertEquals(2, recorder.getFrameCount());
+        assertEquals(limit, recorder.getSize());
+        recorder.close();
+    }
+
+    @Test(expected = IOException.class)
+    public void open_rejectsOtherFiles() throws IOException {
+        FrameRecording.wrap(ByteBuffer.wrap("not a recording".getBytes("UTF-8")));
+    }
+
+    @Test
+    public void decode_readsMappedFrameWithoutCopy() throws IOException {
+        File file = folder.newFile("decode" + FrameRecording.FILE_SUFFIX);
+        byte[] data = TestFrames.qrFrame("mapped", WIDTH, HEIGHT);
+        FrameRecorder recorder = new FrameRecorder(file, FrameRecorder.DEFAULT_MAX_BYTES);
+        recorder.append(data, data.length, WIDTH, HEIGHT, DecodeRegion.fullFrame(90, WIDTH, HEIGHT), 0L);
+        recorder.close();
+        FrameRecording.Frame frame = FrameRecording.open(file).getFrame(0);
+
+        DecodeResult result = new DecodeEngine(DecodeWorkerPoolTest.qrHints()).decode(frame.getData(), frame.getWidth(), frame.getHeight(), frame.getWidth(), 1, frame.getRegion());
+
+        assertTrue(result.isFound());
+        assertEquals("mapped", result.getResult().getText());
+    }
+
+    private static byte[] contents(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private static void truncate(File file, long length) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(length);
+        } finally {
+            raf.close();
+        }
+    }
+
+}
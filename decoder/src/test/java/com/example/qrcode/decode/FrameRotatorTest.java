@@ -0,0 +1,64 @@
+package com.example.qrcode.decode;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class FrameRotatorTest {
+
+    @Test
+    public void rotate_matchesNaiveRotation() {
+        int[][] sizes = {{1, 1}, {4, 3}, {37, 53}, {64, 48}, {100, 33}};
+        for (int[] size : sizes) {
+            int width = size[0];
+            int height = size[1];
+            byte[] data = randomFrame(width * height, width * 31 + height);
+            byte[] rotated = new FrameRotator().rotate(data, width, height);
+            byte[] expected = naiveRotate(data, width, height);
+            for (int i = 0; i < expected.length; i++) {
+                assertEquals("mismatch at " + i + " for " + width + 'x' + height, expected[i], rotated[i]);
+            }
+        }
+    }
+
+    @Test
+    public void rotate_reusesBufferForSameSize() {
+        FrameRotator rotator = new FrameRotator();
+        byte[] first = rotator.rotate(randomFrame(640 * 480, 1), 640, 480);
+        byte[] second = rotator.rotate(randomFrame(640 * 480, 2), 640, 480);
+        byte[] smaller = rotator.rotate(randomFrame(320 * 240, 3), 320, 240);
+        assertSame(first, second);
+        assertSame(first, smaller);
+    }
+
+    @Test
+    public void rotate_growsBufferForLargerFrame() {
+        FrameRotator rotator = new FrameRotator();
+        byte[] small = rotator.rotate(randomFrame(320 * 240, 1), 320, 240);
+        byte[] large = rotator.rotate(randomFrame(640 * 480, 2), 640, 480);
+        assertNotSame(small, large);
+        assertTrue(large.length >= 640 * 480);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rotateClockwise_rejectsSmallBuffer() {
+        FrameRotator.rotateClockwise(new byte[12], 4, 3, new byte[11]);
+    }
+
+    static byte[] naiveRotate(byte[] data, int width, int height) {
+        byte[] rotated = new byte[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) rotated[x * height + height - y - 1] = data[x + y * width];
+        }
+        return rotated;
+    }
+
+    static byte[] randomFrame(int size, long seed) {
+        byte[] data = new byte[size];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+
+}
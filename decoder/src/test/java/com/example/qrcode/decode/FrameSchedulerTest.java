@@ -0,0 +1,129 @@
+package com.example.qrcode.decode;
+
+import com.google.zxing.BarcodeFormat;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class FrameSchedulerTest {
+
+    private static final int WIDTH = 320;
+    private static final int HEIGHT = 240;
+    private static final long MS = 1000000L;
+    private static final DecodeRegion REGION = DecodeRegion.fullFrame(90, WIDTH, HEIGHT);
+
+    @Test
+    public void admit_skipsUnchangedFrameAfterFailure() {
+        FrameScheduler scheduler = new FrameScheduler();
+        byte[] frame = TestFrames.blankFrame(WIDTH, HEIGHT);
+
+        assertEquals(FrameScheduler.Decision.DECODE, scheduler.admit(frame, WIDTH, HEIGHT, REGION, 0));
+        scheduler.onDecoded(false, 10 * MS);
+
+        assertEquals(FrameScheduler.Decision.SKIP_UNCHANGED, scheduler.admit(frame, WIDTH, HEIGHT, REGION, 33 * MS));
+        assertEquals(1, scheduler.getSkippedFrames());
+    }
+
+    @Test
+    public void admit_decodesUnchangedFrameWhileFirstDecodeIsPending() {
+        FrameScheduler scheduler = new FrameScheduler();
+        byte[] frame = TestFrames.blankFrame(WIDTH, HEIGHT);
+        scheduler.admit(frame, WIDTH, HEIGHT, REGION, 0);
+
+        assertEquals(FrameScheduler.Decision.DECODE, scheduler.admit(frame, WIDTH, HEIGHT, REGION, 33 * MS));
+    }
+
+    @Test
+    public void admit_decodesChangedScene() {
+        FrameScheduler scheduler = new FrameScheduler();
+        scheduler.admit(TestFrames.blankFrame(WIDTH, HEIGHT), WIDTH, HEIGHT, REGION, 0);
+        scheduler.onDecoded(false, 10 * MS);
+        byte[] withCode = TestFrames.barcodeFrame(BarcodeFormat.QR_CODE, "changed", WIDTH, HEIGHT, 200, 200);
+
+        assertEquals(FrameScheduler.Decision.DECODE, scheduler.admit(withCode, WIDTH, HEIGHT, REGION, 33 * MS));
+    }
+
+    @Test
+    public void admit_forcesDecodeAfterTooManySkips() {
+        FrameScheduler scheduler = new FrameScheduler();
+        byte[] frame = TestFrames.blankFrame(WIDTH, HEIGHT);
+        scheduler.admit(frame, WIDTH, HEIGHT, REGION, 0);
+        scheduler.onDecoded(false, 10 * MS);
+        for (int i = 1; i <= FrameScheduler.MAX_SKIPPED_FRAMES; i++) {
+            assertEquals(FrameScheduler.Decision.SKIP_UNCHANGED, scheduler.admit(frame, WIDTH, HEIGHT, REGION, i * 33 * MS));
+        }
+
+        assertEquals(FrameScheduler.Decision.DECODE, scheduler.admit(frame, WIDTH, HEIGHT, REGION, 1000 * MS));
+    }
+
+    @Test
+    public void admit_backsOffWhenLatencyRisesAboveBaseline() {
+        FrameScheduler scheduler = new FrameScheduler();
+        for (int i = 0; i < FrameScheduler.WARMUP_SAMPLES; i++) {
+            scheduler.onDecoded(false, 10 * MS);
+        }
+        assertFalse(scheduler.isThrottled());
+        for (int i = 0; i < 40; i++) {
+            scheduler.onDecoded(false, 60 * MS);
+        }
+        assertTrue(scheduler.isThrottled());
+
+        byte[] frame = TestFrames.barcodeFrame(BarcodeFormat.QR_CODE, "a", WIDTH, HEIGHT, 200, 200);
+        assertEquals(FrameScheduler.Decision.DECODE, scheduler.admit(frame, WIDTH, HEIGHT, null, 0));
+        assertEquals(FrameScheduler.Decision.BACK_OFF, scheduler.admit(frame, WIDTH, HEIGHT, null, 20 * MS));
+        assertTrue(scheduler.backOffDelayMillis(20 * MS) > 0);
+        assertEquals(FrameScheduler.Decision.DECODE, scheduler.admit(frame, WIDTH, HEIGHT, null, 100 * MS));
+    }
+
+    @Test
+    public void admit_backsOffWhenThermalThrottled() {
+        FrameScheduler scheduler = new FrameScheduler();
+        scheduler.onDecoded(true, 50 * MS);
+        scheduler.setThermalThrottled(true);
+        byte[] frame = TestFrames.blankFrame(WIDTH, HEIGHT);
+        scheduler.admit(frame, WIDTH, HEIGHT, null, 0);
+
+        assertEquals(FrameScheduler.Decision.BACK_OFF, scheduler.admit(frame, WIDTH, HEIGHT, null, 10 * MS));
+        scheduler.setThermalThrottled(false);
+        assertEquals(FrameScheduler.Decision.DECODE, scheduler.admit(frame, WIDTH, HEIGHT, null, 11 * MS));
+    }
+
+    @Test
+    public void sample_readsRotatedRegion() {
+        byte[] frame = new byte[WIDTH * HEIGHT * 3 / 2];
+        //原始帧左下角的像素旋转90度后在左上角
+        frame[(HEIGHT - 1) * WIDTH] = (byte) 0xff;
+        int[] samples = new int[FrameScheduler.SAMPLE_GRID * FrameScheduler.SAMPLE_GRID];
+        DecodeRegion corner = new DecodeRegion(90, 0, 0, 2, 2);
+
+        FrameScheduler.sample(frame, WIDTH, HEIGHT, corner, samples);
+
+        assertEquals(255, samples[0]);
+    }
+
+    @Test
+    public void sample_readsStridedBufferLikeByteArray() {
+        byte[] data = FrameRotatorTest.randomFrame(WIDTH * HEIGHT, 29);
+        //行末有填充，像素之间隔一个字节
+        int rowStride = WIDTH * 2 + 16;
+        ByteBuffer buffer = ByteBuffer.allocateDirect(rowStride * HEIGHT);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                buffer.put(y * rowStride + x * 2, data[y * WIDTH + x]);
+            }
+        }
+        LumaBuffer frame = new LumaBuffer(buffer, WIDTH, HEIGHT, rowStride, 2);
+        int[] expected = new int[FrameScheduler.SAMPLE_GRID * FrameScheduler.SAMPLE_GRID];
+        int[] actual = new int[expected.length];
+        for (int rotation = 0; rotation < 360; rotation += 90) {
+            DecodeRegion region = new DecodeRegion(rotation, 7, 5, 100, 90);
+            FrameScheduler.sample(data, WIDTH, HEIGHT, region, expected);
+            FrameScheduler.sample(frame, region, actual);
+            assertArrayEquals("rotation " + rotation, expected, actual);
+        }
+    }
+
+}
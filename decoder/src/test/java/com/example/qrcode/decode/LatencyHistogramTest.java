@@ -0,0 +1,90 @@
+package com.example.qrcode.decode;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void indexOf_isMonotonicAndCoversBucketRange() {
+        int last = -1;
+        for (long value = 0; value < 100000; value++) {
+            int index = LatencyHistogram.indexOf(value);
+            assertTrue(index >= last);
+            assertTrue(value <= LatencyHistogram.highestEquivalentValue(index));
+            last = index;
+        }
+    }
+
+    @Test
+    public void getPercentileNanos_withinRelativeError() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long i = 1; i <= 10000; i++) {
+            histogram.record(i * 1000L);//1us到10ms均匀分布
+        }
+        assertEquals(10000, histogram.getCount());
+        assertClose(5000000L, histogram.getPercentileNanos(50));
+        assertClose(9500000L, histogram.getPercentileNanos(95));
+        assertClose(9900000L, histogram.getPercentileNanos(99));
+        assertEquals(10000000L, histogram.getMaxNanos());
+        assertEquals(10000000L, histogram.getPercentileNanos(100));
+        assertEquals(5000500L, histogram.getMeanNanos());
+    }
+
+    @Test
+    public void getPercentileNanos_emptyHistogramIsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getPercentileNanos(99));
+        assertEquals(0, histogram.getMeanNanos());
+    }
+
+    @Test
+    public void record_clampsOutOfRangeValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(2, histogram.getCount());
+        assertEquals(0, histogram.getPercentileNanos(50));
+        assertTrue(histogram.getMaxNanos() > 0);
+    }
+
+    @Test
+    public void record_isSafeAcrossThreads() throws InterruptedException {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        final int threads = 4;
+        final int perThread = 50000;
+        final CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < perThread; i++) {
+                        histogram.record(1000 + i);
+                    }
+                    done.countDown();
+                }
+            }).start();
+        }
+        done.await();
+        assertEquals(threads * perThread, histogram.getCount());
+        assertEquals(1000 + perThread - 1, histogram.getMaxNanos());
+    }
+
+    @Test
+    public void reset_clearsAllCounts() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(12345);
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMaxNanos());
+        assertEquals(0, histogram.getPercentileNanos(50));
+    }
+
+    private static void assertClose(long expected, long actual) {
+        assertEquals((double) expected, (double) actual, expected * 0.04);
+    }
+
+}
@@ -0,0 +1,54 @@
+package com.example.qrcode.decode;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LumaPyramidTest {
+
+    @Test
+    public void downsample_averagesTwoByTwoBlocks() {
+        byte[] src = {
+                0, 4, (byte) 200, (byte) 200, 9,
+                8, 4, (byte) 200, (byte) 255, 9,
+        };
+        byte[] dst = new byte[2];
+
+        LumaPyramid.downsample(src, 5, dst, 2, 1);
+
+        assertEquals(4, dst[0] & 0xff);
+        assertEquals(214, dst[1] & 0xff);
+    }
+
+    @Test
+    public void build_stopsBeforeLevelsGetTooSmall() {
+        LumaPyramid pyramid = new LumaPyramid(3);
+
+        int levels = pyramid.build(new byte[800 * 600], 800, 600);
+
+        assertEquals(2, levels);
+        assertEquals(400, pyramid.width(1));
+        assertEquals(300, pyramid.height(1));
+    }
+
+    @Test
+    public void build_keepsOriginalMatrixAsFirstLevel() {
+        LumaPyramid pyramid = new LumaPyramid(1);
+        byte[] matrix = new byte[100 * 100];
+
+        assertEquals(1, pyramid.build(matrix, 100, 100));
+        assertSame(matrix, pyramid.level(0));
+    }
+
+    @Test
+    public void build_reusesLevelBuffers() {
+        LumaPyramid pyramid = new LumaPyramid(1);
+        pyramid.build(new byte[640 * 480], 640, 480);
+        byte[] first = pyramid.level(1);
+
+        pyramid.build(new byte[600 * 480], 600, 480);
+
+        assertSame(first, pyramid.level(1));
+    }
+
+}
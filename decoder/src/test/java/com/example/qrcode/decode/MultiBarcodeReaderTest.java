@@ -0,0 +1,72 @@
+package com.example.qrcode.decode;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.PlanarYUVLuminanceSource;
+import com.google.zxing.Result;
+import com.google.zxing.common.HybridBinarizer;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class MultiBarcodeReaderTest {
+
+    private static final int WIDTH = 640;
+    private static final int HEIGHT = 240;
+
+    @Test
+    public void decodeMultiple_findsEveryQrCode() throws NotFoundException {
+        byte[] frame = TestFrames.blankFrame(WIDTH, HEIGHT);
+        TestFrames.drawCode(frame, WIDTH, BarcodeFormat.QR_CODE, "shelf-1", 20, 20, 200, 200);
+        TestFrames.drawCode(frame, WIDTH, BarcodeFormat.QR_CODE, "shelf-2", 400, 20, 200, 200);
+        MultiBarcodeReader reader = new MultiBarcodeReader(DecodeWorkerPoolTest.qrHints());
+
+        Result[] results = reader.decodeMultiple(bitmap(frame));
+
+        assertEquals(setOf("shelf-1", "shelf-2"), texts(results));
+    }
+
+    @Test
+    public void decodeMultiple_combinesQrCodeAndOneD() throws NotFoundException {
+        byte[] frame = TestFrames.blankFrame(WIDTH, HEIGHT);
+        TestFrames.drawCode(frame, WIDTH, BarcodeFormat.QR_CODE, "bin-7", 20, 20, 200, 200);
+        TestFrames.drawCode(frame, WIDTH, BarcodeFormat.EAN_13, "5901234123457", 320, 80, 300, 80);
+        MultiBarcodeReader reader = new MultiBarcodeReader(DecodeHints.create(null, null, null));
+
+        Result[] results = reader.decodeMultiple(bitmap(frame));
+
+        assertEquals(setOf("bin-7", "5901234123457"), texts(results));
+    }
+
+    @Test(expected = NotFoundException.class)
+    public void decodeMultiple_blankFrameThrows() throws NotFoundException {
+        new MultiBarcodeReader(DecodeHints.create(null, null, null)).decodeMultiple(bitmap(TestFrames.blankFrame(WIDTH, HEIGHT)));
+    }
+
+    private static BinaryBitmap bitmap(byte[] frame) {
+        return new BinaryBitmap(new HybridBinarizer(new PlanarYUVLuminanceSource(frame, WIDTH, HEIGHT, 0, 0, WIDTH, HEIGHT, false)));
+    }
+
+    private static Set<String> texts(Result[] results) {
+        Set<String> texts = new HashSet<String>();
+        for (Result result : results) {
+            texts.add(result.getText());
+        }
+        assertEquals("duplicate results", results.length, texts.size());
+        return texts;
+    }
+
+    private static Set<String> setOf(String... values) {
+        Set<String> set = new HashSet<String>();
+        for (String value : values) {
+            set.add(value);
+        }
+        return set;
+    }
+
+}
@@ -0,0 +1,108 @@
+package com.example.qrcode.decode;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.PlanarYUVLuminanceSource;
+import com.google.zxing.Result;
+import com.google.zxing.common.HybridBinarizer;
+
+import org.junit.Test;
+
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class ReaderDispatcherTest {
+
+    private static final int WIDTH = 320;
+    private static final int HEIGHT = 240;
+    private static final String EAN = "5901234123457";
+
+    @Test
+    public void decode_findsQrCode() throws NotFoundException {
+        ReaderDispatcher dispatcher = new ReaderDispatcher(hints(allFormats()), new ReaderDispatcher.Statistics());
+
+        Result result = dispatcher.decode(bitmap(TestFrames.qrFrame("dispatch", WIDTH, HEIGHT)));
+
+        assertEquals("dispatch", result.getText());
+        assertEquals(1, dispatcher.getStatistics().getHits(ReaderDispatcher.Group.QR_CODE));
+    }
+
+    @Test
+    public void decode_coldGroupIsStillTriedEveryInterval() {
+        ReaderDispatcher.Statistics statistics = new ReaderDispatcher.Statistics();
+        for (int i = 0; i < 50; i++) {
+            statistics.recordHit(ReaderDispatcher.Group.QR_CODE);
+        }
+        ReaderDispatcher dispatcher = new ReaderDispatcher(hints(allFormats()), statistics);
+        BinaryBitmap ean = bitmap(TestFrames.barcodeFrame(BarcodeFormat.EAN_13, EAN, WIDTH, HEIGHT, 240, 80));
+
+        int found = 0;
+        for (int frame = 0; frame < 3 * ReaderDispatcher.SLOW_GROUP_INTERVAL; frame++) {
+            try {
+                assertEquals(EAN, dispatcher.decode(ean).getText());
+                found++;
+            } catch (NotFoundException e) {
+                //不是一维码的轮次
+            }
+        }
+
+        assertEquals(3, found);
+        assertEquals(3, statistics.getHits(ReaderDispatcher.Group.ONE_D));
+    }
+
+    @Test
+    public void decode_frequentGroupIsTriedEveryFrame() throws NotFoundException {
+        ReaderDispatcher.Statistics statistics = new ReaderDispatcher.Statistics();
+        ReaderDispatcher dispatcher = new ReaderDispatcher(hints(allFormats()), statistics);
+        BinaryBitmap ean = bitmap(TestFrames.barcodeFrame(BarcodeFormat.EAN_13, EAN, WIDTH, HEIGHT, 240, 80));
+
+        //第0帧轮到一维码组，命中之后它排第一，每帧都会尝试
+        for (int frame = 0; frame < ReaderDispatcher.SLOW_GROUP_INTERVAL; frame++) {
+            assertEquals(EAN, dispatcher.decode(ean).getText());
+        }
+        assertEquals(ReaderDispatcher.SLOW_GROUP_INTERVAL, statistics.getHits(ReaderDispatcher.Group.ONE_D));
+    }
+
+    @Test(expected = NotFoundException.class)
+    public void decode_disabledGroupIsNeverTried() throws NotFoundException {
+        ReaderDispatcher dispatcher = new ReaderDispatcher(hints(DecodeFormatManager.ONE_D_FORMATS), new ReaderDispatcher.Statistics());
+
+        dispatcher.decode(bitmap(TestFrames.qrFrame("dispatch", WIDTH, HEIGHT)));
+    }
+
+    @Test
+    public void shouldTry_topGroupAndFrequentGroupsAlways() {
+        assertTrue(ReaderDispatcher.shouldTry(0, 0, 0, 4, 1));
+        assertTrue(ReaderDispatcher.shouldTry(1, 10, 100, 4, 1));
+        assertFalse(ReaderDispatcher.shouldTry(1, 9, 100, 4, 1));
+        assertFalse(ReaderDispatcher.shouldTry(1, 0, 0, 1, 0));
+        assertTrue(ReaderDispatcher.shouldTry(1, 0, 0, 1, ReaderDispatcher.SLOW_GROUP_INTERVAL - 1));
+    }
+
+    private static Set<BarcodeFormat> allFormats() {
+        Set<BarcodeFormat> formats = EnumSet.noneOf(BarcodeFormat.class);
+        formats.addAll(DecodeFormatManager.ONE_D_FORMATS);
+        formats.addAll(DecodeFormatManager.QR_CODE_FORMATS);
+        formats.addAll(DecodeFormatManager.DATA_MATRIX_FORMATS);
+        formats.addAll(DecodeFormatManager.AZTEC_FORMATS);
+        formats.addAll(DecodeFormatManager.PDF417_FORMATS);
+        return formats;
+    }
+
+    private static Map<DecodeHintType, Object> hints(Set<BarcodeFormat> formats) {
+        Map<DecodeHintType, Object> hints = new EnumMap<DecodeHintType, Object>(DecodeHintType.class);
+        hints.put(DecodeHintType.POSSIBLE_FORMATS, formats);
+        return hints;
+    }
+
+    private static BinaryBitmap bitmap(byte[] frame) {
+        return new BinaryBitmap(new HybridBinarizer(new PlanarYUVLuminanceSource(frame, WIDTH, HEIGHT, 0, 0, WIDTH, HEIGHT, false)));
+    }
+
+}
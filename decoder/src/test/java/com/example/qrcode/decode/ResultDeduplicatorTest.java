@@ -0,0 +1,110 @@
+package com.example.qrcode.decode;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.Result;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ResultDeduplicatorTest {
+
+    private static final long MS = 1000000L;
+    private static final Result A = new Result("A", null, null, BarcodeFormat.QR_CODE);
+    private static final Result B = new Result("B", null, null, BarcodeFormat.QR_CODE);
+    private static final Result A_AS_CODE_128 = new Result("A", null, null, BarcodeFormat.CODE_128);
+
+    @Test
+    public void filter_reportsCodeOnceWhileItStaysInView() {
+        ResultDeduplicator deduplicator = new ResultDeduplicator(100);
+
+        assertArrayEquals(new Result[]{A}, deduplicator.filter(new Result[]{A}, 0));
+        //一直在画面中，每次出现都刷新时间
+        for (long t = 50; t <= 500; t += 50) {
+            assertEquals(0, deduplicator.filter(new Result[]{A}, t * MS).length);
+        }
+        assertArrayEquals(new Result[]{B}, deduplicator.filter(new Result[]{A, B}, 550 * MS));
+    }
+
+    @Test
+    public void filter_reportsAgainAfterWindow() {
+        ResultDeduplicator deduplicator = new ResultDeduplicator(100);
+        deduplicator.filter(new Result[]{A}, 0);
+
+        assertEquals(0, deduplicator.filter(new Result[]{A}, 100 * MS).length);
+        assertArrayEquals(new Result[]{A}, deduplicator.filter(new Result[]{A}, 201 * MS));
+    }
+
+    @Test
+    public void filter_distinguishesFormats() {
+        ResultDeduplicator deduplicator = new ResultDeduplicator(100);
+        deduplicator.filter(new Result[]{A}, 0);
+
+        assertArrayEquals(new Result[]{A_AS_CODE_128}, deduplicator.filter(new Result[]{A_AS_CODE_128}, MS));
+    }
+
+    @Test
+    public void filter_evictsStaleEntries() {
+        ResultDeduplicator deduplicator = new ResultDeduplicator(100);
+        deduplicator.filter(new Result[]{A, B}, 0);
+        deduplicator.filter(DecodeResult.NO_RESULTS, 300 * MS);
+
+        assertEquals(0, deduplicator.size());
+    }
+
+    @Test
+    public void filter_evictsLeastRecentlySeenWhenFull() {
+        Result c = new Result("C", null, null, BarcodeFormat.QR_CODE);
+        ResultDeduplicator deduplicator = new ResultDeduplicator(100, 2);
+        deduplicator.filter(new Result[]{A}, 0);
+        deduplicator.filter(new Result[]{B}, MS);
+        deduplicator.filter(new Result[]{A}, 2 * MS);//A比B更近
+        deduplicator.filter(new Result[]{c}, 3 * MS);
+
+        assertEquals(2, deduplicator.size());
+        assertEquals(0, deduplicator.filter(new Result[]{A}, 4 * MS).length);
+        assertArrayEquals(new Result[]{B}, deduplicator.filter(new Result[]{B}, 5 * MS));
+    }
+
+    @Test
+    public void filter_countsSuppressedResults() {
+        ResultDeduplicator deduplicator = new ResultDeduplicator(100);
+        deduplicator.filter(new Result[]{A, B}, 0);
+        deduplicator.filter(new Result[]{A, B}, MS);
+        deduplicator.filter(new Result[]{A}, 2 * MS);
+
+        assertEquals(3, deduplicator.getSuppressedCount());
+    }
+
+    @Test
+    public void filter_returnsSharedEmptyArrayForDuplicates() {
+        ResultDeduplicator deduplicator = new ResultDeduplicator(100);
+        deduplicator.filter(new Result[]{A}, 0);
+
+        assertSame(DecodeResult.NO_RESULTS, deduplicator.filter(new Result[]{A}, MS));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_rejectsEmptyCapacity() {
+        new ResultDeduplicator(100, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_rejectsEmptyWindow() {
+        new ResultDeduplicator(0);
+    }
+
+    @Test
+    public void containsAll_doesNotRecordOrRefresh() {
+        ResultDeduplicator deduplicator = new ResultDeduplicator(200L);
+        assertFalse(deduplicator.containsAll(new Result[]{A}, 0));
+        assertArrayEquals(new Result[]{A}, deduplicator.filter(new Result[]{A}, 0));
+
+        assertTrue(deduplicator.containsAll(new Result[]{A}, 150 * MS));
+        assertFalse(deduplicator.containsAll(new Result[]{A, B}, 150 * MS));
+        //查询没有刷新A的时间，窗口从第一次出现算起
+        assertFalse(deduplicator.containsAll(new Result[]{A}, 201 * MS));
+        assertEquals(0, deduplicator.getSuppressedCount());
+    }
+
+}
@@ -0,0 +1,192 @@
+package com.example.qrcode.decode;
+
+import com.google.zxing.ResultPoint;
+import com.google.zxing.ResultPointCallback;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class RoiTrackerTest {
+
+    private static final long MS = 1000000L;
+    //旋转之后480x640的帧，取景框在(40, 120)，400x400
+    private static final DecodeRegion FULL = new DecodeRegion(90, 40, 120, 400, 400);
+
+    @Test
+    public void regionFor_usesFullRegionWithoutPoints() {
+        RoiTracker tracker = new RoiTracker(new FixedRegion(), null);
+
+        for (int i = 0; i < RoiTracker.FULL_FRAME_INTERVAL * 2; i++) {
+            assertSame(FULL, tracker.regionFor(640, 480, i * MS));
+        }
+    }
+
+    @Test
+    public void regionFor_narrowsAroundCandidatePoints() {
+        RoiTracker tracker = new RoiTracker(new FixedRegion(), null);
+        tracker.regionFor(640, 480, 0);
+        //定位图形在取景框内(100, 100)到(160, 160)
+        tracker.onPoint(100, 100, 0);
+        tracker.onPoint(160, 100, 0);
+        tracker.onPoint(100, 160, 0);
+
+        DecodeRegion region = tracker.regionFor(640, 480, 10 * MS);
+
+        assertNotSame(FULL, region);
+        assertEquals(90, region.getRotation());
+        assertTrue(region.getLeft() <= 40 + 100 && region.getLeft() >= 40);
+        assertTrue(region.getTop() <= 120 + 100 && region.getTop() >= 120);
+        assertTrue(region.getLeft() + region.getWidth() >= 40 + 160);
+        assertTrue(region.getTop() + region.getHeight() >= 120 + 160);
+        assertTrue(region.getWidth() < FULL.getWidth() && region.getHeight() < FULL.getHeight());
+        assertEquals(1, tracker.getTrackedFrames());
+    }
+
+    @Test
+    public void regionFor_decodesFullRegionPeriodically() {
+        RoiTracker tracker = new RoiTracker(new FixedRegion(), null);
+        int full = 0;
+        for (int i = 0; i < RoiTracker.FULL_FRAME_INTERVAL * 3; i++) {
+            if (tracker.regionFor(640, 480, i * MS) == FULL) {
+                full++;
+            }
+            tracker.onPoint(200, 200, i * MS);
+        }
+
+        assertEquals(3, full);
+    }
+
+    @Test
+    public void regionFor_mapsPointsFoundInTrackedWindow() {
+        RoiTracker tracker = new RoiTracker(new FixedRegion(), null);
+        tracker.regionFor(640, 480, 0);
+        tracker.onPoint(300, 300, 0);
+        DecodeRegion window = tracker.regionFor(640, 480, MS);
+        //窗口中的(0, 0)就是窗口的左上角，换算到整帧坐标后应该把窗口往左上扩展
+        tracker.onPoint(0, 0, MS);
+
+        DecodeRegion next = tracker.regionFor(640, 480, 2 * MS);
+
+        assertTrue(next.getLeft() < window.getLeft());
+        assertTrue(next.getTop() < window.getTop());
+    }
+
+    @Test
+    public void regionFor_fallsBackWhenPointsExpire() {
+        RoiTracker tracker = new RoiTracker(new FixedRegion(), null);
+        tracker.regionFor(640, 480, 0);
+        tracker.onPoint(200, 200, 0);
+
+        assertSame(FULL, tracker.regionFor(640, 480, RoiTracker.POINT_TTL_NANOS + MS));
+    }
+
+    @Test
+    public void onDecoded_clearsPointsAfterRepeatedMisses() {
+        RoiTracker tracker = new RoiTracker(new FixedRegion(), null);
+        tracker.regionFor(640, 480, 0);
+        tracker.onPoint(200, 200, 0);
+        int misses = 0;
+        for (int i = 1; misses < RoiTracker.MAX_MISSES; i++) {
+            if (tracker.regionFor(640, 480, i * MS) != FULL) {
+                misses++;
+            }
+            tracker.onDecoded(false);
+        }
+
+        for (int i = 0; i < RoiTracker.FULL_FRAME_INTERVAL; i++) {
+            assertSame(FULL, tracker.regionFor(640, 480, 100 * MS));
+        }
+    }
+
+    @Test
+    public void onDecoded_ignoresFullRegionMissWhenAnotherThreadReplacedIt() throws InterruptedException {
+        //每次都返回新的对象，和CameraManager重算取景框时一样
+        RoiTracker tracker = new RoiTracker(new DecodeWorkerPool.RegionProvider() {
+            @Override
+            public DecodeRegion regionFor(int width, int height) {
+                return new DecodeRegion(FULL.getRotation(), FULL.getLeft(), FULL.getTop(), FULL.getWidth(), FULL.getHeight());
+            }
+        }, null);
+        tracker.regionFor(640, 480, 0);
+        tracker.onPoint(200, 200, 0);
+        takeTwoRegionsOnAnotherThread(tracker);
+        for (int i = 0; i < RoiTracker.MAX_MISSES; i++) {
+            //本线程拿到整个取景框，解码期间另一个线程拿走两个小窗口，改写了最近的整个取景框
+            assertEquals(FULL.getWidth(), tracker.regionFor(640, 480, MS).getWidth());
+            takeTwoRegionsOnAnotherThread(tracker);
+            tracker.onDecoded(false);
+        }
+
+        //整个取景框上没解出来不算小窗口失败，候选点还在
+        assertEquals(FULL.getWidth(), tracker.regionFor(640, 480, 2 * MS).getWidth());
+        assertTrue(tracker.regionFor(640, 480, 2 * MS).getWidth() < FULL.getWidth());
+    }
+
+    @Test
+    public void onDecoded_successClearsPoints() {
+        RoiTracker tracker = new RoiTracker(new FixedRegion(), null);
+        tracker.regionFor(640, 480, 0);
+        tracker.onPoint(200, 200, 0);
+        tracker.onDecoded(true);
+
+        for (int i = 1; i <= RoiTracker.FULL_FRAME_INTERVAL; i++) {
+            assertSame(FULL, tracker.regionFor(640, 480, i * MS));
+        }
+    }
+
+    @Test
+    public void foundPossibleResultPoint_forwardsFullRegionCoordinates() {
+        final List<ResultPoint> drawn = new ArrayList<ResultPoint>();
+        RoiTracker tracker = new RoiTracker(new FixedRegion(), new ResultPointCallback() {
+            @Override
+            public void foundPossibleResultPoint(ResultPoint point) {
+                drawn.add(point);
+            }
+        });
+        tracker.regionFor(640, 480, 0);
+        tracker.onPoint(300, 300, 0);
+        DecodeRegion window = tracker.regionFor(640, 480, MS);
+        tracker.onPoint(10, 20, MS);
+
+        assertEquals(2, drawn.size());
+        assertEquals(window.getLeft() - FULL.getLeft() + 10, drawn.get(1).getX(), 0.001f);
+        assertEquals(window.getTop() - FULL.getTop() + 20, drawn.get(1).getY(), 0.001f);
+    }
+
+    @Test
+    public void regionFor_passesThroughMissingRegion() {
+        RoiTracker tracker = new RoiTracker(new DecodeWorkerPool.RegionProvider() {
+            @Override
+            public DecodeRegion regionFor(int width, int height) {
+                return null;
+            }
+        }, null);
+
+        assertNull(tracker.regionFor(640, 480, 0));
+    }
+
+    private static void takeTwoRegionsOnAnotherThread(final RoiTracker tracker) throws InterruptedException {
+        Thread other = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                tracker.regionFor(640, 480, MS);
+                tracker.regionFor(640, 480, MS);
+            }
+        });
+        other.start();
+        other.join();
+    }
+
+    //固定的取景框
+    private static final class FixedRegion implements DecodeWorkerPool.RegionProvider {
+        @Override
+        public DecodeRegion regionFor(int width, int height) {
+            return FULL;
+        }
+    }
+
+}
@@ -0,0 +1,93 @@
+package com.example.qrcode.decode;
+
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.PlanarYUVLuminanceSource;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class RotatedYUVLuminanceSourceTest {
+
+    private static final int DATA_WIDTH = 97;
+    private static final int DATA_HEIGHT = 61;
+
+    @Test
+    public void getMatrix_matchesRotateThenCrop() {
+        byte[] data = FrameRotatorTest.randomFrame(DATA_WIDTH * DATA_HEIGHT * 3 / 2, 7);
+        for (int rotation = 0; rotation < 360; rotation += 90) {
+            PlanarYUVLuminanceSource expected = rotateThenCrop(data, rotation, 5, 9, 40, 33);
+            RotatedYUVLuminanceSource actual = new RotatedYUVLuminanceSource(data, DATA_WIDTH, DATA_HEIGHT, 5, 9, 40, 33, rotation, null);
+            assertArrayEquals("rotation " + rotation, expected.getMatrix(), actual.getMatrix());
+        }
+    }
+
+    @Test
+    public void getRow_matchesRotateThenCrop() {
+        byte[] data = FrameRotatorTest.randomFrame(DATA_WIDTH * DATA_HEIGHT * 3 / 2, 11);
+        for (int rotation = 0; rotation < 360; rotation += 90) {
+            PlanarYUVLuminanceSource expected = rotateThenCrop(data, rotation, 3, 2, 51, 17);
+            RotatedYUVLuminanceSource actual = new RotatedYUVLuminanceSource(data, DATA_WIDTH, DATA_HEIGHT, 3, 2, 51, 17, rotation, null);
+            byte[] row = new byte[51];
+            for (int y = 0; y < 17; y++) {
+                assertArrayEquals("rotation " + rotation + " row " + y, expected.getRow(y, null), actual.getRow(y, row));
+            }
+        }
+    }
+
+    @Test
+    public void getMatrix_writesIntoReusableBuffer() {
+        byte[] data = FrameRotatorTest.randomFrame(DATA_WIDTH * DATA_HEIGHT, 13);
+        byte[] buffer = new byte[DATA_WIDTH * DATA_HEIGHT];
+        RotatedYUVLuminanceSource source = new RotatedYUVLuminanceSource(data, DATA_WIDTH, DATA_HEIGHT, 10, 10, 30, 30, 90, buffer);
+        assertSame(buffer, source.getMatrix());
+    }
+
+    @Test
+    public void crop_matchesRotateThenCrop() {
+        byte[] data = FrameRotatorTest.randomFrame(DATA_WIDTH * DATA_HEIGHT, 17);
+        for (int rotation = 0; rotation < 360; rotation += 90) {
+            LuminanceSource expected = rotateThenCrop(data, rotation, 4, 6, 40, 30).crop(3, 2, 20, 10);
+            LuminanceSource actual = new RotatedYUVLuminanceSource(data, DATA_WIDTH, DATA_HEIGHT, 4, 6, 40, 30, rotation, null).crop(3, 2, 20, 10);
+            assertArrayEquals("rotation " + rotation, expected.getMatrix(), actual.getMatrix());
+        }
+    }
+
+    @Test
+    public void renderThumbnail_matchesRotateThenCrop() {
+        byte[] data = FrameRotatorTest.randomFrame(DATA_WIDTH * DATA_HEIGHT, 19);
+        for (int rotation = 0; rotation < 360; rotation += 90) {
+            PlanarYUVLuminanceSource expected = rotateThenCrop(data, rotation, 1, 1, 45, 37);
+            RotatedYUVLuminanceSource actual = new RotatedYUVLuminanceSource(data, DATA_WIDTH, DATA_HEIGHT, 1, 1, 45, 37, rotation, null);
+            assertEquals(expected.getThumbnailWidth(), actual.getThumbnailWidth());
+            assertEquals(expected.getThumbnailHeight(), actual.getThumbnailHeight());
+            assertArrayEquals("rotation " + rotation, expected.renderThumbnail(), actual.renderThumbnail());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_rejectsRectOutsideRotatedFrame() {
+        //旋转90度后宽度只有DATA_HEIGHT
+        new RotatedYUVLuminanceSource(new byte[DATA_WIDTH * DATA_HEIGHT], DATA_WIDTH, DATA_HEIGHT, 0, 0, DATA_WIDTH, 10, 90, null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_rejectsUnsupportedRotation() {
+        new RotatedYUVLuminanceSource(new byte[DATA_WIDTH * DATA_HEIGHT], DATA_WIDTH, DATA_HEIGHT, 0, 0, 10, 10, 45, null);
+    }
+
+    //原来的做法：先把整帧旋转，再用PlanarYUVLuminanceSource裁剪
+    private static PlanarYUVLuminanceSource rotateThenCrop(byte[] data, int rotation, int left, int top, int width, int height) {
+        byte[] rotated = data;
+        int rotatedWidth = DATA_WIDTH;
+        int rotatedHeight = DATA_HEIGHT;
+        for (int i = 0; i < rotation / 90; i++) {
+            rotated = FrameRotatorTest.naiveRotate(rotated, rotatedWidth, rotatedHeight);
+            int tmp = rotatedWidth;
+            rotatedWidth = rotatedHeight;
+            rotatedHeight = tmp;
+        }
+        return new PlanarYUVLuminanceSource(rotated, rotatedWidth, rotatedHeight, left, top, width, height, false);
+    }
+
+}
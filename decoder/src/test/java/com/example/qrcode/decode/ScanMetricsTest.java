@@ -0,0 +1,71 @@
+package com.example.qrcode.decode;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ScanMetricsTest {
+
+    @Test
+    public void onFrameArrived_recordsIntervalsAfterFirstFrame() {
+        ScanMetrics metrics = new ScanMetrics();
+        metrics.startSession(0);
+        metrics.onFrameArrived(1000000L);
+        metrics.onFrameArrived(34000000L);
+        metrics.onFrameArrived(67000000L);
+        LatencyHistogram intervals = metrics.getHistogram(ScanMetrics.Stage.FRAME_INTERVAL);
+        assertEquals(2, intervals.getCount());
+        assertEquals(33000000L, intervals.getMaxNanos());
+    }
+
+    @Test
+    public void takeDispatchedFrameArrival_returnsStampOnce() {
+        ScanMetrics metrics = new ScanMetrics();
+        metrics.onFrameDispatched(42L);
+        assertEquals(42L, metrics.takeDispatchedFrameArrival(100L));
+        assertEquals(100L, metrics.takeDispatchedFrameArrival(100L));
+    }
+
+    @Test
+    public void onResultDelivered_recordsFirstDecodeOncePerSession() {
+        ScanMetrics metrics = new ScanMetrics();
+        metrics.startSession(1000L);
+        metrics.onResultDelivered(4000L, 5000L);
+        metrics.onResultDelivered(8000L, 9000L);
+        LatencyHistogram firstDecode = metrics.getHistogram(ScanMetrics.Stage.TIME_TO_FIRST_DECODE);
+        assertEquals(1, firstDecode.getCount());
+        assertEquals(4000L, firstDecode.getMaxNanos());
+        assertEquals(2, metrics.getHistogram(ScanMetrics.Stage.DELIVERY).getCount());
+
+        metrics.startSession(10000L);
+        metrics.onResultDelivered(0, 12000L);
+        assertEquals(2, firstDecode.getCount());
+        assertEquals(2, metrics.getHistogram(ScanMetrics.Stage.DELIVERY).getCount());
+    }
+
+    @Test
+    public void onResultDelivered_countsCodesPerSecond() {
+        ScanMetrics metrics = new ScanMetrics();
+        metrics.startSession(0);
+        metrics.onResultDelivered(0, 500000000L, 3);
+        metrics.onResultDelivered(0, 1000000000L);
+        assertEquals(4, metrics.getCodesDelivered());
+        assertEquals(4.0, metrics.getCodesPerSecond(), 1e-9);
+
+        metrics.startSession(2000000000L);
+        assertEquals(0, metrics.getCodesDelivered());
+        assertEquals(0.0, metrics.getCodesPerSecond(), 1e-9);
+    }
+
+    @Test
+    public void dump_listsEveryStage() {
+        ScanMetrics metrics = new ScanMetrics();
+        metrics.record(ScanMetrics.Stage.DECODE, 2500000L);
+        String dump = metrics.dump();
+        for (ScanMetrics.Stage stage : ScanMetrics.Stage.values()) {
+            assertTrue(dump.contains(stage.name()));
+        }
+        assertTrue(dump.contains("DECODE                n=1"));
+    }
+
+}
@@ -0,0 +1,57 @@
+package com.example.qrcode.decode;
+
+import com.google.zxing.BarcodeFormat;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SharpnessEstimatorTest {
+
+    private static final int WIDTH = 320;
+    private static final int HEIGHT = 240;
+    private static final DecodeRegion REGION = DecodeRegion.fullFrame(90, WIDTH, HEIGHT);
+
+    @Test
+    public void estimate_sharpCodeIsAboveThreshold() {
+        byte[] frame = TestFrames.qrFrame("sharp", WIDTH, HEIGHT);
+
+        assertTrue(SharpnessEstimator.estimate(frame, WIDTH, HEIGHT, REGION) > SharpnessEstimator.DEFAULT_MIN_SHARPNESS);
+    }
+
+    @Test
+    public void estimate_modulesAlignedWithSampleSpacingStillCount() {
+        //640x480旋转后的取景框采样间距约10像素，和这个条码的模块一样大
+        byte[] frame = TestFrames.barcodeFrame(BarcodeFormat.QR_CODE, "aligned", 640, 480, 300, 300);
+
+        assertTrue(SharpnessEstimator.estimate(frame, 640, 480, DecodeRegion.fullFrame(90, 640, 480)) > SharpnessEstimator.DEFAULT_MIN_SHARPNESS);
+    }
+
+    @Test
+    public void estimate_slightBlurStillPasses() {
+        byte[] frame = TestFrames.motionBlur(TestFrames.qrFrame("slight", WIDTH, HEIGHT), WIDTH, HEIGHT, 1, true);
+
+        assertTrue(SharpnessEstimator.estimate(frame, WIDTH, HEIGHT, REGION) > SharpnessEstimator.DEFAULT_MIN_SHARPNESS);
+    }
+
+    @Test
+    public void estimate_motionBlurInEitherDirectionIsBelowThreshold() {
+        byte[] frame = TestFrames.qrFrame("motion", WIDTH, HEIGHT);
+
+        assertTrue(SharpnessEstimator.estimate(TestFrames.motionBlur(frame, WIDTH, HEIGHT, 8, true), WIDTH, HEIGHT, REGION) < SharpnessEstimator.DEFAULT_MIN_SHARPNESS);
+        assertTrue(SharpnessEstimator.estimate(TestFrames.motionBlur(frame, WIDTH, HEIGHT, 8, false), WIDTH, HEIGHT, REGION) < SharpnessEstimator.DEFAULT_MIN_SHARPNESS);
+    }
+
+    @Test
+    public void estimate_flatFrameIsZero() {
+        assertEquals(0, SharpnessEstimator.estimate(TestFrames.blankFrame(WIDTH, HEIGHT), WIDTH, HEIGHT, REGION));
+    }
+
+    @Test
+    public void estimate_tinyRegionIsZero() {
+        byte[] frame = TestFrames.qrFrame("tiny", WIDTH, HEIGHT);
+
+        assertEquals(0, SharpnessEstimator.estimate(frame, WIDTH, HEIGHT, new DecodeRegion(0, 10, 10, 4, 4)));
+    }
+
+}
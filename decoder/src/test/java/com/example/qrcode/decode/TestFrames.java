@@ -0,0 +1,76 @@
+package com.example.qrcode.decode;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.MultiFormatWriter;
+import com.google.zxing.WriterException;
+import com.google.zxing.common.BitMatrix;
+
+import java.util.Arrays;
+
+//测试用的合成NV21预览帧
+final class TestFrames {
+
+    private TestFrames() {
+    }
+
+    //白底空白帧
+    static byte[] blankFrame(int width, int height) {
+        byte[] frame = new byte[width * height * 3 / 2];
+        Arrays.fill(frame, 0, width * height, (byte) 0xE0);
+        Arrays.fill(frame, width * height, frame.length, (byte) 0x80);
+        return frame;
+    }
+
+    //在帧中央画一个条码，codeWidth、codeHeight是条码在预览帧中占的像素
+    static byte[] barcodeFrame(BarcodeFormat format, String text, int width, int height, int codeWidth, int codeHeight) {
+        byte[] frame = blankFrame(width, height);
+        drawCode(frame, width, format, text, (width - codeWidth) / 2, (height - codeHeight) / 2, codeWidth, codeHeight);
+        return frame;
+    }
+
+    //在left、top处画一个条码，条码生成器可能把尺寸放大到模块的整数倍
+    static void drawCode(byte[] frame, int width, BarcodeFormat format, String text, int left, int top, int codeWidth, int codeHeight) {
+        BitMatrix matrix;
+        try {
+            matrix = new MultiFormatWriter().encode(text, format, codeWidth, codeHeight);
+        } catch (WriterException e) {
+            throw new IllegalArgumentException(e);
+        }
+        left += (codeWidth - matrix.getWidth()) / 2;
+        top += (codeHeight - matrix.getHeight()) / 2;
+        for (int y = 0; y < matrix.getHeight(); y++) {
+            for (int x = 0; x < matrix.getWidth(); x++) {
+                if (matrix.get(x, y)) {
+                    frame[(top + y) * width + left + x] = (byte) 0x20;
+                }
+            }
+        }
+    }
+
+    static byte[] qrFrame(String text, int width, int height) {
+        int size = Math.min(width, height) * 2 / 3;
+        return barcodeFrame(BarcodeFormat.QR_CODE, text, width, height, size, size);
+    }
+
+    //沿水平或竖直方向做半径为radius的均值模糊，模拟手抖造成的运动模糊
+    static byte[] motionBlur(byte[] frame, int width, int height, int radius, boolean horizontal) {
+        byte[] blurred = frame.clone();
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int sum = 0;
+                int count = 0;
+                for (int k = -radius; k <= radius; k++) {
+                    int sx = horizontal ? x + k : x;
+                    int sy = horizontal ? y : y + k;
+                    if (sx >= 0 && sy >= 0 && sx < width && sy < height) {
+                        sum += frame[sy * width + sx] & 0xff;
+                        count++;
+                    }
+                }
+                blurred[y * width + x] = (byte) (sum / count);
+            }
+        }
+        return blurred;
+    }
+
+}